@@ -0,0 +1,67 @@
+package com.example.demo.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.controller.ApiController;
+import com.example.demo.response.ApiResponse;
+
+// ApiController 統計端點 /api/exam 與 /api/age 的處理成本(直接呼叫 handler, 不含 HTTP 與 JSON)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiControllerBenchmark {
+
+	@Param({ "10", "10000" })
+	int size;
+
+	private ApiController controller;
+	private String[] scores;
+	private String[] ages;
+	private byte[] scoresCsv; // POST /api/exam 的 body
+
+	@Setup
+	public void setup() {
+		controller = new ApiController();
+		scores = IntStream.range(0, size).mapToObj(i -> String.valueOf(ThreadLocalRandom.current().nextInt(0, 101)))
+				.toArray(String[]::new);
+		ages = IntStream.range(0, size).mapToObj(i -> String.valueOf(ThreadLocalRandom.current().nextInt(1, 100)))
+				.toArray(String[]::new);
+		scoresCsv = String.join("\n", scores).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public ResponseEntity<ApiResponse<Object>> exam() {
+		return controller.getExamInfo(scores);
+	}
+
+	@Benchmark
+	public ResponseEntity<ApiResponse<Object>> examCsvBody() throws IOException {
+		return controller.postExamInfo(new ByteArrayInputStream(scoresCsv));
+	}
+
+	@Benchmark
+	public ResponseEntity<ApiResponse<Object>> age() {
+		return controller.getAverage(ages);
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Book;
+import com.example.demo.response.ApiResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+// ApiResponse<List<Book>> 轉 JSON 的成本(GET /book 的主要 CPU 花費), 依清單大小比較
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	int size;
+
+	private ApiResponse<List<Book>> response;
+	private ObjectWriter writer;
+
+	@Setup
+	public void setup() {
+		List<Book> books = new ArrayList<>(size);
+		for (int i = 1; i <= size; i++) {
+			books.add(new Book(i, "書名-" + i, 10.0 + i % 100, i % 1000, i % 2 == 0));
+		}
+		response = ApiResponse.success("查詢成功:", books);
+		writer = new ObjectMapper().findAndRegisterModules().writer(); // 註冊 JavaTimeModule (Book.updatedAt)
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return writer.writeValueAsBytes(response);
+	}
+}
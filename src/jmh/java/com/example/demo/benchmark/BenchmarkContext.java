@@ -0,0 +1,48 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 效能測試用的小型 Spring context: 只註冊要測的類別, 依賴照正式程式的 @Autowired / @Value 注入
+// 欄位改名或多了新的依賴時, 建立 context 就會直接失敗, 不會像用反射設定欄位那樣留下 null 或測到舊的接法
+final class BenchmarkContext {
+
+	private BenchmarkContext() {
+	}
+
+	// 共用的基礎 bean: JdbcTemplate / TransactionTemplate (接 dataSource)、書籍快取、MeterRegistry
+	// properties 會蓋掉 @Value 的預設值
+	static AnnotationConfigApplicationContext create(DataSource dataSource, Map<String, Object> properties,
+			Class<?>... components) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance()); // 10m, 64KB 這類寫法
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+		if (dataSource != null) {
+			context.registerBean(JdbcTemplate.class, () -> new JdbcTemplate(dataSource));
+			context.registerBean(TransactionTemplate.class,
+					() -> new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+		}
+		context.registerBean("bookCache", Cache.class,
+				() -> Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(Duration.ofMinutes(10)).<Integer, Book>build());
+		context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+		context.register(components);
+		context.refresh();
+		return context;
+	}
+}
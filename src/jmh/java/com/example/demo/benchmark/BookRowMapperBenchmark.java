@@ -0,0 +1,77 @@
+package com.example.demo.benchmark;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRowMapper;
+
+// 比較 BeanPropertyRowMapper(每次 new, 原本的寫法) 與 BookRowMapper(依位置對應, 共用實例) 的轉換成本
+// 資料先從 H2 讀進 CachedRowSet, 測量時只重跑 ResultSet -> Book, 排除資料庫與網路的時間
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookRowMapperBenchmark {
+
+	@Param({ "1000", "100000" })
+	int rows; // JMH 注入參數, 不能是 private
+
+	private CachedRowSet resultSet;
+
+	@Setup
+	public void setup() throws SQLException {
+		DataSource dataSource = EmbeddedBookDatabase.create("rowmapper", rows);
+		try (Connection con = dataSource.getConnection();
+				Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("select " + BookRowMapper.COLUMNS + " from book")) {
+			resultSet = RowSetProvider.newFactory().createCachedRowSet();
+			resultSet.populate(rs);
+		}
+	}
+
+	@Benchmark
+	public List<Book> beanPropertyRowMapper() throws SQLException {
+		return mapAll(new BeanPropertyRowMapper<>(Book.class));
+	}
+
+	@Benchmark
+	public List<Book> positionalRowMapper() throws SQLException {
+		return mapAll(BookRowMapper.INSTANCE);
+	}
+
+	private List<Book> mapAll(RowMapper<Book> rowMapper) throws SQLException {
+		List<Book> books = new ArrayList<>(rows);
+		resultSet.beforeFirst();
+		int rowNum = 0;
+		while (resultSet.next()) {
+			books.add(rowMapper.mapRow(resultSet, rowNum++));
+		}
+		return books;
+	}
+}
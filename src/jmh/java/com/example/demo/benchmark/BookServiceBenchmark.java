@@ -0,0 +1,62 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationContext;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.exception.BookException;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryJdbcImpl;
+import com.example.demo.service.BookService;
+import com.example.demo.service.BookServiceImpl;
+import com.example.demo.service.CachedBookServiceImpl;
+import com.example.demo.service.CoalescingBookServiceImpl;
+
+// service 層單筆查詢: 直接查資料庫 vs 經過快取, 熱門書集中在前 HOT_SET 筆
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BookServiceBenchmark {
+
+	static final int HOT_SET = 2_000;
+
+	private BookService uncached;
+	private BookService cached;
+
+	@Setup
+	public void setup() {
+		// 與正式環境相同的接法: CachedBookServiceImpl -> CoalescingBookServiceImpl -> BookServiceImpl
+		ApplicationContext context = JdbcRepositoryBenchmark.createContext("service", 20_000,
+				BookRepositoryJdbcImpl.class, BookEventBus.class, BookServiceImpl.class, CoalescingBookServiceImpl.class,
+				CachedBookServiceImpl.class);
+		uncached = context.getBean(BookServiceImpl.class);
+		cached = context.getBean(CachedBookServiceImpl.class);
+	}
+
+	@Benchmark
+	public Book uncachedGetBookById() throws BookException {
+		return uncached.getBookById(ThreadLocalRandom.current().nextInt(1, HOT_SET + 1));
+	}
+
+	@Benchmark
+	public Book cachedGetBookById() throws BookException {
+		return cached.getBookById(ThreadLocalRandom.current().nextInt(1, HOT_SET + 1));
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.demo.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.bmi.BulkBmiCalculator;
+
+// 大量 BMI: 純量迴圈 vs Vector API (分別在不同 JVM 參數的 fork 中執行), 以及完整的 CSV 解析 + 計算 + 輸出
+// Vector API 版本只在 -P vector 建置時存在: mvn -P benchmark,vector test-compile exec:exec -Djmh.includes=BulkBmiBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkBmiBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	private double[] heights;
+	private double[] weights;
+	private double[] out;
+	private byte[] csv;
+
+	@Setup
+	public void setup() {
+		heights = new double[size];
+		weights = new double[size];
+		out = new double[size];
+		StringBuilder sb = new StringBuilder("height,weight\n");
+		for (int i = 0; i < size; i++) {
+			heights[i] = 140 + ThreadLocalRandom.current().nextInt(600) / 10.0;
+			weights[i] = 40 + ThreadLocalRandom.current().nextInt(800) / 10.0;
+			sb.append(heights[i]).append(',').append(weights[i]).append('\n');
+		}
+		csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dbook.bmi.disable-vector=true")
+	public double[] computeScalar() {
+		BulkBmiCalculator.compute(heights, weights, out, 0, size);
+		return out;
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+	public double[] computeVector() {
+		BulkBmiCalculator.compute(heights, weights, out, 0, size);
+		return out;
+	}
+
+	@Benchmark
+	public long processCsv() throws IOException {
+		return BulkBmiCalculator.processCsv(new ByteArrayInputStream(csv), OutputStream.nullOutputStream());
+	}
+}
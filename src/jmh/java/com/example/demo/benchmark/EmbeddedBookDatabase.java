@@ -0,0 +1,33 @@
+package com.example.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+// 效能測試用的 H2 內嵌資料庫, book 表結構與 MySQL 相同
+public final class EmbeddedBookDatabase {
+
+	private EmbeddedBookDatabase() {
+	}
+
+	// 建立(或重建) book 表並放入 rows 筆資料
+	public static DataSource create(String name, int rows) {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists book");
+		jdbcTemplate.execute("create table book (id int auto_increment primary key, name varchar(50) not null, "
+				+ "price double, amount int, pub boolean, version int not null default 0, "
+				+ "updated_at timestamp(3) not null default current_timestamp(3))");
+		List<Object[]> args = new ArrayList<>(rows);
+		for (int i = 1; i <= rows; i++) {
+			args.add(new Object[] { "書名-" + i, 10 + (i % 100) * 0.5, i % 1000, i % 2 == 0 });
+		}
+		jdbcTemplate.batchUpdate("insert into book(name, price, amount, pub) values(?, ?, ?, ?)", args);
+		return dataSource;
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.demo.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.exception.BookNotFoundException;
+import com.example.demo.exception.GlobalExceptionHandler;
+import com.example.demo.response.ApiResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 查無此書的錯誤路徑: 改版前 (一般 Exception 抓完整 stack trace + e.toString() + 類別名稱字串比對)
+// vs 改版後 (不抓 stack trace 的 BookNotFoundException + 依類型的 handler)
+// depth 模擬 Tomcat + Spring MVC + AOP 代理的呼叫深度, stack trace 成本與深度成正比
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+	@Param({ "20", "150" })
+	int depth;
+
+	private AnnotationConfigApplicationContext context;
+	private GlobalExceptionHandler handler;
+	private MeterRegistry registry;
+	private final ConcurrentHashMap<Class<?>, Counter> legacyCounters = new ConcurrentHashMap<>();
+
+	// 改版前的 BookException: 一般的 checked exception, 建立時會抓 stack trace
+	static class LegacyBookException extends Exception {
+		LegacyBookException(String message) {
+			super(message);
+		}
+	}
+
+	@Setup
+	public void setup() {
+		context = BenchmarkContext.create(null, Map.of(), GlobalExceptionHandler.class);
+		handler = context.getBean(GlobalExceptionHandler.class);
+		registry = context.getBean(MeterRegistry.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public ApiResponse<Object> legacy() {
+		try {
+			legacyAtDepth(depth, 42);
+			return null;
+		} catch (LegacyBookException e) {
+			return legacyHandle(e);
+		}
+	}
+
+	@Benchmark
+	public ResponseEntity<ApiResponse<Object>> stackless() {
+		try {
+			stacklessAtDepth(depth, 42);
+			return null;
+		} catch (BookNotFoundException e) {
+			return handler.handleBookNotFound(e);
+		}
+	}
+
+	private static void legacyAtDepth(int depth, int id) throws LegacyBookException {
+		if (depth > 0) {
+			legacyAtDepth(depth - 1, id);
+			return;
+		}
+		throw new LegacyBookException("id: " + id + ", 查無此書");
+	}
+
+	private static void stacklessAtDepth(int depth, int id) throws BookNotFoundException {
+		if (depth > 0) {
+			stacklessAtDepth(depth - 1, id);
+			return;
+		}
+		throw new BookNotFoundException(id);
+	}
+
+	// 改版前 GlobalExceptionHandler.handleException 的做法 (計數器也照樣算)
+	private ApiResponse<Object> legacyHandle(Exception e) {
+		legacyCounters.computeIfAbsent(e.getClass(), type -> Counter.builder("book.errors.handled.legacy")
+				.tag("exception", type.getSimpleName()).register(registry)).increment();
+		String errorMessage = e.toString();
+		switch (e.getClass().getSimpleName()) {
+		case "MethodArgumentTypeMismatchException":
+			errorMessage = "參數錯誤(" + e.getClass().getSimpleName() + ")";
+			break;
+		case "NoResourceFoundException":
+			errorMessage = "查無網頁(" + e.getClass().getSimpleName() + ")";
+			break;
+		}
+		return ApiResponse.error(errorMessage);
+	}
+}
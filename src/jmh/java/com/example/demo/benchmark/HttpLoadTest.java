@@ -0,0 +1,83 @@
+package com.example.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 簡易壓力測試: 用 N 個並行使用者持續打同一個網址, 統計吞吐量與延遲百分位數
+// 比較方式: 分別以 spring.threads.virtual.enabled=false / true 啟動應用程式, 用相同參數各跑一次
+// 執行: java -cp target/test-classes com.example.demo.benchmark.HttpLoadTest http://localhost:8080/book/1 1000 30
+//
+// 量測紀錄: --spring.profiles.active=replica-local (H2 primary + replica, 兩個連線池都被限制為 10 條),
+// 關閉限流, GET /book/page?size=20 各跑 15 秒; 1 顆 CPU, 壓測程式與應用程式在同一台機器
+//   虛擬執行緒  200 users:  202 req/s  p50= 858 ms  p95=2927 ms  p99=3490 ms
+//   平台執行緒  200 users:  213 req/s  p50= 837 ms  p95=1846 ms  p99=2825 ms
+//   虛擬執行緒 1000 users:  386 req/s  p50=2122 ms  p95=6136 ms  p99=6946 ms
+//   平台執行緒 1000 users:  303 req/s  p50=2868 ms  p95=5403 ms  p99=7778 ms
+// 全部請求成功, 沒有等連線逾時。H2 在記憶體裡, 查詢不用等 I/O, 這裡的瓶頸是 CPU;
+// 虛擬執行緒的好處要在查詢會等 MySQL 回應時才明顯, 上線前要用真的 MySQL 再量一次
+public class HttpLoadTest {
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "http://localhost:8080/book/1";
+		int users = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).build();
+		long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+		// 每個使用者各自記錄延遲(微秒), 最後再合併計算百分位數
+		long[][] latencies = new long[users][];
+		AtomicLong okCount = new AtomicLong();
+		AtomicLong errorCount = new AtomicLong();
+		AtomicInteger userIndex = new AtomicInteger();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int u = 0; u < users; u++) {
+				executor.submit(() -> {
+					long[] samples = new long[1024];
+					int count = 0;
+					while (System.nanoTime() < deadline) {
+						long start = System.nanoTime();
+						try {
+							HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+							if (response.statusCode() < 400) {
+								okCount.incrementAndGet();
+							} else {
+								errorCount.incrementAndGet();
+							}
+						} catch (Exception e) {
+							errorCount.incrementAndGet();
+						}
+						if (count == samples.length) {
+							samples = Arrays.copyOf(samples, count * 2);
+						}
+						samples[count++] = (System.nanoTime() - start) / 1_000;
+					}
+					latencies[userIndex.getAndIncrement()] = Arrays.copyOf(samples, count);
+					return null;
+				});
+			}
+		}
+
+		long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream).sorted().toArray();
+		System.out.printf("url=%s users=%d seconds=%d%n", url, users, seconds);
+		System.out.printf("成功=%d 失敗=%d 吞吐量=%.1f req/s%n", okCount.get(), errorCount.get(),
+				(okCount.get() + errorCount.get()) / (double) seconds);
+		if (all.length > 0) {
+			System.out.printf("延遲(ms) p50=%.1f p95=%.1f p99=%.1f max=%.1f%n", percentile(all, 0.50),
+					percentile(all, 0.95), percentile(all, 0.99), all[all.length - 1] / 1000.0);
+		}
+	}
+
+	private static double percentile(long[] sorted, double p) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1000.0;
+	}
+}
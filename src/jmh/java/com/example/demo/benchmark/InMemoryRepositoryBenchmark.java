@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryImpl;
+
+// InMemory repository 在多執行緒競爭下的 CRUD 吞吐量
+// mixed 群組: 6 條執行緒讀、2 條執行緒修改、1 條執行緒新增+刪除, 模擬讀多寫少的情境
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryRepositoryBenchmark {
+
+	@Param({ "1000", "50000" })
+	int size;
+
+	private BookRepositoryImpl repository;
+
+	@Setup
+	public void setup() {
+		repository = new BookRepositoryImpl();
+		for (int i = 0; i < size; i++) {
+			repository.addBook(new Book(null, "書名-" + i, 10.0 + i % 100, i % 1000, i % 2 == 0));
+		}
+	}
+
+	private int randomId() {
+		return ThreadLocalRandom.current().nextInt(1, size + 1);
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(6)
+	public Optional<Book> read() {
+		return repository.getBookById(randomId());
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(2)
+	public boolean update() {
+		int id = randomId();
+		return repository.updateBook(id, new Book(id, "書名-" + id, 20.0, 5, true));
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public boolean addAndDelete() {
+		Book book = new Book(null, "新書", 9.9, 1, false);
+		repository.addBook(book);
+		return repository.deleteBook(book.getId());
+	}
+
+	@Benchmark
+	@Group("page")
+	@GroupThreads(4)
+	public List<Book> keysetPage() {
+		return repository.findBooksAfter(randomId(), 50);
+	}
+}
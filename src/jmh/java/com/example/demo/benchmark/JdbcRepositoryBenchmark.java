@@ -0,0 +1,67 @@
+package com.example.demo.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryJdbcImpl;
+
+// BookRepositoryJdbcImpl 查詢路徑(H2 內嵌資料庫), 用來觀察 SQL + RowMapper 的整體成本
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcRepositoryBenchmark {
+
+	static final int ROWS = 100_000;
+
+	private BookRepositoryJdbcImpl repository;
+
+	@Setup
+	public void setup() {
+		repository = JdbcRepositoryBenchmark.createRepository("jdbcrepo", ROWS);
+	}
+
+	// H2 不接受 MySQL 串流用的 Integer.MIN_VALUE
+	static final Map<String, Object> JDBC_PROPERTIES = Map.of("book.jdbc.stream-fetch-size", 1000,
+			"book.batch.chunk-size", 500);
+
+	// 建立接上 H2 的 context, components 至少要包含 BookRepositoryJdbcImpl, 其他 benchmark 也會用到
+	static AnnotationConfigApplicationContext createContext(String name, int rows, Class<?>... components) {
+		DataSource dataSource = EmbeddedBookDatabase.create(name, rows);
+		return BenchmarkContext.create(dataSource, JDBC_PROPERTIES, components);
+	}
+
+	static BookRepositoryJdbcImpl createRepository(String name, int rows) {
+		return createContext(name, rows, BookRepositoryJdbcImpl.class).getBean(BookRepositoryJdbcImpl.class);
+	}
+
+	@Benchmark
+	public Optional<Book> getBookById() {
+		return repository.getBookById(ThreadLocalRandom.current().nextInt(1, ROWS + 1));
+	}
+
+	@Benchmark
+	public List<Book> keysetPage() {
+		return repository.findBooksAfter(ThreadLocalRandom.current().nextInt(0, ROWS), 50);
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.demo.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.ratelimit.AdaptiveConcurrencyLimiter;
+import com.example.demo.ratelimit.TokenBucketRateLimiter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 每個請求在 LoadSheddingFilter 多花的時間: 頻率限制 (CAS 更新 TAT) 與同時處理數限制 (CAS 取得/釋放名額)
+// clients 個前端同時打, clients = 1 時所有執行緒搶同一個 bucket (CAS 競爭最嚴重)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoadSheddingBenchmark {
+
+	@Param({ "1", "10000" })
+	int clients;
+
+	private TokenBucketRateLimiter rateLimiter;
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+	@Setup
+	public void setup() {
+		rateLimiter = new TokenBucketRateLimiter(List.of("/book/**=1000000:1000"), 100_000, Duration.ofMinutes(10));
+		concurrencyLimiter = new AdaptiveConcurrencyLimiter(1000, 5, 1000, 1.5, Duration.ofSeconds(1), 10,
+				new SimpleMeterRegistry());
+	}
+
+	@Benchmark
+	public boolean rateLimit() {
+		return rateLimiter.tryAcquire("/book/1", "ip:" + ThreadLocalRandom.current().nextInt(clients)).allowed();
+	}
+
+	@Benchmark
+	public boolean concurrencyLimit() {
+		boolean acquired = concurrencyLimiter.tryAcquire();
+		if (acquired) {
+			concurrencyLimiter.onSample(1_000_000);
+			concurrencyLimiter.release();
+		}
+		return acquired;
+	}
+}
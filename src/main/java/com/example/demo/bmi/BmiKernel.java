@@ -0,0 +1,8 @@
+package com.example.demo.bmi;
+
+// 計算 [from, to) 的 BMI: 體重(kg) / 身高(m)^2, 身高單位是公分
+// 預設是 BulkBmiCalculator 的純量迴圈; 用 -P vector 建置時另外有 Vector API 的版本 (VectorBmiKernel)
+interface BmiKernel {
+
+	void compute(double[] heights, double[] weights, double[] out, int from, int to);
+}
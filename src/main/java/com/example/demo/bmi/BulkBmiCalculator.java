@@ -0,0 +1,369 @@
+package com.example.demo.bmi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.IntConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// 大量 BMI 計算 (POST /api/bmi/bulk)
+// 輸入一次讀一個區塊, 解析成 double[] 身高/體重後在緊密迴圈中計算, 算完馬上寫出, 記憶體用量與筆數無關
+// 每一列都不建立物件: 數字自己解析與格式化, 不經過 String / Double
+// 區塊夠大時切成多段, 解析、計算、格式化各段平行處理, 再依原順序寫出
+public final class BulkBmiCalculator {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkBmiCalculator.class);
+
+	// 用 -P vector 建置且啟動時有 --add-modules jdk.incubator.vector 才用 Vector API, 否則為 null, 用純量迴圈
+	// (C2 也會自動向量化一部分)
+	private static final BmiKernel VECTOR_KERNEL = loadVectorKernel();
+
+	// 平行計算用自己的執行緒池, 不佔用 common ForkJoinPool (parallel stream、CompletableFuture 預設都用它)
+	// 執行緒數固定, 同時很多大量請求時各段在池中排隊, 不會再多開執行緒
+	private static final int PARALLELISM = Math.max(1,
+			Integer.getInteger("book.bmi.parallelism", Runtime.getRuntime().availableProcessors()));
+	private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("bulk-bmi-" + thread.getPoolIndex());
+		return thread;
+	}, null, false);
+
+	private static final int CSV_BLOCK_BYTES = 1 << 20; // CSV 每次讀 1MB
+	private static final int BINARY_BLOCK_PAIRS = 1 << 16; // 二進位每次讀 65536 組 (1MB)
+	private static final int MIN_SEGMENT_BYTES = 64 * 1024; // 每段至少這麼大才值得平行
+	private static final int MIN_SEGMENT_PAIRS = 16 * 1024;
+	private static final int MAX_OUTPUT_LINE = 24; // 一列輸出最長的位元組數
+	static final int MAX_LINE_BYTES = CSV_BLOCK_BYTES; // 一列輸入最長的位元組數, 超過就是格式錯誤, 緩衝區不會再變大
+	private static final byte[] CSV_HEADER = { 'b', 'm', 'i', '\n' };
+
+	static {
+		logger.info("大量 BMI 計算: {}, 平行度 {}", VECTOR_KERNEL != null ? "Vector API" : "純量迴圈", PARALLELISM);
+	}
+
+	private BulkBmiCalculator() {
+	}
+
+	private static BmiKernel loadVectorKernel() {
+		if (Boolean.getBoolean("book.bmi.disable-vector")
+				|| ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return null;
+		}
+		try {
+			return (BmiKernel) Class.forName("com.example.demo.bmi.VectorBmiKernel").getDeclaredConstructor()
+					.newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null; // 不是用 -P vector 建置的, 沒有這個類別
+		}
+	}
+
+	// 計算 [from, to) 的 BMI: 體重(kg) / 身高(m)^2, 身高單位是公分
+	public static void compute(double[] heights, double[] weights, double[] out, int from, int to) {
+		if (VECTOR_KERNEL != null) {
+			VECTOR_KERNEL.compute(heights, weights, out, from, to);
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			double m = heights[i] * 0.01;
+			out[i] = weights[i] / (m * m);
+		}
+	}
+
+	// CSV: 每列「身高,體重」(逗號/分號/tab 分隔), 第一列有英文字母時視為標題
+	// 輸出每列一個 BMI (小數 2 位), 與輸入列一一對應; 無法解析或身高/體重 <= 0 的列輸出空白
+	// 回傳處理的列數
+	public static long processCsv(InputStream in, OutputStream out) throws IOException {
+		byte[] buf = new byte[CSV_BLOCK_BYTES];
+		int len = 0; // buf 中尚未處理的位元組數
+		long rows = 0;
+		boolean first = true;
+		boolean eof = false;
+		while (!eof) {
+			int n = in.readNBytes(buf, len, buf.length - len);
+			eof = n == 0 || len + n < buf.length;
+			len += n;
+			int end = eof ? len : lastIndexOf(buf, '\n', len) + 1; // 只處理完整的列
+			if (end == 0 && !eof) { // 緩衝區滿了還沒有換行
+				throw new BulkBmiFormatException("單列資料超過 " + MAX_LINE_BYTES + " bytes");
+			}
+			int start = 0;
+			if (first && end > 0) {
+				first = false;
+				if (end >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF) {
+					start = 3; // UTF-8 BOM (Excel 存的 CSV)
+				}
+				int lineEnd = indexOf(buf, '\n', start, end);
+				int headerEnd = lineEnd < 0 ? end : lineEnd;
+				if (containsLetter(buf, start, headerEnd)) {
+					out.write(CSV_HEADER);
+					start = lineEnd < 0 ? end : lineEnd + 1;
+				}
+			}
+			rows += processCsvLines(buf, start, end, out);
+			System.arraycopy(buf, end, buf, 0, len - end);
+			len -= end;
+		}
+		out.flush();
+		return rows;
+	}
+
+	private static long processCsvLines(byte[] buf, int from, int to, OutputStream out) throws IOException {
+		if (from >= to) {
+			return 0;
+		}
+		// 依換行切段, 每段獨立解析、計算、格式化
+		int segments = Math.max(1, Math.min(PARALLELISM, (to - from) / MIN_SEGMENT_BYTES));
+		int[] bounds = new int[segments + 1];
+		bounds[0] = from;
+		for (int s = 1; s < segments; s++) {
+			int target = Math.max(bounds[s - 1], from + (int) ((long) (to - from) * s / segments));
+			int nl = indexOf(buf, '\n', target, to);
+			bounds[s] = nl < 0 ? to : nl + 1;
+		}
+		bounds[segments] = to;
+		CsvSegment[] results = new CsvSegment[segments];
+		runParallel(segments, s -> results[s] = CsvSegment.process(buf, bounds[s], bounds[s + 1]));
+		long rows = 0;
+		for (CsvSegment result : results) {
+			out.write(result.bytes, 0, result.length);
+			rows += result.rows;
+		}
+		return rows;
+	}
+
+	// 二進位: 連續的 (身高, 體重) double 組 (big-endian, 與 DataOutputStream.writeDouble 相同)
+	// 輸出每組一個 BMI double; 回傳處理的組數
+	public static long processBinary(InputStream in, OutputStream out) throws IOException {
+		byte[] inBytes = new byte[BINARY_BLOCK_PAIRS * 2 * Double.BYTES];
+		byte[] outBytes = new byte[BINARY_BLOCK_PAIRS * Double.BYTES];
+		double[] pairs = new double[BINARY_BLOCK_PAIRS * 2];
+		double[] heights = new double[BINARY_BLOCK_PAIRS];
+		double[] weights = new double[BINARY_BLOCK_PAIRS];
+		double[] bmis = new double[BINARY_BLOCK_PAIRS];
+		DoubleBuffer inDoubles = ByteBuffer.wrap(inBytes).asDoubleBuffer();
+		DoubleBuffer outDoubles = ByteBuffer.wrap(outBytes).asDoubleBuffer();
+		long rows = 0;
+		int n;
+		while ((n = in.readNBytes(inBytes, 0, inBytes.length)) > 0) {
+			if (n % (2 * Double.BYTES) != 0) {
+				throw new BulkBmiFormatException("二進位資料長度需為 16 的倍數 (每組身高、體重各 8 bytes)");
+			}
+			int count = n / (2 * Double.BYTES);
+			inDoubles.clear();
+			inDoubles.get(pairs, 0, count * 2);
+			for (int i = 0; i < count; i++) {
+				heights[i] = pairs[2 * i];
+				weights[i] = pairs[2 * i + 1];
+			}
+			computeParallel(heights, weights, bmis, count);
+			outDoubles.clear();
+			outDoubles.put(bmis, 0, count);
+			out.write(outBytes, 0, count * Double.BYTES);
+			rows += count;
+		}
+		out.flush();
+		return rows;
+	}
+
+	private static void computeParallel(double[] heights, double[] weights, double[] out, int count) {
+		int segments = Math.max(1, Math.min(PARALLELISM, count / MIN_SEGMENT_PAIRS));
+		runParallel(segments, s -> compute(heights, weights, out, (int) ((long) count * s / segments),
+				(int) ((long) count * (s + 1) / segments)));
+	}
+
+	// 第 1 段在呼叫的執行緒上做, 其他段交給 POOL, 全部做完才返回
+	static void runParallel(int segments, IntConsumer segment) {
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[segments];
+		for (int s = 1; s < segments; s++) {
+			int i = s;
+			tasks[s] = POOL.submit(() -> segment.accept(i));
+		}
+		segment.accept(0);
+		for (int s = 1; s < segments; s++) {
+			tasks[s].join();
+		}
+	}
+
+	// 一段 CSV 的處理結果
+	private static final class CsvSegment {
+
+		private final byte[] bytes;
+		private final int length;
+		private final int rows;
+
+		private CsvSegment(byte[] bytes, int length, int rows) {
+			this.bytes = bytes;
+			this.length = length;
+			this.rows = rows;
+		}
+
+		static CsvSegment process(byte[] buf, int from, int to) {
+			int capacity = countLines(buf, from, to);
+			double[] heights = new double[capacity];
+			double[] weights = new double[capacity];
+			double[] bmis = new double[capacity];
+			int rows = 0;
+			int pos = from;
+			while (pos < to) {
+				int lineEnd = indexOf(buf, '\n', pos, to);
+				if (lineEnd < 0) {
+					lineEnd = to;
+				}
+				int sep = indexOfSeparator(buf, pos, lineEnd);
+				if (sep < 0) {
+					heights[rows] = Double.NaN;
+					weights[rows] = Double.NaN;
+				} else {
+					heights[rows] = parseDouble(buf, pos, sep);
+					weights[rows] = parseDouble(buf, sep + 1, lineEnd);
+				}
+				rows++;
+				pos = lineEnd + 1;
+			}
+			compute(heights, weights, bmis, 0, rows);
+			byte[] bytes = new byte[rows * MAX_OUTPUT_LINE];
+			int length = 0;
+			for (int i = 0; i < rows; i++) {
+				if (heights[i] > 0 && weights[i] > 0 && Double.isFinite(bmis[i])) {
+					length = writeFixed2(bmis[i], bytes, length);
+				}
+				bytes[length++] = '\n';
+			}
+			return new CsvSegment(bytes, length, rows);
+		}
+	}
+
+	// 解析 [from, to) 的十進位小數 (可有正負號, 前後空白與 \r), 格式不對時回傳 NaN
+	static double parseDouble(byte[] buf, int from, int to) {
+		while (from < to && isBlank(buf[from])) {
+			from++;
+		}
+		while (to > from && isBlank(buf[to - 1])) {
+			to--;
+		}
+		if (from == to) {
+			return Double.NaN;
+		}
+		boolean negative = buf[from] == '-';
+		if (negative || buf[from] == '+') {
+			from++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean dot = false;
+		for (int i = from; i < to; i++) {
+			byte c = buf[i];
+			if (c >= '0' && c <= '9') {
+				if (digits < 18) { // 超過 18 位的部分捨去, BMI 用不到那麼高的精度
+					mantissa = mantissa * 10 + (c - '0');
+					digits++;
+					if (dot) {
+						scale++;
+					}
+				} else if (!dot) {
+					scale--;
+				}
+			} else if (c == '.' && !dot) {
+				dot = true;
+			} else {
+				return Double.NaN;
+			}
+		}
+		if (digits == 0) {
+			return Double.NaN;
+		}
+		double value = scale >= 0 ? mantissa / POW10[Math.min(scale, POW10.length - 1)]
+				: mantissa * POW10[Math.min(-scale, POW10.length - 1)];
+		return negative ? -value : value;
+	}
+
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18 };
+
+	// 把 value 四捨五入到小數 2 位寫入 buf, 回傳新的位置
+	static int writeFixed2(double value, byte[] buf, int pos) {
+		long cents = Math.round(value * 100);
+		if (cents < 0) {
+			buf[pos++] = '-';
+			cents = -cents;
+		}
+		long whole = cents / 100;
+		int frac = (int) (cents % 100);
+		if (whole == 0) {
+			buf[pos++] = '0';
+		} else {
+			int start = pos;
+			while (whole > 0) {
+				buf[pos++] = (byte) ('0' + whole % 10);
+				whole /= 10;
+			}
+			for (int i = start, j = pos - 1; i < j; i++, j--) { // 反轉成正確順序
+				byte t = buf[i];
+				buf[i] = buf[j];
+				buf[j] = t;
+			}
+		}
+		buf[pos++] = '.';
+		buf[pos++] = (byte) ('0' + frac / 10);
+		buf[pos++] = (byte) ('0' + frac % 10);
+		return pos;
+	}
+
+	private static boolean isBlank(byte c) {
+		return c == ' ' || c == '\t' || c == '\r';
+	}
+
+	private static int indexOfSeparator(byte[] buf, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] == ',' || buf[i] == ';' || buf[i] == '\t') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(byte[] buf, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buf[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(byte[] buf, char c, int to) {
+		for (int i = to - 1; i >= 0; i--) {
+			if (buf[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int countLines(byte[] buf, int from, int to) {
+		int lines = 0;
+		for (int i = from; i < to; i++) {
+			if (buf[i] == '\n') {
+				lines++;
+			}
+		}
+		return to > from && buf[to - 1] != '\n' ? lines + 1 : lines;
+	}
+
+	private static boolean containsLetter(byte[] buf, int from, int to) {
+		for (int i = from; i < to; i++) {
+			byte c = buf[i];
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c < 0) { // c < 0: 非 ASCII (中文標題)
+				return true;
+			}
+		}
+		return false;
+	}
+}
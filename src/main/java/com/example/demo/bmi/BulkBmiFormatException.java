@@ -0,0 +1,11 @@
+package com.example.demo.bmi;
+
+import java.io.IOException;
+
+// 大量 BMI 的輸入格式錯誤 (單列過長、二進位長度不對), GlobalExceptionHandler 回 400
+// 開始輸出之前發生才能回 400; 已經送出部分結果時狀態碼改不了, 連線會直接中斷
+public class BulkBmiFormatException extends IOException {
+	public BulkBmiFormatException(String message) {
+		super(message);
+	}
+}
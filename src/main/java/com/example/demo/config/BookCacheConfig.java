@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// 書籍快取設定
+// Caffeine 使用 W-TinyLFU 淘汰策略: 超過筆數上限時, 優先淘汰不常被讀取的書, 熱門書會一直留在快取中
+@Configuration
+public class BookCacheConfig {
+
+	@Bean
+	public Cache<Integer, Book> bookCache(@Value("${book.cache.maximum-size:10000}") long maximumSize,
+			@Value("${book.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+		return Caffeine.newBuilder()
+				.maximumSize(maximumSize) // 筆數上限
+				.expireAfterWrite(expireAfterWrite) // TTL, 就算沒人修改也會定期回資料庫重新讀取
+				.recordStats() // 記錄命中/未命中/淘汰次數
+				.build();
+	}
+}
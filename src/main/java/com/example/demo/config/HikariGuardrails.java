@@ -0,0 +1,55 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// 虛擬執行緒模式下的連線池保護, 由 VirtualThreadConfig 註冊
+// 1. 每個連線池最多 maxConnections 條連線 (沒設定大小的連線池以 Hikari 預設的 10 條計算)
+// 2. 拿不到連線時最多等 maxConnectionWait 就失敗, 不讓大量虛擬執行緒無限期排隊
+// 是 bean 的 HikariDataSource (primary) 在初始化前自動套用; 不是 bean 的 (replica) 由建立的地方呼叫 apply
+public class HikariGuardrails implements BeanPostProcessor {
+
+	private static final Logger logger = LoggerFactory.getLogger(HikariGuardrails.class);
+
+	private static final int DEFAULT_POOL_SIZE = 10; // Hikari 的預設值
+
+	private final int maxConnections;
+	private final Duration maxConnectionWait;
+
+	public HikariGuardrails(int maxConnections, Duration maxConnectionWait) {
+		this.maxConnections = maxConnections;
+		this.maxConnectionWait = maxConnectionWait;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		if (bean instanceof HikariDataSource hikari) {
+			apply(hikari, beanName);
+		}
+		return bean;
+	}
+
+	// 要在連線池啟動 (第一次 getConnection) 之前呼叫
+	public void apply(HikariDataSource hikari, String name) {
+		// 沒設定時在啟動前是 -1, 啟動時才換成預設的 10
+		int poolSize = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+		if (poolSize > maxConnections) {
+			logger.warn("虛擬執行緒模式: 連線池 {} 大小 {} 超過上限, 調整為 {}", name, poolSize, maxConnections);
+			poolSize = maxConnections;
+		}
+		hikari.setMaximumPoolSize(poolSize);
+		if (hikari.getMinimumIdle() > maxConnections) {
+			hikari.setMinimumIdle(maxConnections);
+		}
+		if (hikari.getConnectionTimeout() > maxConnectionWait.toMillis()) {
+			hikari.setConnectionTimeout(maxConnectionWait.toMillis());
+		}
+		logger.info("虛擬執行緒模式: 連線池 {} 最多 {} 條連線, 等待連線最多 {} ms", name, hikari.getMaximumPoolSize(),
+				hikari.getConnectionTimeout());
+	}
+}
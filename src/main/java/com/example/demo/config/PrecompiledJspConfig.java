@@ -0,0 +1,93 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnResource;
+import org.springframework.boot.web.servlet.ServletContextInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import jakarta.servlet.ServletRegistration;
+
+// 預先編譯的 JSP (mvn -P jspc package, 見 pom.xml)
+// JspC 在打包時把 /WEB-INF/view/*.jsp 轉成 servlet 一起編譯, 並產生 jspc-servlets.xml (servlet 與對應路徑)
+// 這裡在啟動時把這些 servlet 註冊到 JSP 的路徑上: 精確路徑優先於 *.jsp, forward 到 JSP 時直接執行編譯好的類別,
+// 部署後第一個請求不用再等 Jasper 轉譯 + 編譯; 沒用 jspc profile 打包就沒有這個檔案, 照舊由 Jasper 即時編譯
+// 只有 book.jsp.precompiled=true (application-prod.properties) 才啟用, 開發時 target/classes 留著舊的編譯結果也不會蓋掉改過的 JSP
+@Configuration
+@ConditionalOnResource(resources = PrecompiledJspConfig.SERVLETS_XML)
+@ConditionalOnProperty(name = "book.jsp.precompiled", havingValue = "true")
+public class PrecompiledJspConfig {
+
+	static final String SERVLETS_XML = "classpath:jspc-servlets.xml";
+
+	private static final Logger logger = LoggerFactory.getLogger(PrecompiledJspConfig.class);
+
+	@Bean
+	public ServletContextInitializer precompiledJspInitializer() throws IOException {
+		Map<String, String> mappings = readMappings();
+		return servletContext -> {
+			for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+				ServletRegistration.Dynamic registration = servletContext.addServlet(mapping.getValue(),
+						mapping.getValue());
+				registration.addMapping(mapping.getKey());
+				registration.setLoadOnStartup(1); // 啟動時就載入並初始化, 不留到第一個請求
+			}
+			logger.info("已註冊 {} 個預先編譯的 JSP", mappings.size());
+		};
+	}
+
+	// JspC -webinc 產生的是 <servlet> 與 <servlet-mapping> 片段 (沒有根元素), 包一層再解析
+	// 回傳 JSP 路徑 -> servlet 類別
+	private static Map<String, String> readMappings() throws IOException {
+		String fragment;
+		try (InputStream in = new ClassPathResource(SERVLETS_XML.substring("classpath:".length())).getInputStream()) {
+			fragment = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		Document document;
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			document = factory.newDocumentBuilder()
+					.parse(new InputSource(new StringReader("<jspc>" + fragment + "</jspc>")));
+		} catch (Exception e) {
+			throw new IOException("無法解析 " + SERVLETS_XML, e);
+		}
+		Map<String, String> classes = new LinkedHashMap<>();
+		NodeList servlets = document.getElementsByTagName("servlet");
+		for (int i = 0; i < servlets.getLength(); i++) {
+			Element servlet = (Element) servlets.item(i);
+			classes.put(text(servlet, "servlet-name"), text(servlet, "servlet-class"));
+		}
+		Map<String, String> mappings = new LinkedHashMap<>();
+		NodeList servletMappings = document.getElementsByTagName("servlet-mapping");
+		for (int i = 0; i < servletMappings.getLength(); i++) {
+			Element mapping = (Element) servletMappings.item(i);
+			String servletClass = classes.get(text(mapping, "servlet-name"));
+			if (servletClass != null) {
+				mappings.put(text(mapping, "url-pattern"), servletClass);
+			}
+		}
+		return mappings;
+	}
+
+	private static String text(Element parent, String tag) {
+		NodeList nodes = parent.getElementsByTagName(tag);
+		return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent().trim();
+	}
+}
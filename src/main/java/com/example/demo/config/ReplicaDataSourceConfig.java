@@ -0,0 +1,82 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 讀寫分離 (book.datasource.replica.enabled=true)
+// primary 沿用 spring.datasource.* 設定; replica 由 book.datasource.replica.* 設定, 可以有多台
+// 自己定義 DataSource 後 Spring Boot 就不會再自動建立, JdbcTemplate 會使用這裡標 @Primary 的路由 DataSource
+// 本機測試: --spring.profiles.active=replica-local (兩個 H2 內嵌資料庫分別當 primary 與 replica)
+@Configuration
+@ConditionalOnProperty(name = "book.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+	// primary 連線池, 同樣套用 spring.datasource.hikari.* 設定
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	@Primary
+	public ReplicaRoutingDataSource dataSource(HikariDataSource primaryDataSource, MeterRegistry registry,
+			ResourceLoader resourceLoader, ObjectProvider<HikariGuardrails> guardrails,
+			@Value("${book.datasource.replica.urls}") List<String> urls,
+			@Value("${book.datasource.replica.username:${spring.datasource.username:}}") String username,
+			@Value("${book.datasource.replica.password:${spring.datasource.password:}}") String password,
+			@Value("${book.datasource.replica.driver-class-name:${spring.datasource.driver-class-name:}}") String driverClassName,
+			@Value("${book.datasource.replica.pool-size:10}") int poolSize,
+			@Value("${book.datasource.replica.strategy:round-robin}") String strategy,
+			@Value("${book.datasource.replica.health-check-interval:5s}") Duration healthCheckInterval,
+			@Value("${book.datasource.replica.lag-query:}") String lagQuery,
+			@Value("${book.datasource.replica.max-lag:5s}") Duration maxLag,
+			@Value("${book.datasource.replica.init-scripts:}") List<String> initScripts) {
+		List<HikariDataSource> replicas = new ArrayList<>(urls.size());
+		for (int i = 0; i < urls.size(); i++) {
+			HikariDataSource replica = new HikariDataSource();
+			replica.setPoolName("BookReplicaPool-" + i);
+			replica.setJdbcUrl(urls.get(i).trim());
+			replica.setUsername(username);
+			replica.setPassword(password);
+			if (!driverClassName.isBlank()) {
+				replica.setDriverClassName(driverClassName);
+			}
+			replica.setMaximumPoolSize(poolSize);
+			replica.setReadOnly(true); // 連線設為唯讀, 萬一路由錯了寫入也會失敗而不是寫到 replica
+			replica.setDataSourceProperties(primaryDataSource.getDataSourceProperties()); // 與 primary 相同的 driver 參數
+			replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)); // hikaricp.* 指標
+			guardrails.ifAvailable(g -> g.apply(replica, replica.getPoolName())); // 虛擬執行緒模式的連線池上限
+			if (!initScripts.isEmpty()) { // 本機測試: 建立 replica 的資料表與資料 (用一般連線, replica 連線池是唯讀的)
+				ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+				initScripts.forEach(script -> populator.addScript(resourceLoader.getResource(script.trim())));
+				DatabasePopulatorUtils.execute(populator,
+						new DriverManagerDataSource(replica.getJdbcUrl(), username, password));
+			}
+			replicas.add(replica);
+		}
+		return new ReplicaRoutingDataSource(primaryDataSource, replicas,
+				ReplicaRoutingDataSource.Strategy.valueOf(strategy.trim().toUpperCase().replace('-', '_')),
+				healthCheckInterval, lagQuery, maxLag, registry);
+	}
+}
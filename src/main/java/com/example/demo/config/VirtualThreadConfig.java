@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// 虛擬執行緒模式 (spring.threads.virtual.enabled=true, 需要 JDK 21)
+// 開啟後 Spring Boot 會讓 Tomcat 每個請求(以及 StreamingResponseBody 等非同步工作)都跑在虛擬執行緒上,
+// 請求在等 MySQL 回應時不會佔住平台執行緒, 同時能處理的請求數不再受限於 Tomcat 的 200 條 worker。
+// 但請求數變多, 同時要連線的請求也會變多, 所以這裡加上連線池的保護措施:
+// 1. 每個連線池 (primary 與每台 replica) 大小有上限, 避免一次把資料庫連線塞滿
+// 2. 拿不到連線時最多等 max-connection-wait 就失敗, 不讓大量虛擬執行緒無限期排隊
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+	// static: BeanPostProcessor 要比其他 bean 更早建立
+	// replica 連線池不是 bean, ReplicaDataSourceConfig 會拿這個 bean 自己套用
+	@Bean
+	public static HikariGuardrails hikariGuardrails(
+			@Value("${book.virtual-threads.max-db-connections:10}") int maxDbConnections,
+			@Value("${book.virtual-threads.max-connection-wait:3s}") Duration maxConnectionWait) {
+		return new HikariGuardrails(maxDbConnections, maxConnectionWait);
+	}
+}
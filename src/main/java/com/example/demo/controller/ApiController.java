@@ -1,29 +1,42 @@
 package com.example.demo.controller;
 
-import java.util.IntSummaryStatistics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.bmi.BulkBmiCalculator;
 import com.example.demo.model.BMI;
 import com.example.demo.model.Book;
 import com.example.demo.response.ApiResponse;
+import com.example.demo.stats.IntArrayParser;
+import com.example.demo.stats.ScoreStatistics;
 
 @RestController // 免去撰寫 @ResponseBody, 但若要透過 jsp 渲染則不適用
 @RequestMapping("/api") // 以下路徑統一都有 URL 前綴 "/api"
 public class ApiController {
 
 	private static final Logger logger = LoggerFactory.getLogger(ApiController.class);
+
+	private static final int PASS_MARK = 60; // 及格分數
+	private static final int[] PERCENTILES = { 25, 50, 75, 90, 99 };
+	private static final String[] HISTOGRAM_LABELS = { "0-9", "10-19", "20-29", "30-39", "40-49", "50-59", "60-69",
+			"70-79", "80-89", "90-100" };
 	// 1. 首頁 路徑: /home
 	// 路徑: /，網址: http://localhost:8080/api/home
 	// 網址:http://localhost:8080/api/
@@ -45,7 +58,7 @@ public class ApiController {
 	@GetMapping("/greet")
 	public String greet(@RequestParam(value = "name", required = true) String username,
 			@RequestParam(value = "age", required = false, defaultValue = "0") Integer userage) {
-		logger.info("執行路徑:/greet 參數: name=" + username + ", age=" + userage);
+		logger.info("執行路徑:/greet 參數: name={}, age={}", username, userage); // 用 {} 參數, 日誌層級關閉時不會組字串
 		String result = String.format("Hi %s %d (%s)", username, userage, userage >= 18 ? "成年" : "未成年");
 		return result;
 	}
@@ -73,10 +86,33 @@ public class ApiController {
 		if (h == null || w == null) {
 			return ResponseEntity.badRequest().body(ApiResponse.error("請提供身高(h)或體重(w)"));
 		}
-		double bmi = w / Math.pow(h / 100, 2);
+		double m = h / 100;
+		double bmi = w / (m * m); // 直接相乘, 比 Math.pow(x, 2) 便宜
 		return ResponseEntity.ok(ApiResponse.success("BMI 計算成功", new BMI(h, w, bmi)));
 	}
 
+	// 大量 BMI 計算: 診所一次上傳整批身高/體重, 邊讀邊算邊回傳, 不會整批放進記憶體
+	// CSV (text/csv): 每列「身高,體重」, 回傳每列一個 BMI (小數 2 位), 無法計算的列回傳空白
+	// 二進位 (application/octet-stream): 連續的 (身高, 體重) big-endian double, 回傳每組一個 BMI double
+	// curl -X POST -H "Content-Type: text/csv" --data-binary @cohort.csv http://localhost:8080/api/bmi/bulk
+	@PostMapping(value = "/bmi/bulk", consumes = { "text/csv", MediaType.TEXT_PLAIN_VALUE })
+	public ResponseEntity<StreamingResponseBody> calcBmiBulkCsv(InputStream body) {
+		StreamingResponseBody result = out -> {
+			long rows = BulkBmiCalculator.processCsv(body, out);
+			logger.info("大量 BMI 計算完成 (CSV), 共 {} 列", rows);
+		};
+		return ResponseEntity.ok().contentType(new MediaType("text", "csv", StandardCharsets.UTF_8)).body(result);
+	}
+
+	@PostMapping(value = "/bmi/bulk", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public ResponseEntity<StreamingResponseBody> calcBmiBulkBinary(InputStream body) {
+		StreamingResponseBody result = out -> {
+			long rows = BulkBmiCalculator.processBinary(body, out);
+			logger.info("大量 BMI 計算完成 (二進位), 共 {} 組", rows);
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(result);
+	}
+
 	// 5. 同名多筆資料
 	// 路徑: /age?age=17&age=21&age=20
 	// 網址: http://localhost:8080/api/age?age=17&age=21&age=20
@@ -85,11 +121,33 @@ public class ApiController {
 	// <ApiResponse<T>不知道要放什麼放Object就好
 	@GetMapping(value = "/age", produces = "application/json;charset=utf-8")
 	public ResponseEntity<ApiResponse<Object>> getAverage(
-			@RequestParam(name = "age", required = false) List<String> ages) {
-		if (ages == null || ages.size() == 0) {
+			@RequestParam(name = "age", required = false) String[] ages) {
+		if (ages == null || ages.length == 0) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請輸入年齡(age)"));
+		}
+		try {
+			return ageInfo(IntArrayParser.parse(ages)); // 直接解析成 int[], 不經過 List<Integer>
+		} catch (NumberFormatException e) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("年齡格式錯誤: " + e.getMessage()));
+		}
+	}
+
+	// 大量資料改用 body 傳: JSON 陣列 [17, 21, 20] 或 CSV (17,21,20 或一行一筆)
+	@PostMapping(value = "/age", consumes = { MediaType.APPLICATION_JSON_VALUE, "text/csv",
+			MediaType.TEXT_PLAIN_VALUE }, produces = "application/json;charset=utf-8")
+	public ResponseEntity<ApiResponse<Object>> postAverage(InputStream body) throws IOException {
+		try {
+			return ageInfo(IntArrayParser.parse(body)); // 邊讀邊解析, 不先讀成字串
+		} catch (NumberFormatException e) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("年齡格式錯誤: " + e.getMessage()));
+		}
+	}
+
+	private ResponseEntity<ApiResponse<Object>> ageInfo(int[] ages) {
+		if (ages.length == 0) {
 			return ResponseEntity.badRequest().body(ApiResponse.error("請輸入年齡(age)"));
 		}
-		double avg = ages.stream().mapToInt(Integer::parseInt).average().orElseGet(() -> 0);
+		double avg = ScoreStatistics.average(ages);
 		Object map = Map.of("年齡", ages, "平均年齡", String.format("%.1f", avg));
 		return ResponseEntity.ok(ApiResponse.success("計算成功", map));
 	}
@@ -100,22 +158,57 @@ public class ApiController {
 	// http://localhost:8080/api/exam?score=80&score=100&score=50&score=70&score=30
 	// 請自行設計一個方法，此方法可以
 	// 印出: 最高分=?、最低分=?、平均=?、總分=?、及格分數列出=?、不及格分數列出=?
+	// 分數只掃描一次 (ScoreStatistics), 另外回傳人數、百分位數與每 10 分一區的分布
 	@GetMapping(value = "/exam", produces = "application/json;charset=utf-8")
 	public ResponseEntity<ApiResponse<Object>> getExamInfo(
-			@RequestParam(name = "score", required = false) List<Integer> scores) {
-		// 統計資料
-		IntSummaryStatistics stat = scores.stream().mapToInt(Integer::intValue).summaryStatistics();
-		// 利用 Collectors.partitioningBy 分組
-		// key=true 及格分數 | key=false 不及格分數
-		Map<Boolean, List<Integer>> resultMap = scores.stream()
-				.collect(Collectors.partitioningBy(score -> score >= 60));
-		Object data = Map.of("最高分", stat.getMax(), "最低分", stat.getMin(), "平均", stat.getAverage(), "總分", stat.getSum(),
-				"及格", resultMap.get(true), "不及格", resultMap.get(false));
-		return ResponseEntity.ok(ApiResponse.success("計算成功", data));
-		// 這邊使用 Object 作為 data 的型別，是為了彈性地包裝不同型別的資料結構
-		// 這一行實際上建立了一個 Map<String, Object>（裡面可能有整數、雙精度、List 等混合型別的值），但因為 ApiResponse<T>
-		// 是泛型的，我們無法事先知道 T 是什麼型別，因此使用 Object 作為最通用的容器。
+			@RequestParam(name = "score", required = false) String[] scores) {
+		if (scores == null || scores.length == 0) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請輸入分數(score)"));
+		}
+		try {
+			return examInfo(IntArrayParser.parse(scores));
+		} catch (NumberFormatException e) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("分數格式錯誤: " + e.getMessage()));
+		}
+	}
 
+	// 成績批改用: 上萬筆分數放在 body, JSON 陣列 [80, 100, 50] 或 CSV
+	@PostMapping(value = "/exam", consumes = { MediaType.APPLICATION_JSON_VALUE, "text/csv",
+			MediaType.TEXT_PLAIN_VALUE }, produces = "application/json;charset=utf-8")
+	public ResponseEntity<ApiResponse<Object>> postExamInfo(InputStream body) throws IOException {
+		try {
+			return examInfo(IntArrayParser.parse(body));
+		} catch (NumberFormatException e) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("分數格式錯誤: " + e.getMessage()));
+		}
+	}
+
+	private ResponseEntity<ApiResponse<Object>> examInfo(int[] scores) {
+		if (scores.length == 0) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請輸入分數(score)"));
+		}
+		ScoreStatistics stat = ScoreStatistics.of(scores, PASS_MARK);
+		Map<String, Integer> percentiles = new LinkedHashMap<>();
+		for (int p : PERCENTILES) {
+			percentiles.put("P" + p, stat.percentile(p));
+		}
+		int[] histogram = stat.getHistogram();
+		Map<String, Integer> distribution = new LinkedHashMap<>();
+		for (int i = 0; i < histogram.length; i++) {
+			distribution.put(HISTOGRAM_LABELS[i], histogram[i]);
+		}
+		// 這邊使用 Object 作為 data 的型別，是為了彈性地包裝不同型別的資料結構
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("最高分", stat.getMax());
+		data.put("最低分", stat.getMin());
+		data.put("平均", stat.getAverage());
+		data.put("總分", stat.getSum());
+		data.put("及格", stat.getPassed());
+		data.put("不及格", stat.getFailed());
+		data.put("人數", stat.getCount());
+		data.put("百分位數", percentiles);
+		data.put("分布", distribution);
+		return ResponseEntity.ok(ApiResponse.success("計算成功", data));
 	}
 
 	// 7.多筆參數轉Map,用map去接資料(因為打在網址列,要用map接)
@@ -128,7 +221,7 @@ public class ApiController {
 	// boot自動會轉成Map<String,object>參數)
 	@GetMapping(value = "/book", produces = "application/json;charset=utf-8")
 	public ResponseEntity<ApiResponse<Object>> getBookInfo(@RequestParam Map<String, Object> bookMap) {
-		System.out.println(bookMap);
+		logger.debug("執行路徑:/book 參數: {}", bookMap);
 		return ResponseEntity.ok(ApiResponse.success("回應成功", bookMap));
 	}
 
@@ -141,7 +234,7 @@ public class ApiController {
 	@GetMapping(value = "/book2", produces = "application/json;charset=utf-8")
 	public ResponseEntity<ApiResponse<Book>> getBookInfo2(Book book) {
 		book.setId(1); // 設定 id
-		System.out.println(book);
+		logger.debug("執行路徑:/book2 參數: {}", book);
 		return ResponseEntity.ok(ApiResponse.success("回應成功2", book));
 	}
 
@@ -1,8 +1,19 @@
 package com.example.demo.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,13 +23,32 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.event.BookEventBus;
 import com.example.demo.exception.BookException;
+import com.example.demo.export.BookExporter;
+import com.example.demo.importer.BookImportJob;
+import com.example.demo.importer.BookImportService;
+import com.example.demo.model.BatchResult;
 import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
 import com.example.demo.response.ApiResponse;
+import com.example.demo.response.CursorPage;
+import com.example.demo.response.SerializedResponseCache;
+import com.example.demo.search.BookSearchIndex;
 import com.example.demo.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 @CrossOrigin(origins = "http://localhost:5173") // 允許跨域請求,安全性的問題
 @RestController
@@ -29,89 +59,276 @@ public class BookController {
 	@Autowired
 	private BookService bookService;
 
+	@Autowired
+	private ObjectMapper objectMapper; // Spring Boot 內建設定好的 Jackson
+
+	@Autowired
+	private Cache<Integer, Book> bookCache; // 單筆查詢的快取, 這裡只用來看統計
+
+	@Autowired
+	private BookEventBus bookEventBus; // 書籍異動事件
+
+	@Autowired
+	private BookSearchIndex bookSearchIndex; // 書名搜尋索引
+
+	@Autowired
+	private BookImportService bookImportService; // CSV 匯入
+
+	@Autowired
+	private SerializedResponseCache responseCache; // 轉好的 JSON 回應
+
+	private static final int MAX_PAGE_SIZE = 500; // 每頁筆數上限, 避免 size 被帶成超大數字
+	private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8"); // 匯出
+	private static final MediaType XLSX = MediaType
+			.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
 	// 每個方法都對應到 HTTP 方法與路由，用來實作對書籍資料的操作
+	// 書籍的錯誤 (BookException) 直接往外丟, 由 GlobalExceptionHandler 依類型回 404 (查無此書) / 409 (版本衝突) / 400
+	// 條件式 GET: 前端帶 If-None-Match / If-Modified-Since, 清單沒變就回 304, 只查一次版本彙總, 不讀整張表也不轉 JSON
+	// 清單沒變但前端沒有快取時, 直接回傳上次轉好的 JSON bytes (前端接受 gzip 時回傳壓好的版本)
 	@GetMapping // 後面不加代表只要/book就好
-	public ResponseEntity<ApiResponse<List<Book>>> findAllBooks() {
-		List<Book> books = bookService.findAllBooks();
-		if (books.size() == 0) {
-			return ResponseEntity.badRequest().body(ApiResponse.error("查無此書"));
+	public ResponseEntity<?> findAllBooks(WebRequest webRequest,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		CollectionVersion version = bookService.getCollectionVersion(); // 查資料庫的彙總, 多台伺服器結果相同
+		if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+			return null; // checkNotModified 已經設好 304 與 ETag/Last-Modified
+		}
+		SerializedResponseCache.Entry cached = responseCache.getCollection(version);
+		if (cached == null) {
+			List<Book> books = bookService.findAllBooks();
+			if (books.size() == 0) {
+				return ResponseEntity.badRequest().body(ApiResponse.error("查無此書"));
+			}
+			// 版本與清單可能讀自不同的 replica (或複寫還沒跟上), 以實際讀到的資料算版本存進快取
+			CollectionVersion loaded = CollectionVersion.of(books);
+			cached = responseCache.putCollection(loaded, ApiResponse.success("查詢成功:", books));
+			if (!loaded.equals(version)) {
+				// 回應的 ETag 是查到的版本, 內容卻是另一個版本: 這次不讓前端快取
+				return SerializedResponseCache.toResponse(cached, acceptEncoding, CacheControl.noStore());
+			}
 		}
-		return ResponseEntity.ok(ApiResponse.success("查詢成功:", books));
+		return SerializedResponseCache.toResponse(cached, acceptEncoding);
+	}
+
+	// keyset 分頁: /book/page?after=100&size=50, 回應中的 nextCursor 就是下一頁要帶的 after
+	@GetMapping("/page")
+	public ResponseEntity<ApiResponse<CursorPage<Book>>> findBooksPage(@RequestParam(required = false) Integer after,
+			@RequestParam(defaultValue = "50") int size) {
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		List<Book> rows = bookService.findBooksAfter(after, pageSize + 1); // 多查一筆用來判斷有沒有下一頁
+		return ResponseEntity.ok(ApiResponse.success("查詢成功:", CursorPage.of(rows, pageSize, Book::getId)));
 	}
 
+	// 串流: 每從 ResultSet 讀到一筆就寫出一行 JSON (NDJSON), 記憶體用量與資料筆數無關
+	@GetMapping(value = "/stream", produces = "application/x-ndjson")
+	public ResponseEntity<StreamingResponseBody> streamAllBooks() {
+		StreamingResponseBody body = out -> {
+			SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+			bookService.streamAllBooks(book -> {
+				try {
+					writer.write(book);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e); // lambda 裡不能丟 checked exception
+				}
+			});
+			writer.flush();
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+	}
+
+	// 匯出全部書籍: /book/export?format=csv (預設) 或 /book/export?format=xlsx
+	// 伺服器端從資料庫串流產生檔案, 前端不用先載入整張表; CSV 在瀏覽器支援時以 gzip 傳送 (xlsx 本身已是 zip, 不再壓)
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "csv") String format,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		String filename = "books-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+		if ("xlsx".equalsIgnoreCase(format)) {
+			return ResponseEntity.ok().contentType(XLSX)
+					.header(HttpHeaders.CONTENT_DISPOSITION, attachment(filename + ".xlsx"))
+					.body(out -> BookExporter.writeXlsx(bookService, out));
+		}
+		if (!"csv".equalsIgnoreCase(format)) {
+			return ResponseEntity.badRequest().build();
+		}
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(CSV)
+				.header(HttpHeaders.CONTENT_DISPOSITION, attachment(filename + ".csv"))
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+			return builder.body(out -> BookExporter.writeCsv(bookService, out));
+		}
+		return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+				.body(out -> BookExporter.writeGzipCsv(bookService, out));
+	}
+
+	private static String attachment(String filename) {
+		return ContentDisposition.attachment().filename(filename).build().toString();
+	}
+
+	// CSV 大量匯入: multipart 欄位 file, 回 202 與工作 id, 之後用 GET /book/import/{id} 查進度與每一行的錯誤
+	@PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<ApiResponse<BookImportJob>> importBooks(@RequestParam("file") MultipartFile file)
+			throws IOException {
+		if (file.isEmpty()) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請上傳 CSV 檔案(file)"));
+		}
+		return bookImportService.start(file)
+				.map(job -> ResponseEntity.accepted().location(URI.create("/book/import/" + job.getId()))
+						.body(ApiResponse.success("匯入中", job)))
+				.orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.body(ApiResponse.error("匯入工作過多, 請稍後再試")));
+	}
+
+	@GetMapping("/import/{jobId}")
+	public ResponseEntity<ApiResponse<BookImportJob>> getImportJob(@PathVariable String jobId) {
+		return bookImportService.getJob(jobId).map(job -> ResponseEntity.ok(ApiResponse.success("查詢成功", job)))
+				.orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error("查無此匯入工作")));
+	}
+
+	// 書名搜尋 (記憶體反向索引): /book/search?q=小叮噹&pub=true&minPrice=5&maxPrice=20&size=10
+	// 中文可以打書名中的任一段, 英文/數字可以只打開頭; 依相關程度排序回傳前 size 筆
+	@GetMapping("/search")
+	public ResponseEntity<ApiResponse<List<Book>>> searchBooks(@RequestParam(required = false) String q,
+			@RequestParam(required = false) Boolean pub, @RequestParam(required = false) Double minPrice,
+			@RequestParam(required = false) Double maxPrice, @RequestParam(defaultValue = "20") int size) {
+		if (q == null || q.isBlank()) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請輸入關鍵字(q)"));
+		}
+		int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		List<Book> books = bookSearchIndex.search(q, pub, minPrice, maxPrice, limit);
+		String message = bookSearchIndex.isReady() ? "查詢成功:" : "查詢成功(索引建立中, 結果可能不完整):";
+		return ResponseEntity.ok(ApiResponse.success(message, books));
+	}
+
+	// 書籍異動事件 (Server-Sent Events): 前端用 EventSource 訂閱, 不用再輪詢 GET /book
+	// 斷線後瀏覽器會自動帶 Last-Event-ID 重連並補送漏掉的事件, 也可以用 ?since=序號 指定從哪裡接續
+	// 收到 reset 事件代表漏掉的事件已經補不回來, 要重新 GET /book 一次; 訂閱者太多時回 503
+	@GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamEvents(
+			@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+			@RequestParam(required = false) Long since) {
+		return bookEventBus.subscribe(lastEventId != null ? lastEventId : since).map(ResponseEntity::ok)
+				.orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+	}
+
+	// 快取統計: 命中/未命中/淘汰次數
+	@GetMapping("/cache/stats")
+	public ResponseEntity<ApiResponse<Object>> getCacheStats() {
+		CacheStats stats = bookCache.stats();
+		Object data = Map.of("hitCount", stats.hitCount(), "missCount", stats.missCount(), "hitRate", stats.hitRate(),
+				"evictionCount", stats.evictionCount(), "size", bookCache.estimatedSize());
+		return ResponseEntity.ok(ApiResponse.success("查詢成功", data));
+	}
+
+	// 條件式 GET: ETag 由 id + version 組成, 單筆查詢走快取, 命中時整個 304 流程都不會碰到資料庫
+	// 同一版本的回應 JSON 也會快取, 不用每次重新轉換
 	@GetMapping("/{id}")
-	public ResponseEntity<ApiResponse<Book>> getBookById(@PathVariable Integer id) {
-		try {
-			Book book = bookService.getBookById(id);
-			return ResponseEntity.ok(ApiResponse.success("查詢成功:", book));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+	public ResponseEntity<?> getBookById(@PathVariable Integer id, WebRequest webRequest,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+			throws BookException {
+		Book book = bookService.getBookById(id);
+		long lastModified = book.getUpdatedAt() == null ? -1 : book.getUpdatedAt().toEpochMilli();
+		if (webRequest.checkNotModified(etagOf(book), lastModified)) {
+			return null;
+		}
+		long version = book.getVersion() == null ? -1 : book.getVersion();
+		SerializedResponseCache.Entry cached = responseCache.getBook(id, version);
+		if (cached == null) {
+			cached = responseCache.putBook(id, version, ApiResponse.success("查詢成功:", book));
 		}
+		return SerializedResponseCache.toResponse(cached, acceptEncoding);
 	}
 
 	@PostMapping // 新增
 	// @RequestBody 的用途，就是「接住放在 request body 中的參數」
-	public ResponseEntity<ApiResponse<Book>> addBook(@RequestBody Book book) {
-		try {
-			bookService.addBook(book);
-			return ResponseEntity.ok(ApiResponse.success("新增成功", book));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+	public ResponseEntity<ApiResponse<Book>> addBook(@RequestBody Book book) throws BookException {
+		bookService.addBook(book);
+		return ResponseEntity.ok(ApiResponse.success("新增成功", book));
+	}
+
+	// 批次新增, body 為書籍陣列, 回傳每一筆的結果與新 id
+	@PostMapping("/batch")
+	public ResponseEntity<ApiResponse<List<BatchResult>>> addBooks(@RequestBody List<Book> books) {
+		if (books == null || books.isEmpty()) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請提供書籍資料"));
 		}
+		return ResponseEntity.ok(ApiResponse.success("批次新增完成", bookService.addBooks(books)));
 	}
 
-	@DeleteMapping("/{id}") // 根據id來刪除
-	public ResponseEntity<ApiResponse<String>> deletedBook(@PathVariable("id") Integer id) {
-		try {
-			bookService.deleteBook(id);
-			return ResponseEntity.ok(ApiResponse.success("刪除成功", ""));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+	// 批次修改, 每一本書都要帶 id
+	@PutMapping("/batch")
+	public ResponseEntity<ApiResponse<List<BatchResult>>> updateBooks(@RequestBody List<Book> books) {
+		if (books == null || books.isEmpty()) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請提供書籍資料"));
 		}
+		return ResponseEntity.ok(ApiResponse.success("批次修改完成", bookService.updateBooks(books)));
 	}
 
-	@PutMapping("/{id}") // 修改 路徑會知道是要修改{id}這一筆,寫在路徑看起來會比較直接
-	public ResponseEntity<ApiResponse<Book>> updateBook(@PathVariable("id") Integer id, @RequestBody Book book) {
-		try {
-			bookService.updateBook(id, book);
-			return ResponseEntity.ok(ApiResponse.success("修改成功", book));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+	// 批次刪除, body 為 id 陣列, 例如 [1, 2, 3]
+	@DeleteMapping("/batch")
+	public ResponseEntity<ApiResponse<List<BatchResult>>> deleteBooks(@RequestBody List<Integer> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return ResponseEntity.badRequest().body(ApiResponse.error("請提供書籍 id"));
 		}
+		return ResponseEntity.ok(ApiResponse.success("批次刪除完成", bookService.deleteBooks(ids)));
+	}
+
+	@DeleteMapping("/{id}") // 根據id來刪除
+	public ResponseEntity<ApiResponse<String>> deletedBook(@PathVariable("id") Integer id) throws BookException {
+		bookService.deleteBook(id);
+		return ResponseEntity.ok(ApiResponse.success("刪除成功", ""));
+	}
+
+	@PutMapping("/{id}") // 修改 路徑會知道是要修改{id}這一筆,寫在路徑看起來會比較直接
+	public ResponseEntity<ApiResponse<Book>> updateBook(@PathVariable("id") Integer id, @RequestBody Book book)
+			throws BookException {
+		bookService.updateBook(id, book);
+		return ResponseEntity.ok(ApiResponse.success("修改成功", book));
 	}
 
 	// PUT 是完整修改(整筆更新)，PATCH 是部分更新
 	// @PathVariable Integer id(路徑資料), @RequestBody Book book(要傳進去所有的json檔案)
 	// 部分修改 name 與 price
+	// 樂觀鎖: 帶 If-Match: "book-{id}-{version}" (GET /book/{id} 回傳的 ETag) 或 body 帶 version,
+	// 版本不符回 409, 前端要重新讀取後再修改; 兩者都沒帶則不檢查版本
 	@PatchMapping("/{id}")
-	public ResponseEntity<ApiResponse<Book>> updateBookNameAndPrice(@PathVariable Integer id, @RequestBody Book book) {
-		try {
-			bookService.updateBookNameAndPrice(id, book.getName(), book.getPrice());
-			return ResponseEntity.ok(ApiResponse.success("修改書名與價格成功", book));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
-		}
+	public ResponseEntity<ApiResponse<Book>> updateBookNameAndPrice(@PathVariable Integer id, @RequestBody Book book,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) throws BookException {
+		Book updated = bookService.updateBookNameAndPrice(id, book.getName(), book.getPrice(),
+				expectedVersion(ifMatch, book));
+		return ResponseEntity.ok().eTag(etagOf(updated)).body(ApiResponse.success("修改書名與價格成功", updated));
 	}
 
 	// 部分修改 price,還是存成JSON,只是是這樣處理
 	@PatchMapping("/price/{id}")
-	public ResponseEntity<ApiResponse<Book>> updateBookPrice(@PathVariable Integer id, @RequestBody Book book) {
-		try {
-			bookService.updateBookPrice(id, book.getPrice());
-			return ResponseEntity.ok(ApiResponse.success("修改價格成功", book));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
-		}
+	public ResponseEntity<ApiResponse<Book>> updateBookPrice(@PathVariable Integer id, @RequestBody Book book,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) throws BookException {
+		Book updated = bookService.updateBookPrice(id, book.getPrice(), expectedVersion(ifMatch, book));
+		return ResponseEntity.ok().eTag(etagOf(updated)).body(ApiResponse.success("修改價格成功", updated));
 	}
 
 	// 部分修改 name
 	@PatchMapping("/name/{id}")
-	public ResponseEntity<ApiResponse<Book>> updateBookName(@PathVariable Integer id, @RequestBody Book book) {
+	public ResponseEntity<ApiResponse<Book>> updateBookName(@PathVariable Integer id, @RequestBody Book book,
+			@RequestHeader(value = "If-Match", required = false) String ifMatch) throws BookException {
+		Book updated = bookService.updateBookName(id, book.getName(), expectedVersion(ifMatch, book));
+		return ResponseEntity.ok().eTag(etagOf(updated)).body(ApiResponse.success("修改書名成功", updated));
+	}
+
+	// 單筆書籍的 ETag: "book-{id}-{version}"
+	private static String etagOf(Book book) {
+		return "\"book-" + book.getId() + "-" + book.getVersion() + "\"";
+	}
+
+	// 預期版本: 優先用 If-Match 標頭, 沒有再用 body 的 version; If-Match 格式不對時回傳 -1(一定不符)
+	private static Integer expectedVersion(String ifMatch, Book book) {
+		if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+			return book.getVersion();
+		}
+		String tag = ifMatch.trim().replace("W/", "").replace("\"", "");
 		try {
-			bookService.updateBookName(id, book.getName());
-			return ResponseEntity.ok(ApiResponse.success("修改書名成功", book));
-		} catch (BookException e) {
-			return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+			return Integer.valueOf(tag.substring(tag.lastIndexOf('-') + 1));
+		} catch (NumberFormatException e) {
+			return -1;
 		}
 	}
 
@@ -3,6 +3,7 @@ package com.example.demo.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,10 +12,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.example.demo.exception.BookException;
 import com.example.demo.model.Book;
+import com.example.demo.response.DataTablesResponse;
 import com.example.demo.service.BookService;
+import com.example.demo.view.BookRowStream;
 
 @Controller
 @RequestMapping("/ssr/book")
@@ -23,14 +28,53 @@ public class SSRBookController {
 	@Autowired
 	private BookService bookService;
 
-	// 查詢所有書籍
+	private static final int MAX_PAGE_SIZE = 500; // 每頁筆數上限
+
+	// 串流模式每寫幾筆送出一次
+	@Value("${book.ssr.stream.flush-rows:200}")
+	private int streamFlushRows;
+
+	// DataTables 欄位順序(對應 book-list.jsp 的 columns), order[0][column] 傳來的是這裡的 index
+	private static final String[] DATA_TABLES_COLUMNS = { "id", "name", "price", "amount", "pub" };
+
+	// 書籍列表頁: 只渲染表格外框, 資料由 DataTables 透過 /ssr/book/data 分頁取得
 	@GetMapping
-	public String findAllBooks(Model model) {
-		List<Book> books = bookService.findAllBooks();
-		model.addAttribute("books", books); // 將要傳遞給 jsp 的資料放入 Model 容器中
+	public String findAllBooks() {
 		return "book-list"; // 對應到 /WEB-INF/view/book-list.jsp
 	}
 
+	// 書籍列表頁(串流模式): 整張表在伺服器端渲染, 表格內容邊從資料庫讀邊分批送出, 不用等全部查完
+	@GetMapping("/stream")
+	public String streamAllBooks(Model model) {
+		model.addAttribute("rows", new BookRowStream(bookService, streamFlushRows));
+		return "book-list-stream"; // 對應到 /WEB-INF/view/book-list-stream.jsp
+	}
+
+	// DataTables 伺服器端處理, 每次翻頁/排序/搜尋都會呼叫, 分頁、排序、過濾都在 SQL 完成
+	// 參數: draw, start(從第幾筆開始), length(每頁筆數), search[value](搜尋字), order[0][column], order[0][dir],
+	// columns[4][search][value](出刊欄位的篩選: true/false, 空字串代表不篩選)
+	@GetMapping("/data")
+	@ResponseBody
+	public DataTablesResponse<Book> findBooksForDataTables(@RequestParam(defaultValue = "0") int draw,
+			@RequestParam(defaultValue = "0") int start, @RequestParam(defaultValue = "10") int length,
+			@RequestParam(name = "search[value]", required = false) String keyword,
+			@RequestParam(name = "columns[4][search][value]", required = false) String pubFilter,
+			@RequestParam(name = "order[0][column]", defaultValue = "0") int orderColumn,
+			@RequestParam(name = "order[0][dir]", defaultValue = "asc") String orderDir) {
+		// length = -1 代表「全部」, 一樣套用每頁上限
+		int pageSize = length <= 0 ? MAX_PAGE_SIZE : Math.min(length, MAX_PAGE_SIZE);
+		String sortColumn = orderColumn >= 0 && orderColumn < DATA_TABLES_COLUMNS.length
+				? DATA_TABLES_COLUMNS[orderColumn]
+				: "id";
+		Boolean pub = pubFilter == null || pubFilter.isBlank() ? null : Boolean.valueOf(pubFilter);
+		List<Book> books = bookService.findBooks(keyword, pub, sortColumn, !"desc".equalsIgnoreCase(orderDir),
+				Math.max(start, 0), pageSize);
+		long recordsTotal = bookService.countBooks(null, null);
+		long recordsFiltered = (keyword == null || keyword.isBlank()) && pub == null ? recordsTotal
+				: bookService.countBooks(keyword, pub);
+		return new DataTablesResponse<>(draw, recordsTotal, recordsFiltered, books);
+	}
+
 	// 新增書籍 //model.addAttribute(...) 把資料放進去，讓 JSP 頁面可以讀取這些資料顯示在畫面上。
 	@PostMapping("/add")
 	public String addBook(Book book, Model model) {
@@ -0,0 +1,15 @@
+package com.example.demo.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// 標在 repository 的唯讀方法上: 開啟讀寫分離 (book.datasource.replica.enabled=true) 時改從 replica 讀取
+// 注意: 只有透過 Spring 代理呼叫才有效, 同一個類別內部互相呼叫不會切換(仍走 primary)
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
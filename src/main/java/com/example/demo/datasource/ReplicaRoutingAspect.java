@@ -0,0 +1,71 @@
+package com.example.demo.datasource;
+
+import java.time.Duration;
+import java.util.Collection;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// 讀寫分離的切換點
+// - @ReplicaRead 方法: 執行期間標記為可走 replica
+// - 其他 BookRepositoryJdbcImpl 方法(寫入): 結束後標記 read-your-writes
+// 另外記住 sticky-window 內被寫過的書籍 id, 之後任何人(包含快取重新載入)查這幾本書都走 primary,
+// 避免 replica 還沒同步時把舊資料讀回去放進快取
+@Aspect
+@Component
+@ConditionalOnProperty(name = "book.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingAspect {
+
+	private final Duration stickyWindow;
+	private final Cache<Integer, Boolean> recentWrites;
+
+	public ReplicaRoutingAspect(@Value("${book.datasource.replica.sticky-window:5s}") Duration stickyWindow) {
+		this.stickyWindow = stickyWindow;
+		this.recentWrites = Caffeine.newBuilder().expireAfterWrite(stickyWindow).maximumSize(100_000).build();
+	}
+
+	@Around("@annotation(com.example.demo.datasource.ReplicaRead)")
+	public Object routeRead(ProceedingJoinPoint pjp) throws Throwable {
+		Object[] args = pjp.getArgs();
+		if (args.length > 0 && args[0] instanceof Integer id && recentWrites.getIfPresent(id) != null) {
+			return pjp.proceed(); // 這本書剛被寫過, 走 primary
+		}
+		Boolean previous = ReplicaRoutingContext.enterReplicaRead();
+		try {
+			return pjp.proceed();
+		} finally {
+			ReplicaRoutingContext.exitReplicaRead(previous);
+		}
+	}
+
+	// 成功或失敗都標記 (失敗的批次可能有部分已經寫入)
+	@After("execution(public * com.example.demo.repository.BookRepositoryJdbcImpl.*(..))"
+			+ " && !@annotation(com.example.demo.datasource.ReplicaRead)")
+	public void markWrite(JoinPoint joinPoint) {
+		for (Object arg : joinPoint.getArgs()) {
+			remember(arg);
+		}
+		ReplicaRoutingContext.markWrite(stickyWindow);
+	}
+
+	// 從參數找出被寫入的書籍 id: id 本身、Book (addBook/addBooks 會把資料庫產生的 id 設回 book)、或它們的清單
+	private void remember(Object arg) {
+		if (arg instanceof Integer id) {
+			recentWrites.put(id, Boolean.TRUE);
+		} else if (arg instanceof Book book && book.getId() != null) {
+			recentWrites.put(book.getId(), Boolean.TRUE);
+		} else if (arg instanceof Collection<?> collection) {
+			collection.forEach(this::remember);
+		}
+	}
+}
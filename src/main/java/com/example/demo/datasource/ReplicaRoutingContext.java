@@ -0,0 +1,105 @@
+package com.example.demo.datasource;
+
+import java.time.Duration;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// 讀寫分離的執行緒狀態
+// 1. 目前是否在 @ReplicaRead 方法中 (ThreadLocal, 由 ReplicaRoutingAspect 設定)
+// 2. read-your-writes: 同一個請求寫過資料後, 之後的讀取都走 primary;
+//    並在回應中設 cookie, 同一個前端在 sticky-window 內的後續請求也走 primary (replica 可能還沒同步)
+public final class ReplicaRoutingContext {
+
+	public static final String STICKY_COOKIE = "book-primary-until";
+
+	private static final String WROTE_ATTRIBUTE = ReplicaRoutingContext.class.getName() + ".wrote";
+	private static final String PINNED_ATTRIBUTE = ReplicaRoutingContext.class.getName() + ".pinned";
+
+	private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+	private ReplicaRoutingContext() {
+	}
+
+	static boolean isReplicaRead() {
+		return REPLICA_READ.get() != null;
+	}
+
+	// 進入唯讀方法, 回傳之前的狀態給 exit 還原(巢狀呼叫時不會提早清掉)
+	static Boolean enterReplicaRead() {
+		Boolean previous = REPLICA_READ.get();
+		REPLICA_READ.set(Boolean.TRUE);
+		return previous;
+	}
+
+	static void exitReplicaRead(Boolean previous) {
+		if (previous == null) {
+			REPLICA_READ.remove();
+		} else {
+			REPLICA_READ.set(previous);
+		}
+	}
+
+	// 寫入後呼叫: 標記這個請求, 並設定 sticky cookie
+	static void markWrite(Duration stickyWindow) {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null || attributes.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+			return;
+		}
+		attributes.setAttribute(WROTE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+		if (attributes instanceof ServletRequestAttributes servletAttributes) {
+			HttpServletResponse response = servletAttributes.getResponse();
+			if (response != null && !response.isCommitted()) {
+				long until = System.currentTimeMillis() + stickyWindow.toMillis();
+				Cookie cookie = new Cookie(STICKY_COOKIE, Long.toString(until));
+				cookie.setPath("/");
+				cookie.setHttpOnly(true);
+				cookie.setMaxAge((int) Math.max(1, stickyWindow.toSeconds() + 1));
+				response.addCookie(cookie);
+			}
+		}
+	}
+
+	// 這次讀取是否一定要走 primary (同一請求寫過, 或前端帶著還沒過期的 sticky cookie)
+	public static boolean isPinnedToPrimary() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes == null) {
+			return false; // 非請求執行緒 (排程、StreamingResponseBody 等)
+		}
+		if (attributes.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+			return true;
+		}
+		Object pinned = attributes.getAttribute(PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (pinned == null) { // cookie 每個請求只解析一次
+			pinned = hasStickyCookie(attributes);
+			attributes.setAttribute(PINNED_ATTRIBUTE, pinned, RequestAttributes.SCOPE_REQUEST);
+		}
+		return (Boolean) pinned;
+	}
+
+	private static boolean hasStickyCookie(RequestAttributes attributes) {
+		if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+			return false;
+		}
+		HttpServletRequest request = servletAttributes.getRequest();
+		Cookie[] cookies = request.getCookies();
+		if (cookies == null) {
+			return false;
+		}
+		for (Cookie cookie : cookies) {
+			if (STICKY_COOKIE.equals(cookie.getName())) {
+				try {
+					return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,195 @@
+package com.example.demo.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 讀寫分離的 DataSource: @ReplicaRead 方法從健康的 replica 拿連線, 其他一律走 primary
+// - 挑選方式: round-robin 輪流, 或 least-loaded 挑使用中連線最少的
+// - 健康檢查: 定期驗證連線(與複寫延遲), 失敗或延遲過大就暫時移出, 恢復後自動加回
+// - 拿 replica 連線失敗時立刻標記為不健康, 這次改走 primary, 請求不會因為 replica 掛掉而失敗
+// JdbcTemplate 每次執行 SQL 才拿連線(沒有交易), 所以拿連線的當下就能決定要走哪一邊
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	public enum Strategy {
+		ROUND_ROBIN, LEAST_LOADED
+	}
+
+	private final DataSource primary;
+	private final List<Replica> replicas;
+	private final Strategy strategy;
+	private final String lagQuery; // 查詢複寫延遲(秒)的 SQL, 空白則只檢查連線
+	private final long maxLagSeconds;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService healthChecker;
+	private final Counter primaryReads;
+	private final Counter replicaReads;
+
+	public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaDataSources, Strategy strategy,
+			Duration healthCheckInterval, String lagQuery, Duration maxLag, MeterRegistry registry) {
+		this.primary = primary;
+		this.replicas = replicaDataSources.stream().map(Replica::new).toList();
+		this.strategy = strategy;
+		this.lagQuery = lagQuery == null || lagQuery.isBlank() ? null : lagQuery;
+		this.maxLagSeconds = maxLag.toSeconds();
+		this.primaryReads = Counter.builder("book.datasource.reads").tag("target", "primary")
+				.description("唯讀查詢實際使用的資料庫").register(registry);
+		this.replicaReads = Counter.builder("book.datasource.reads").tag("target", "replica")
+				.description("唯讀查詢實際使用的資料庫").register(registry);
+		for (Replica replica : replicas) {
+			Gauge.builder("book.datasource.replica.up", replica, r -> r.healthy ? 1 : 0)
+					.description("replica 是否健康(1=使用中, 0=已移出)").tag("replica", replica.name).register(registry);
+		}
+		this.healthChecker = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("book-replica-health").daemon().factory());
+		healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, healthCheckInterval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (!ReplicaRoutingContext.isReplicaRead()) {
+			return primary.getConnection(); // 寫入
+		}
+		// 需要讀到自己剛寫的資料時不走 replica
+		Replica replica = ReplicaRoutingContext.isPinnedToPrimary() ? null : choose();
+		if (replica != null) {
+			try {
+				Connection connection = replica.dataSource.getConnection();
+				replicaReads.increment();
+				return connection;
+			} catch (SQLException e) {
+				replica.markDown("拿不到連線: " + e.getMessage());
+			}
+		}
+		primaryReads.increment(); // read-your-writes, 或沒有健康的 replica, 退回 primary
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return primary.getConnection(username, password);
+	}
+
+	private Replica choose() {
+		int size = replicas.size();
+		if (strategy == Strategy.LEAST_LOADED) {
+			Replica best = null;
+			int bestLoad = Integer.MAX_VALUE;
+			for (Replica replica : replicas) {
+				int load;
+				if (replica.healthy && (load = replica.load()) < bestLoad) {
+					best = replica;
+					bestLoad = load;
+				}
+			}
+			return best;
+		}
+		int start = Math.floorMod(next.getAndIncrement(), size);
+		for (int i = 0; i < size; i++) { // 從下一個開始找第一個健康的
+			Replica replica = replicas.get((start + i) % size);
+			if (replica.healthy) {
+				return replica;
+			}
+		}
+		return null;
+	}
+
+	private void checkReplicas() {
+		for (Replica replica : replicas) {
+			try (Connection connection = replica.dataSource.getConnection()) {
+				if (!connection.isValid(2)) {
+					replica.markDown("連線驗證失敗");
+					continue;
+				}
+				if (lagQuery != null) {
+					Long lag = queryLag(connection);
+					if (lag == null || lag > maxLagSeconds) {
+						replica.markDown(lag == null ? "複寫未執行" : "複寫延遲 " + lag + " 秒");
+						continue;
+					}
+				}
+				replica.markUp();
+			} catch (SQLException | RuntimeException e) {
+				replica.markDown("健康檢查失敗: " + e.getMessage());
+			}
+		}
+	}
+
+	// MySQL 可用 SHOW REPLICA STATUS (讀 Seconds_Behind_Source 欄位), 或任何第一欄回傳延遲秒數的查詢
+	private Long queryLag(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(lagQuery)) {
+			if (!rs.next()) {
+				return null;
+			}
+			int column;
+			try {
+				column = rs.findColumn("Seconds_Behind_Source");
+			} catch (SQLException e) {
+				column = 1;
+			}
+			long lag = rs.getLong(column);
+			return rs.wasNull() ? null : lag;
+		}
+	}
+
+	@Override
+	public void close() {
+		healthChecker.shutdownNow();
+		replicas.forEach(replica -> replica.dataSource.close());
+	}
+
+	// 單一 replica 與它的健康狀態
+	private static final class Replica {
+
+		private final HikariDataSource dataSource;
+		private final String name;
+		private volatile boolean healthy = true;
+
+		Replica(HikariDataSource dataSource) {
+			this.dataSource = dataSource;
+			this.name = dataSource.getPoolName();
+		}
+
+		int load() {
+			HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+			return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+		}
+
+		void markDown(String reason) {
+			if (healthy) {
+				healthy = false;
+				logger.warn("replica {} 移出: {}", name, reason);
+			}
+		}
+
+		void markUp() {
+			if (!healthy) {
+				healthy = true;
+				logger.info("replica {} 恢復使用", name);
+			}
+		}
+	}
+}
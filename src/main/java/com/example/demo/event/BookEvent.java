@@ -0,0 +1,26 @@
+package com.example.demo.event;
+
+import java.time.Instant;
+
+import com.example.demo.model.Book;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 書籍異動事件, 透過 GET /book/events (SSE) 推給前端
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookEvent {
+
+	public enum Type {
+		CREATED, UPDATED, DELETED
+	}
+
+	private long seq; // 事件序號, 從 1 開始遞增, 也是 SSE 的 id (斷線重連時用 Last-Event-ID 帶回來)
+	private Type type; // 新增/修改/刪除
+	private Integer bookId; // 書籍 id
+	private Book book; // 異動後的書籍資料, 刪除時為 null
+	private Instant timestamp; // 事件發生時間
+}
@@ -0,0 +1,305 @@
+package com.example.demo.event;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.model.Book;
+
+import jakarta.annotation.PreDestroy;
+
+// 書籍異動事件匯流排 (單一 JVM 內)
+// 1. 每筆事件有遞增序號, 最近 buffer-size 筆放在環狀緩衝區, 斷線重連時從 Last-Event-ID 之後補送
+// 2. 每個 SSE 訂閱者有自己的有界佇列, 由 sender 執行緒送出 (每個訂閱者同一時間最多一條), 發佈事件的請求不會被慢的訂閱者卡住
+//    寫網路是阻塞的, 前端不讀時 send 會卡到 Tomcat 的寫入逾時 (server.tomcat.connection-timeout) 才失敗,
+//    所以 sender 執行緒用到才建立 (上限 sender-threads), 卡住的訂閱者只佔自己那一條, 其他訂閱者照樣拿得到執行緒;
+//    一次 send 超過 send-timeout 的訂閱者直接移除, 不再排程 (SseEmitter.send 是 synchronized, 虛擬執行緒卡在裡面會佔住載體執行緒, 所以不用)
+// 3. 訂閱者的佇列滿了(太慢)就送 overflow 後斷線, 瀏覽器重連時會帶 Last-Event-ID 從緩衝區補回來
+// 4. 要補的事件已經不在緩衝區時送 reset, 前端要重新 GET /book 一次
+// 5. 鎖只保護序號、環狀緩衝區與訂閱者清單 (都是不會阻塞的操作); 監聽者在鎖外、發佈事件的執行緒上執行,
+//    慢的監聽者不會讓其他請求的寫入排隊, 事件仍依序號順序交給 SSE 訂閱者
+@Component
+public class BookEventBus {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookEventBus.class);
+
+	private static final int DRAIN_BATCH = 64; // 每輪最多送幾筆就換手, 避免一個訂閱者一直佔著 sender 執行緒
+
+	// 以下欄位都受 this 鎖保護
+	private final BookEvent[] ring; // 最近送給訂閱者的事件, 位置 = seq % 長度
+	private long lastSeq; // 最後一個發出的序號
+	private long deliveredSeq; // 已經依序交給訂閱者的最後一個序號, <= lastSeq
+	private final Map<Long, BookEvent> pending = new HashMap<>(); // 監聽者已處理完、等前面序號送出的事件
+
+	private final int subscriberQueueSize;
+	private final int maxSubscribers;
+	private final long emitterTimeout;
+	private final long sendTimeoutNanos;
+
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	private final List<Consumer<BookEvent>> listeners = new CopyOnWriteArrayList<>();
+
+	private final ExecutorService sender;
+	private final ScheduledExecutorService heartbeat;
+
+	public BookEventBus(@Value("${book.events.buffer-size:1024}") int bufferSize,
+			@Value("${book.events.subscriber-queue-size:256}") int subscriberQueueSize,
+			@Value("${book.events.max-subscribers:10000}") int maxSubscribers,
+			@Value("${book.events.sender-threads:64}") int senderThreads,
+			@Value("${book.events.send-timeout:10s}") Duration sendTimeout,
+			@Value("${book.events.timeout:30m}") Duration timeout,
+			@Value("${book.events.heartbeat-interval:15s}") Duration heartbeatInterval) {
+		this.ring = new BookEvent[bufferSize];
+		this.subscriberQueueSize = subscriberQueueSize;
+		this.maxSubscribers = maxSubscribers;
+		this.emitterTimeout = timeout.toMillis();
+		this.sendTimeoutNanos = sendTimeout.toNanos();
+		// 沒有排隊: 有空閒執行緒就用, 沒有就新建, 到上限時丟 RejectedExecutionException, 由 checkSenders 稍後重試
+		this.sender = new ThreadPoolExecutor(0, senderThreads, 30, TimeUnit.SECONDS, new SynchronousQueue<>(),
+				Thread.ofPlatform().name("book-events-", 0).daemon().factory());
+		this.heartbeat = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("book-events-heartbeat").daemon().factory());
+		// 定期送註解行, 讓 proxy 不會因為閒置切斷連線, 也能發現已經離開的訂閱者
+		heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(Subscriber::ping), heartbeatInterval.toMillis(),
+				heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+		heartbeat.scheduleWithFixedDelay(this::checkSenders, 1, 1, TimeUnit.SECONDS);
+	}
+
+	// 發佈事件, 書籍異動成功後由 service 呼叫; book 會複製一份, 之後外面再改也不影響事件內容
+	// 先通知同一個 JVM 內的監聽者 (清快取、更新索引), 再交給 SSE 訂閱者; 前端收到事件回頭查詢時不會拿到舊資料
+	public void publish(BookEvent.Type type, Integer bookId, Book book) {
+		Book snapshot = null;
+		if (book != null) {
+			snapshot = book.copy();
+			snapshot.setId(bookId);
+		}
+		BookEvent event;
+		synchronized (this) {
+			event = new BookEvent(++lastSeq, type, bookId, snapshot, Instant.now());
+		}
+		// 在鎖外通知: 多個請求同時發佈時各自執行監聽者, publish 回傳時這筆事件的監聽者都已處理完
+		try {
+			for (Consumer<BookEvent> listener : listeners) {
+				try {
+					listener.accept(event);
+				} catch (RuntimeException e) {
+					logger.error("書籍事件監聽者處理失敗, seq: {}", event.getSeq(), e);
+				}
+			}
+		} finally {
+			deliver(event);
+		}
+	}
+
+	// 依序號順序交給訂閱者: 前面的序號還在處理監聽者時先放著, 由處理完前一筆的執行緒接著送出
+	private synchronized void deliver(BookEvent event) {
+		pending.put(event.getSeq(), event);
+		for (BookEvent next; (next = pending.remove(deliveredSeq + 1)) != null;) {
+			deliveredSeq = next.getSeq();
+			ring[(int) (next.getSeq() % ring.length)] = next;
+			for (Subscriber subscriber : subscribers) {
+				subscriber.offer(next); // 只放進佇列, 不會在這裡寫網路
+			}
+		}
+	}
+
+	// 同一個 JVM 內的同步監聽者(例如搜尋索引), 在發佈事件的執行緒上執行 (不持有鎖)
+	// 不同請求的事件可能同時通知, 監聽者要能處理並行與先後順序 (例如以 version 判斷新舊)
+	public void addListener(Consumer<BookEvent> listener) {
+		listeners.add(listener);
+	}
+
+	// 已經交給訂閱者的最後一個序號
+	public synchronized long getLastSeq() {
+		return deliveredSeq;
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	// 新增一個 SSE 訂閱者, resumeFrom 為前端最後收到的序號(沒有則只收之後的新事件)
+	// 訂閱者已達上限時回傳 empty
+	public Optional<SseEmitter> subscribe(Long resumeFrom) {
+		SseEmitter emitter = createEmitter(emitterTimeout);
+		Subscriber subscriber;
+		synchronized (this) {
+			// 檢查上限與加入在同一個鎖內, 同時訂閱也不會超過上限
+			if (subscribers.size() >= maxSubscribers) {
+				return Optional.empty();
+			}
+			// 補送與加入訂閱在同一個鎖內, 補送的最後一筆與之後 deliver 送出的新事件之間不會漏也不會重複
+			List<BookEvent> replay = new ArrayList<>();
+			long resetTo = -1;
+			if (resumeFrom != null) {
+				long oldest = Math.max(1, deliveredSeq - ring.length + 1);
+				if (resumeFrom > deliveredSeq || resumeFrom + 1 < oldest) {
+					resetTo = deliveredSeq; // 序號比目前大(伺服器重啟過)或太舊, 已經補不回來
+				} else {
+					for (long seq = resumeFrom + 1; seq <= deliveredSeq; seq++) {
+						replay.add(ring[(int) (seq % ring.length)]);
+					}
+				}
+			}
+			subscriber = new Subscriber(emitter, subscriberQueueSize + replay.size(), resetTo);
+			replay.forEach(subscriber.queue::offer);
+			subscribers.add(subscriber);
+		}
+		emitter.onCompletion(subscriber::close);
+		emitter.onTimeout(subscriber::close);
+		emitter.onError(e -> subscriber.close());
+		subscriber.ping(); // 先送一行註解, 讓回應標頭馬上送出
+		return Optional.of(emitter);
+	}
+
+	// 移除 send 卡住的訂閱者, 並重新排程先前因為執行緒不夠被拒絕的訂閱者
+	private void checkSenders() {
+		long now = System.nanoTime();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.check(now);
+		}
+	}
+
+	// 測試時換成不會真的寫網路的 emitter
+	SseEmitter createEmitter(long timeout) {
+		return new SseEmitter(timeout);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		heartbeat.shutdownNow();
+		sender.shutdownNow();
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+		subscribers.clear();
+	}
+
+	// 單一 SSE 訂閱者: 有界佇列 + 同一時間最多一條 sender 執行緒在送
+	private final class Subscriber {
+
+		private final SseEmitter emitter;
+		private final BlockingQueue<BookEvent> queue;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile long resetTo; // >= 0 代表要先送 reset
+		private volatile boolean pingPending;
+		private volatile boolean overflowed;
+		private volatile boolean closed;
+		private volatile long sendStartedNanos; // 0 代表目前沒有在送
+
+		Subscriber(SseEmitter emitter, int capacity, long resetTo) {
+			this.emitter = emitter;
+			this.queue = new ArrayBlockingQueue<>(capacity);
+			this.resetTo = resetTo;
+		}
+
+		void offer(BookEvent event) {
+			if (closed) {
+				return;
+			}
+			if (!queue.offer(event)) {
+				overflowed = true;
+			}
+			schedule();
+		}
+
+		void ping() {
+			pingPending = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (!closed && draining.compareAndSet(false, true)) {
+				try {
+					sender.execute(this::drain);
+				} catch (RuntimeException e) { // 執行緒已達上限或關閉中, 由 checkSenders 稍後重試
+					draining.set(false);
+				}
+			}
+		}
+
+		void check(long now) {
+			long started = sendStartedNanos;
+			if (started != 0 && now - started > sendTimeoutNanos) {
+				logger.warn("SSE 訂閱者超過 {} ms 沒有讀取, 移除", TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+				close(); // 卡住的執行緒要等 Tomcat 的寫入逾時才會回來, 這裡只是不再排程
+				return;
+			}
+			if (!queue.isEmpty() || overflowed || pingPending) {
+				schedule();
+			}
+		}
+
+		private void send(SseEmitter.SseEventBuilder event) throws IOException {
+			sendStartedNanos = System.nanoTime() | 1; // 不會是 0
+			try {
+				emitter.send(event);
+			} finally {
+				sendStartedNanos = 0;
+			}
+		}
+
+		private void drain() {
+			try {
+				if (overflowed) {
+					queue.clear();
+					send(SseEmitter.event().name("overflow").data("too slow, reconnect with Last-Event-ID"));
+					emitter.complete();
+					close();
+					return;
+				}
+				if (resetTo >= 0) {
+					send(SseEmitter.event().id(Long.toString(resetTo)).name("reset").data(resetTo));
+					resetTo = -1;
+				}
+				if (pingPending) {
+					pingPending = false;
+					send(SseEmitter.event().comment("ping"));
+				}
+				for (int i = 0; i < DRAIN_BATCH; i++) {
+					BookEvent event = queue.poll();
+					if (event == null) {
+						break;
+					}
+					send(SseEmitter.event().id(Long.toString(event.getSeq())).name(event.getType().name())
+							.data(event, MediaType.APPLICATION_JSON));
+				}
+			} catch (IOException | IllegalStateException e) {
+				close(); // 前端已經離開
+				return;
+			} finally {
+				draining.set(false);
+			}
+			// 放掉 draining 之後再檢查一次, 避免剛好在這之間放進來的事件沒人送
+			if (!queue.isEmpty() || overflowed || pingPending) {
+				schedule();
+			}
+		}
+
+		void close() {
+			closed = true;
+			subscribers.remove(this);
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package com.example.demo.exception;
+
+// 版本衝突: 要修改的書在這段期間已經被別人改過(樂觀鎖檢查失敗), 前端應重新讀取後再送出
+public class BookConflictException extends BookException {
+	public BookConflictException(String message) {
+		super(message);
+	}
+}
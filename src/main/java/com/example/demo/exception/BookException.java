@@ -1,8 +1,11 @@
 package com.example.demo.exception;
 
+// 書籍的業務錯誤 (查無此書、新增/修改失敗、版本衝突...), 是預期中會發生的情況, 不是程式錯誤
+// 不記錄 stack trace (writableStackTrace = false): 建立例外的成本主要就在抓 stack trace,
+// 掃描隨機 id 的請求每次查無此書都要抓一次, 而這些 stack trace 從來不會被看
 public class BookException extends Exception {
 	public BookException(String message) {
-		super(message);
+		super(message, null, false, false);
 		// 自訂一個bookexception
 	}
-}
\ No newline at end of file
+}
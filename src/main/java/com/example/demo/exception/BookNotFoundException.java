@@ -0,0 +1,22 @@
+package com.example.demo.exception;
+
+// 查無此書 (GlobalExceptionHandler 回 404)
+// 訊息在呼叫 getMessage() 時才組字串, 沒有人讀訊息就不用花這個成本
+public class BookNotFoundException extends BookException {
+
+	private final Integer id;
+
+	public BookNotFoundException(Integer id) {
+		super(null);
+		this.id = id;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public String getMessage() {
+		return "id: " + id + ", 查無此書";
+	}
+}
@@ -1,33 +1,111 @@
 package com.example.demo.exception;
 
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import com.example.demo.bmi.BulkBmiFormatException;
 import com.example.demo.response.ApiResponse;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 // 利用 @ControllerAdvice 的特性來處理全局錯誤
+// 依例外類別分派 (Spring 會找最接近的 @ExceptionHandler), 不再比對類別名稱字串:
+// 查無此書 404, 版本衝突 409, 其他書籍錯誤 400; 常見的參數錯誤/查無網頁回傳事先建好的回應, 不用每次組訊息
+// 預期之外的例外回 500 與固定的訊息, 詳細內容只寫在伺服器日誌, 不回給前端
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+	private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+	private static final ResponseEntity<ApiResponse<Object>> PARAMETER_ERROR = ResponseEntity.badRequest()
+			.body(ApiResponse.error("參數錯誤(MethodArgumentTypeMismatchException)"));
+	private static final ResponseEntity<ApiResponse<Object>> PAGE_NOT_FOUND = ResponseEntity.status(HttpStatus.NOT_FOUND)
+			.body(ApiResponse.error("查無網頁(NoResourceFoundException)"));
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	// 計數器的 tag: 同一個例外類別可能有不同的狀態碼 (例如各種 ErrorResponse)
+	private record CounterKey(Class<?> type, int status) {
+	}
+
+	// 依例外類別與狀態碼快取計數器 (指標名稱: book.errors.handled)
+	private final ConcurrentHashMap<CounterKey, Counter> errorCounters = new ConcurrentHashMap<>();
+
+	@ExceptionHandler(BookNotFoundException.class)
+	public ResponseEntity<ApiResponse<Object>> handleBookNotFound(BookNotFoundException e) {
+		count(e, HttpStatus.NOT_FOUND);
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+	}
+
+	@ExceptionHandler(BookConflictException.class)
+	public ResponseEntity<ApiResponse<Object>> handleBookConflict(BookConflictException e) {
+		count(e, HttpStatus.CONFLICT);
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error(e.getMessage()));
+	}
+
+	@ExceptionHandler(BookException.class)
+	public ResponseEntity<ApiResponse<Object>> handleBookException(BookException e) {
+		count(e, HttpStatus.BAD_REQUEST);
+		return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+	}
+
+	// 大量 BMI 的輸入格式錯誤 (單列過長、二進位長度不對)
+	// 串流回應已經設好 text/csv 或 octet-stream, 要明確改回 JSON 才寫得出錯誤訊息
+	@ExceptionHandler(BulkBmiFormatException.class)
+	public ResponseEntity<ApiResponse<Object>> handleBulkBmiFormat(BulkBmiFormatException e) {
+		count(e, HttpStatus.BAD_REQUEST);
+		return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+				.body(ApiResponse.error(e.getMessage()));
+	}
+
+	@ExceptionHandler(MethodArgumentTypeMismatchException.class)
+	public ResponseEntity<ApiResponse<Object>> handleTypeMismatch(MethodArgumentTypeMismatchException e) {
+		count(e, HttpStatus.BAD_REQUEST);
+		return PARAMETER_ERROR;
+	}
+
+	@ExceptionHandler(NoResourceFoundException.class)
+	public ResponseEntity<ApiResponse<Object>> handleNoResource(NoResourceFoundException e) {
+		count(e, HttpStatus.NOT_FOUND);
+		return PAGE_NOT_FOUND;
+	}
+
 	// 當系統發生例外錯誤,寫Exception.class就所有Exception子類別發生的錯誤,都會來這邊處理
+	// Spring MVC 本身的例外 (ErrorResponse) 是請求的問題, 用它自己的狀態碼與訊息, 例如 405
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<ApiResponse<Object>> handleException(Exception e) {
-		// MethodArgumentTypeMismatchException,特別抓起來修改
-		// NoResourceFoundException,特別抓出來修改
-		String errorMessage = e.toString();
-		// e.getClass() 這是 Java 所有物件繼承自 Object 類別的方法，會傳回該物件的 Class 類別資訊。
-		// .getSimpleName()是 Class 類別中的方法，會傳回該類別的「簡單名稱」（不含 package 路徑）。
-
-		switch (e.getClass().getSimpleName()) {
-		case "MethodArgumentTypeMismatchException":
-			errorMessage = "參數錯誤(" + e.getClass().getSimpleName() + ")";
-			break;
-		case "NoResourceFoundException":
-			errorMessage = "查無網頁(" + e.getClass().getSimpleName() + ")";
-			break;
+		if (e instanceof ErrorResponse errorResponse) {
+			HttpStatusCode status = errorResponse.getStatusCode();
+			count(e, status);
+			return ResponseEntity.status(status).body(ApiResponse.error(e.getMessage()));
 		}
-		ApiResponse<Object> apiResponse = ApiResponse.error(errorMessage);
-		return ResponseEntity.badRequest().body(apiResponse);
+		// 其他都是伺服器的錯: 例外內容可能有 SQL、類別名稱等內部資訊, 只記在日誌
+		logger.error("未預期的錯誤", e);
+		count(e, HttpStatus.INTERNAL_SERVER_ERROR);
+		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON)
+				.body(ApiResponse.error("系統錯誤, 請稍後再試"));
+	}
+
+	private void count(Exception e, HttpStatusCode status) {
+		errorCounters.computeIfAbsent(new CounterKey(e.getClass(), status.value()),
+				key -> Counter.builder("book.errors.handled")
+						.description("GlobalExceptionHandler 處理的錯誤次數")
+						.tag("exception", key.type().getSimpleName())
+						.tag("status", Integer.toString(key.status()))
+						.register(meterRegistry)).increment();
 	}
-}
\ No newline at end of file
+}
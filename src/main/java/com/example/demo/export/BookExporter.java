@@ -0,0 +1,67 @@
+package com.example.demo.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import com.example.demo.model.Book;
+import com.example.demo.service.BookService;
+
+// 匯出全部書籍: 從資料庫串流 (只能往前讀的 cursor) 一筆一筆寫出, 記憶體用量與資料筆數無關
+// 標題列寫完馬上 flush, 前端很快就收到第一個 byte; 之後每 FLUSH_EVERY 筆送出一次
+// 檔案結尾 (xlsx 的 zip 目錄、gzip 的結尾) 只在全部讀完後才寫; 讀到一半失敗就直接丟出例外,
+// 前端下載到的是不完整、打不開的檔案, 不會拿到格式正確但少了資料的檔案
+public final class BookExporter {
+
+	public static final String[] HEADERS = { "ID", "書名", "價格", "數量", "出刊" };
+
+	private static final int FLUSH_EVERY = 1000;
+
+	private BookExporter() {
+	}
+
+	public static void writeCsv(BookService bookService, OutputStream out) throws IOException {
+		try (CsvWriter csv = new CsvWriter(out)) {
+			csv.writeRow(HEADERS).flush();
+			int[] rows = { 0 };
+			bookService.streamAllBooks(book -> {
+				try {
+					csv.writeNumber(book.getId()).writeString(book.getName()).writeNumber(book.getPrice())
+							.writeNumber(book.getAmount()).writeBoolean(book.getPub()).endRow();
+					if (++rows[0] % FLUSH_EVERY == 0) {
+						csv.flush();
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e); // lambda 裡不能丟 checked exception
+				}
+			});
+		}
+	}
+
+	// gzip 壓縮的 CSV; 不 close, 回應的串流由 Spring 關閉
+	public static void writeGzipCsv(BookService bookService, OutputStream out) throws IOException {
+		// syncFlush = true: flush 時把已壓縮的資料送出, 前端才能邊下載邊收到
+		GZIPOutputStream gzip = new GZIPOutputStream(out, 8192, true);
+		writeCsv(bookService, gzip);
+		gzip.finish();
+	}
+
+	public static void writeXlsx(BookService bookService, OutputStream out) throws IOException {
+		XlsxStreamWriter xlsx = new XlsxStreamWriter(out, "書籍");
+		xlsx.writeRow(HEADERS).flush();
+		int[] rows = { 0 };
+		bookService.streamAllBooks(book -> {
+			try {
+				xlsx.writeNumber(book.getId()).writeString(book.getName()).writeNumber(book.getPrice())
+						.writeNumber(book.getAmount()).writeBoolean(book.getPub()).endRow();
+				if (++rows[0] % FLUSH_EVERY == 0) {
+					xlsx.flush();
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		xlsx.finish();
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.demo.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// 逐列寫出 CSV (UTF-8, 開頭加 BOM 讓 Excel 正確顯示中文)
+// 欄位含逗號、引號或換行時加上引號; 以 = + - @ 開頭的文字前面加 ' , 避免在 Excel 中被當成公式執行 (CSV injection)
+public class CsvWriter implements Closeable, Flushable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Writer writer;
+	private boolean firstField = true;
+
+	public CsvWriter(OutputStream out) throws IOException {
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+		writer.write('\uFEFF');
+	}
+
+	public CsvWriter writeRow(String... values) throws IOException {
+		for (String value : values) {
+			writeString(value);
+		}
+		return endRow();
+	}
+
+	public CsvWriter writeString(String value) throws IOException {
+		separator();
+		if (value == null || value.isEmpty()) {
+			return this;
+		}
+		char first = value.charAt(0);
+		boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+		boolean quote = formula;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			writer.write(value);
+			return this;
+		}
+		writer.write('"');
+		if (formula) {
+			writer.write('\'');
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				writer.write('"'); // 引號要寫兩次
+			}
+			writer.write(c);
+		}
+		writer.write('"');
+		return this;
+	}
+
+	public CsvWriter writeNumber(Number value) throws IOException {
+		separator();
+		if (value != null) {
+			writer.write(value.toString());
+		}
+		return this;
+	}
+
+	public CsvWriter writeBoolean(Boolean value) throws IOException {
+		separator();
+		if (value != null) {
+			writer.write(value ? "true" : "false");
+		}
+		return this;
+	}
+
+	public CsvWriter endRow() throws IOException {
+		writer.write("\r\n");
+		firstField = true;
+		return this;
+	}
+
+	private void separator() throws IOException {
+		if (!firstField) {
+			writer.write(',');
+		}
+		firstField = false;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	// 只 flush, 不會關閉傳進來的 OutputStream (由呼叫端負責)
+	@Override
+	public void close() throws IOException {
+		writer.flush();
+	}
+}
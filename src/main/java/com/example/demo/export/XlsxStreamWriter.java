@@ -0,0 +1,177 @@
+package com.example.demo.export;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// 逐列寫出 Excel (.xlsx), 不需要 Apache POI, 也不會把整張工作表放在記憶體
+// xlsx 就是一個 zip 檔: 先寫固定的幾個設定檔, 最後才是邊寫邊壓縮的 sheet1.xml
+// 文字用 inline string (不用共用字串表), 所以每一列寫完就可以丟掉
+// 全部寫完才呼叫 finish() 寫出結尾 (不是 Closeable, 不會因為 try-with-resources 在失敗時也補上結尾)
+// 中途失敗就不呼叫, 前端拿到的是打不開的檔案, 而不是看起來正常但少了資料的檔案
+public class XlsxStreamWriter implements Flushable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final String CONTENT_TYPES = """
+			<?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+			<Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+			<Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+			<Default Extension="xml" ContentType="application/xml"/>\
+			<Override PartName="/xl/workbook.xml" \
+			ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+			<Override PartName="/xl/worksheets/sheet1.xml" \
+			ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>\
+			</Types>""";
+
+	private static final String ROOT_RELS = """
+			<?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+			<Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+			<Relationship Id="rId1" \
+			Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" \
+			Target="xl/workbook.xml"/>\
+			</Relationships>""";
+
+	private static final String WORKBOOK_RELS = """
+			<?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+			<Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+			<Relationship Id="rId1" \
+			Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" \
+			Target="worksheets/sheet1.xml"/>\
+			</Relationships>""";
+
+	private final ZipOutputStream zip;
+	private final Writer writer;
+	private boolean inRow;
+
+	public XlsxStreamWriter(OutputStream out, String sheetName) throws IOException {
+		zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+		zip.setLevel(Deflater.BEST_SPEED); // 速度優先, 文字資料用最快的等級也能壓得不錯
+		writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+		writeEntry("[Content_Types].xml", CONTENT_TYPES);
+		writeEntry("_rels/.rels", ROOT_RELS);
+		writeEntry("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+		writeEntry("xl/workbook.xml", """
+				<?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+				<workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+				xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">\
+				<sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets>\
+				</workbook>""".formatted(escape(sheetName)));
+		zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+				+ "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+	}
+
+	public XlsxStreamWriter writeRow(String... values) throws IOException {
+		for (String value : values) {
+			writeString(value);
+		}
+		return endRow();
+	}
+
+	public XlsxStreamWriter writeString(String value) throws IOException {
+		startRowIfNeeded();
+		if (value == null) {
+			writer.write("<c/>");
+			return this;
+		}
+		writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+		writer.write(escape(value));
+		writer.write("</t></is></c>");
+		return this;
+	}
+
+	public XlsxStreamWriter writeNumber(Number value) throws IOException {
+		startRowIfNeeded();
+		if (value == null) {
+			writer.write("<c/>");
+			return this;
+		}
+		writer.write("<c><v>");
+		writer.write(value.toString());
+		writer.write("</v></c>");
+		return this;
+	}
+
+	public XlsxStreamWriter writeBoolean(Boolean value) throws IOException {
+		startRowIfNeeded();
+		if (value == null) {
+			writer.write("<c/>");
+			return this;
+		}
+		writer.write(value ? "<c t=\"b\"><v>1</v></c>" : "<c t=\"b\"><v>0</v></c>");
+		return this;
+	}
+
+	public XlsxStreamWriter endRow() throws IOException {
+		startRowIfNeeded();
+		writer.write("</row>");
+		inRow = false;
+		return this;
+	}
+
+	private void startRowIfNeeded() throws IOException {
+		if (!inRow) {
+			writer.write("<row>");
+			inRow = true;
+		}
+	}
+
+	private void writeEntry(String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		writer.write(content);
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	// XML 跳脫, 並移除 XML 不允許的控制字元
+	private static String escape(String value) {
+		StringBuilder sb = null;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			String replacement = switch (c) {
+			case '&' -> "&amp;";
+			case '<' -> "&lt;";
+			case '>' -> "&gt;";
+			case '"' -> "&quot;";
+			default -> c < 0x20 && c != '\t' && c != '\n' && c != '\r' ? "" : null;
+			};
+			if (replacement != null && sb == null) {
+				sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+			}
+			if (sb != null) {
+				if (replacement != null) {
+					sb.append(replacement);
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb == null ? value : sb.toString();
+	}
+
+	// 送出目前已壓縮的資料 (ZipOutputStream 的 deflater 會保留部分資料, 所以只保證送出已壓好的部分)
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+		zip.flush();
+	}
+
+	// 寫完工作表與 zip 結尾; 不會關閉傳進來的 OutputStream (由呼叫端負責, 例如 HTTP 回應由 Spring 關閉)
+	public void finish() throws IOException {
+		if (inRow) {
+			endRow();
+		}
+		writer.write("</sheetData></worksheet>");
+		writer.flush();
+		zip.closeEntry();
+		zip.finish();
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.filter;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// 每個請求記錄一行結構化的存取日誌 (key=value 格式), 寫入 logs/access.log
+// 日誌只放進非同步佇列, 不會讓請求執行緒等檔案 I/O (見 logback-spring.xml 的 ASYNC_ACCESS)
+// 排在 LoadSheddingFilter 前面, 被限流擋下的請求 (429/503) 也會記錄
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+	private static final Logger accessLog = LoggerFactory.getLogger("ACCESS");
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long start = System.nanoTime();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (accessLog.isInfoEnabled()) {
+				accessLog.info("method={} uri={} query={} status={} durationMs={} client={}", request.getMethod(),
+						request.getRequestURI(), request.getQueryString(), response.getStatus(),
+						(System.nanoTime() - start) / 1_000_000, request.getRemoteAddr());
+			}
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.example.demo.filter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.example.demo.ratelimit.AdaptiveConcurrencyLimiter;
+import com.example.demo.ratelimit.TokenBucketRateLimiter;
+import com.example.demo.response.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// 保護 MySQL: 請求進到 controller 之前先檢查
+// 1. 頻率限制: 同一個前端 (book.rate-limit.api-keys 裡的 X-API-Key, 其他都用 IP) 超過該路由的每秒次數與突發量就回 429 + Retry-After
+// 2. 同時處理數限制: 正在處理的請求數超過 AdaptiveConcurrencyLimiter 的上限就回 503, 不讓請求在連線池前面排隊
+//    非同步回應 (匯出、串流) 的名額一直保留到回應結束 (complete/error/timeout), 不是 controller 方法 return 就釋放
+// 被擋下的請求計數: book.requests.shed{reason=rate-limit|concurrency, route}
+// 排在 AccessLogFilter 之後, 被擋下的請求一樣會記在存取日誌
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+	private static final String API_KEY_HEADER = "X-API-Key";
+
+	@Autowired
+	private TokenBucketRateLimiter rateLimiter;
+
+	@Autowired
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${book.rate-limit.enabled:true}")
+	private boolean rateLimitEnabled;
+
+	// 只有設定過的 API key 才各自計算; 前端自己隨便帶的 key 不能用來換到新的額度
+	@Value("${book.rate-limit.api-keys:}")
+	private Set<String> apiKeys;
+
+	@Value("${book.concurrency-limit.enabled:true}")
+	private boolean concurrencyLimitEnabled;
+
+	// 會用到資料庫的路徑才需要限制同時處理數; 長時間連線 (SSE) 不佔資料庫, 排除
+	@Value("${book.concurrency-limit.paths:/book/**,/ssr/**}")
+	private List<String> concurrencyPaths;
+
+	@Value("${book.concurrency-limit.excluded-paths:/book/events}")
+	private List<String> concurrencyExcludedPaths;
+
+	private final AntPathMatcher matcher = new AntPathMatcher();
+	private final ConcurrentHashMap<String, Counter> shedCounters = new ConcurrentHashMap<>();
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		if (rateLimitEnabled) {
+			TokenBucketRateLimiter.Decision decision = rateLimiter.tryAcquire(path, clientOf(request));
+			if (!decision.allowed()) {
+				long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(decision.retryAfterNanos() + 999_999_999));
+				shed(response, "rate-limit", decision.route(), HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+						"請求太頻繁, 請稍後再試");
+				return;
+			}
+		}
+		String route = concurrencyLimitEnabled ? concurrencyRoute(path) : null;
+		if (route == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		if (!concurrencyLimiter.tryAcquire()) {
+			shed(response, "concurrency", route, HttpStatus.SERVICE_UNAVAILABLE, 1, "系統忙碌中, 請稍後再試");
+			return;
+		}
+		boolean async = false;
+		try {
+			filterChain.doFilter(request, response);
+			async = request.isAsyncStarted();
+		} finally {
+			if (async) {
+				// StreamingResponseBody 等非同步回應: controller 已經 return, 但還在讀資料庫寫回應
+				request.getAsyncContext().addListener(new ReleaseOnCompletion());
+			} else {
+				concurrencyLimiter.release();
+			}
+		}
+	}
+
+	// 設定過的 API key 用 API key, 其他用 IP (前面有 proxy 時請設定 server.forward-headers-strategy 讓這裡拿到真正的 IP)
+	private String clientOf(HttpServletRequest request) {
+		String apiKey = request.getHeader(API_KEY_HEADER);
+		return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+	}
+
+	// 非同步回應結束時釋放名額; error/timeout 之後還會再收到 complete, 只釋放一次
+	private class ReleaseOnCompletion implements AsyncListener {
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			release();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			event.getAsyncContext().addListener(this); // 再次 startAsync 時 listener 會被清掉, 要重新註冊
+		}
+
+		private void release() {
+			if (released.compareAndSet(false, true)) {
+				concurrencyLimiter.release();
+			}
+		}
+	}
+
+	private String concurrencyRoute(String path) {
+		for (String excluded : concurrencyExcludedPaths) {
+			if (matcher.match(excluded.trim(), path)) {
+				return null;
+			}
+		}
+		for (String pattern : concurrencyPaths) {
+			if (matcher.match(pattern.trim(), path)) {
+				return pattern.trim();
+			}
+		}
+		return null;
+	}
+
+	private void shed(HttpServletResponse response, String reason, String route, HttpStatus status, long retryAfter,
+			String message) throws IOException {
+		shedCounters.computeIfAbsent(reason + "|" + route, key -> Counter.builder("book.requests.shed")
+				.description("因頻率或同時處理數限制被擋下的請求數")
+				.tag("reason", reason)
+				.tag("route", route)
+				.register(meterRegistry)).increment();
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding("UTF-8");
+		objectMapper.writeValue(response.getOutputStream(), ApiResponse.error(message));
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.demo.importer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 一次 CSV 匯入工作的進度 (GET /book/import/{id} 直接轉成 JSON 回傳)
+// 各執行緒同時更新, 所以計數都用 atomic; 錯誤訊息保留行號最小的 maxErrors 筆, 超過只計數
+public class BookImportJob {
+
+	public enum State {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	// 某一行匯入失敗的原因
+	public record LineError(long line, String message) {
+	}
+
+	private final String id;
+	private final String filename;
+	private final long totalBytes;
+	private final int maxErrors;
+	private final Instant startedAt = Instant.now();
+	private volatile Instant finishedAt;
+	private volatile State state = State.RUNNING;
+	private volatile String message;
+
+	final AtomicLong bytesRead = new AtomicLong();
+	final AtomicLong rowsRead = new AtomicLong(); // 已讀取(解析)的資料筆數
+	final AtomicLong imported = new AtomicLong(); // 已寫入資料庫
+	final AtomicLong failed = new AtomicLong(); // 驗證或寫入失敗
+	private final AtomicInteger errorCount = new AtomicInteger();
+	// 各 worker 的錯誤不是依行號順序到達: 用行號最大的在頂端的 heap, 超過上限就丟掉最大的
+	private final PriorityQueue<LineError> errors = new PriorityQueue<>(
+			Comparator.comparingLong(LineError::line).reversed());
+
+	BookImportJob(String id, String filename, long totalBytes, int maxErrors) {
+		this.id = id;
+		this.filename = filename;
+		this.totalBytes = totalBytes;
+		this.maxErrors = maxErrors;
+	}
+
+	void fail(long line, String message) {
+		failed.incrementAndGet();
+		errorCount.incrementAndGet();
+		synchronized (errors) {
+			errors.add(new LineError(line, message));
+			if (errors.size() > maxErrors) {
+				errors.poll();
+			}
+		}
+	}
+
+	void finish(State state, String message) {
+		this.message = message;
+		this.finishedAt = Instant.now();
+		this.state = state;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	// 讀檔進度 (0 ~ 100), 完成時才會是 100
+	public int getProgress() {
+		if (state != State.RUNNING) {
+			return 100;
+		}
+		return totalBytes <= 0 ? 0 : (int) Math.min(99, bytesRead.get() * 100 / totalBytes);
+	}
+
+	public long getRowsRead() {
+		return rowsRead.get();
+	}
+
+	public long getImported() {
+		return imported.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public Instant getStartedAt() {
+		return startedAt;
+	}
+
+	public Instant getFinishedAt() {
+		return finishedAt;
+	}
+
+	public long getElapsedMillis() {
+		Instant end = finishedAt;
+		return Duration.between(startedAt, end != null ? end : Instant.now()).toMillis();
+	}
+
+	// 每秒處理筆數
+	public long getRowsPerSecond() {
+		long elapsed = getElapsedMillis();
+		return elapsed == 0 ? 0 : rowsRead.get() * 1000 / elapsed;
+	}
+
+	// 失敗的行與原因 (行號最小的 maxErrors 筆, 依行號排序)
+	public List<LineError> getErrors() {
+		synchronized (errors) {
+			return errors.stream().sorted(Comparator.comparingLong(LineError::line)).toList();
+		}
+	}
+
+	public boolean isErrorsTruncated() {
+		return errorCount.get() > maxErrors;
+	}
+}
@@ -0,0 +1,364 @@
+package com.example.demo.importer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.model.BatchResult;
+import com.example.demo.model.Book;
+import com.example.demo.service.BookService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+
+// CSV 大量匯入 (POST /book/import), 上傳後在背景執行, 用 GET /book/import/{id} 查進度與每一行的錯誤
+// 管線: 讀檔執行緒解析 CSV -> 有界佇列 (每格 chunk-size 筆) -> workers 條執行緒平行驗證並用 JDBC batch 寫入
+// 佇列滿了讀檔就會等, 所以不管檔案多大, 記憶體中最多只有 (佇列長度 + workers) 個 chunk
+// 欄位依標題列對應 (書名/name, 價格/price, 數量/amount, 出刊/pub, ID 欄會略過), 所以 GET /book/export 匯出的檔案可以直接匯入;
+// 沒有標題列時依序為 書名, 價格, 數量, 出刊
+@Component
+public class BookImportService {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+	private static final int MAX_NAME_LENGTH = 50; // book.name varchar(50)
+
+	private static final String[][] COLUMN_NAMES = { { "書名", "name" }, { "價格", "price" }, { "數量", "amount" },
+			{ "出刊", "pub" } };
+	private static final int NAME = 0, PRICE = 1, AMOUNT = 2, PUB = 3;
+
+	private static final List<Row> END = List.of(); // 讀檔結束的記號, 每個 worker 一個
+
+	// CSV 的一筆資料與它在檔案中的行號
+	private record Row(long line, List<String> fields) {
+	}
+
+	@Autowired
+	private BookService bookService;
+
+	private final int workers;
+	private final int chunkSize;
+	private final int maxErrors;
+	private final Semaphore runningJobs;
+	private final ExecutorService executor;
+	private final Cache<String, BookImportJob> jobs;
+
+	public BookImportService(@Value("${book.import.workers:4}") int workers,
+			@Value("${book.import.chunk-size:500}") int chunkSize,
+			@Value("${book.import.max-concurrent-jobs:2}") int maxConcurrentJobs,
+			@Value("${book.import.max-errors:1000}") int maxErrors,
+			@Value("${book.import.retention:1h}") Duration retention,
+			@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+		// 每個 worker 寫入時佔一條連線: 所有同時執行的匯入工作加起來最多用連線池的一半, 另一半留給線上請求
+		int maxWorkers = Math.max(1, poolSize / 2 / Math.max(1, maxConcurrentJobs));
+		if (workers > maxWorkers) {
+			logger.info("book.import.workers={} 超過連線池 ({} 條, 最多 {} 個工作同時匯入) 可分配的數量, 調降為 {}", workers,
+					poolSize, maxConcurrentJobs, maxWorkers);
+		}
+		this.workers = Math.max(1, Math.min(workers, maxWorkers));
+		this.chunkSize = chunkSize;
+		this.maxErrors = maxErrors;
+		this.runningJobs = new Semaphore(maxConcurrentJobs);
+		this.executor = Executors.newCachedThreadPool(Thread.ofPlatform().name("book-import-", 0).daemon().factory());
+		this.jobs = Caffeine.newBuilder().expireAfterWrite(retention).build(); // 完成的工作保留一段時間供查詢
+	}
+
+	// 開始匯入, 同時執行的工作已達上限時回傳 empty
+	// 上傳的暫存檔在請求結束後就會被刪除, 所以先搬到自己的暫存檔再交給背景執行
+	public Optional<BookImportJob> start(MultipartFile file) throws IOException {
+		if (!runningJobs.tryAcquire()) {
+			return Optional.empty();
+		}
+		try {
+			Path path = Files.createTempFile("book-import-", ".csv");
+			file.transferTo(path);
+			BookImportJob job = new BookImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(),
+					Files.size(path), maxErrors);
+			jobs.put(job.getId(), job);
+			executor.execute(() -> {
+				try {
+					run(job, path);
+				} finally {
+					runningJobs.release();
+					try {
+						Files.deleteIfExists(path);
+					} catch (IOException e) {
+						logger.warn("刪除匯入暫存檔失敗: {}", path, e);
+					}
+				}
+			});
+			return Optional.of(job);
+		} catch (IOException | RuntimeException e) {
+			runningJobs.release();
+			throw e;
+		}
+	}
+
+	int getWorkers() {
+		return workers;
+	}
+
+	public Optional<BookImportJob> getJob(String id) {
+		return Optional.ofNullable(jobs.getIfPresent(id));
+	}
+
+	// 讀檔執行緒: 解析 CSV 放進佇列, 讀完後等所有 worker 寫完
+	private void run(BookImportJob job, Path path) {
+		BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(workers * 2);
+		List<Future<?>> futures = new ArrayList<>(workers);
+		for (int i = 0; i < workers; i++) {
+			futures.add(executor.submit(() -> work(job, queue)));
+		}
+		String failure = null;
+		List<Row> chunk = new ArrayList<>(chunkSize);
+		try (CsvRecordReader reader = new CsvRecordReader(new InputStreamReader(
+				new CountingInputStream(Files.newInputStream(path), job), StandardCharsets.UTF_8))) {
+			int[] columns = null;
+			List<String> fields;
+			while ((fields = reader.next()) != null) {
+				if (columns == null) {
+					columns = mapColumns(fields);
+					if (columns != null) {
+						continue; // 標題列
+					}
+					columns = new int[] { 0, 1, 2, 3 };
+				}
+				job.rowsRead.incrementAndGet();
+				chunk.add(new Row(reader.getRecordLine(), project(fields, columns)));
+				if (chunk.size() == chunkSize) {
+					queue.put(chunk);
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			failure = e.getMessage(); // 檔案格式錯誤, 錯誤之前讀到的資料還是會寫入
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			job.finish(BookImportJob.State.FAILED, "匯入中斷");
+			futures.forEach(future -> future.cancel(true));
+			return;
+		}
+		try {
+			if (!chunk.isEmpty()) {
+				queue.put(chunk);
+			}
+			for (int i = 0; i < workers; i++) {
+				queue.put(END);
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			job.finish(BookImportJob.State.FAILED, "匯入中斷");
+			return;
+		} catch (ExecutionException e) {
+			logger.error("匯入工作 {} 寫入時發生錯誤", job.getId(), e.getCause());
+			failure = "寫入時發生錯誤: " + e.getCause();
+		}
+		if (failure != null) {
+			job.finish(BookImportJob.State.FAILED, failure);
+		} else {
+			job.finish(BookImportJob.State.COMPLETED, "匯入完成");
+		}
+		logger.info("匯入工作 {} ({}) 結束: {} 筆, 成功 {}, 失敗 {}, 耗時 {} ms", job.getId(), job.getFilename(),
+				job.getRowsRead(), job.getImported(), job.getFailed(), job.getElapsedMillis());
+	}
+
+	// worker: 驗證一個 chunk, 合格的用一次批次新增寫入
+	private void work(BookImportJob job, BlockingQueue<List<Row>> queue) {
+		try {
+			List<Row> chunk;
+			while ((chunk = queue.take()) != END) {
+				List<Book> books = new ArrayList<>(chunk.size());
+				List<Long> lines = new ArrayList<>(chunk.size());
+				for (Row row : chunk) {
+					try {
+						books.add(toBook(row.fields()));
+						lines.add(row.line());
+					} catch (IllegalArgumentException e) {
+						job.fail(row.line(), e.getMessage());
+					}
+				}
+				if (!books.isEmpty()) {
+					write(job, books, lines);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void write(BookImportJob job, List<Book> books, List<Long> lines) {
+		List<BatchResult> results;
+		try {
+			results = bookService.addBooks(books);
+		} catch (RuntimeException e) {
+			// 整個 chunk 寫入失敗 (例如資料庫斷線), 記錄在每一行上, 其他 chunk 繼續
+			logger.warn("匯入工作 {} 第 {} ~ {} 行寫入失敗", job.getId(), lines.get(0), lines.get(lines.size() - 1), e);
+			lines.forEach(line -> job.fail(line, "寫入失敗: " + e.getMessage()));
+			return;
+		}
+		for (BatchResult result : results) {
+			if (result.isSuccess()) {
+				job.imported.incrementAndGet();
+			} else {
+				job.fail(lines.get(result.getIndex()), result.getMessage());
+			}
+		}
+	}
+
+	// 第一列是標題列時回傳每個欄位的位置 (沒有的欄位為 -1), 不是標題列回傳 null
+	private static int[] mapColumns(List<String> header) {
+		int[] columns = new int[COLUMN_NAMES.length];
+		Arrays.fill(columns, -1);
+		boolean found = false;
+		for (int i = 0; i < header.size(); i++) {
+			String name = header.get(i).strip().toLowerCase(Locale.ROOT);
+			for (int column = 0; column < COLUMN_NAMES.length; column++) {
+				if (columns[column] < 0 && Arrays.asList(COLUMN_NAMES[column]).contains(name)) {
+					columns[column] = i;
+					found = true;
+				}
+			}
+		}
+		if (found && columns[NAME] < 0) {
+			throw new IllegalArgumentException("標題列缺少書名(name)欄位");
+		}
+		return found ? columns : null;
+	}
+
+	// 依欄位對應取出 書名, 價格, 數量, 出刊
+	private static List<String> project(List<String> fields, int[] columns) {
+		String[] values = new String[columns.length];
+		for (int column = 0; column < columns.length; column++) {
+			int index = columns[column];
+			values[column] = index >= 0 && index < fields.size() ? fields.get(index) : null;
+		}
+		return Arrays.asList(values);
+	}
+
+	// 驗證並轉成 Book, 不合格時丟出 IllegalArgumentException (訊息會記錄在該行)
+	private static Book toBook(List<String> values) {
+		String name = values.get(NAME) == null ? "" : values.get(NAME).strip();
+		if (name.length() > 1 && name.charAt(0) == '\'' && "=+-@".indexOf(name.charAt(1)) >= 0) {
+			name = name.substring(1); // 匯出時為了避免公式注入加上的 ' 拿掉
+		}
+		if (name.isEmpty()) {
+			throw new IllegalArgumentException("書名不可空白");
+		}
+		if (name.length() > MAX_NAME_LENGTH) {
+			throw new IllegalArgumentException("書名超過 " + MAX_NAME_LENGTH + " 個字");
+		}
+		Book book = new Book();
+		book.setName(name);
+		book.setPrice(parsePrice(values.get(PRICE)));
+		book.setAmount(parseAmount(values.get(AMOUNT)));
+		book.setPub(parsePub(values.get(PUB)));
+		return book;
+	}
+
+	private static Double parsePrice(String value) {
+		if (value == null || value.isBlank()) {
+			throw new IllegalArgumentException("價格不可空白");
+		}
+		double price;
+		try {
+			price = Double.parseDouble(value.strip());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("價格格式錯誤: " + value);
+		}
+		if (!Double.isFinite(price) || price < 0) {
+			throw new IllegalArgumentException("價格必須是 0 以上的數字: " + value);
+		}
+		return price;
+	}
+
+	private static Integer parseAmount(String value) {
+		if (value == null || value.isBlank()) {
+			throw new IllegalArgumentException("數量不可空白");
+		}
+		int amount;
+		try {
+			amount = Integer.parseInt(value.strip());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("數量必須是整數: " + value);
+		}
+		if (amount < 0) {
+			throw new IllegalArgumentException("數量不可小於 0: " + value);
+		}
+		return amount;
+	}
+
+	// 空白視為未出刊
+	private static Boolean parsePub(String value) {
+		if (value == null || value.isBlank()) {
+			return false;
+		}
+		return switch (value.strip().toLowerCase(Locale.ROOT)) {
+		case "true", "1", "y", "yes", "是" -> true;
+		case "false", "0", "n", "no", "否" -> false;
+		default -> throw new IllegalArgumentException("出刊欄位只能是 true/false: " + value);
+		};
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	// 計算已讀取的 byte 數, 用來算進度
+	private static class CountingInputStream extends FilterInputStream {
+
+		private final BookImportJob job;
+
+		CountingInputStream(InputStream in, BookImportJob job) {
+			super(in);
+			this.job = job;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				job.bytesRead.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				job.bytesRead.addAndGet(n);
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.demo.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// 逐筆讀取 CSV (RFC 4180): 支援引號、引號內的逗號與換行、"" 代表一個引號, \r\n 或 \n 換行, 開頭的 BOM 會略過
+// 一次只保留一筆資料; 欄位超過 MAX_FIELD_LENGTH 就丟出例外 (通常是少了結尾引號), 不會把整個檔案讀進記憶體
+class CsvRecordReader implements Closeable {
+
+	static final int MAX_FIELD_LENGTH = 64 * 1024;
+
+	private final Reader reader;
+	private final char[] buffer = new char[64 * 1024];
+	private int position;
+	private int limit;
+	private boolean eof;
+
+	private long line = 1; // 目前讀到第幾行
+	private long recordLine; // 上一筆資料從第幾行開始
+
+	CsvRecordReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	// 讀下一筆, 沒有資料時回傳 null; 空白行會略過
+	List<String> next() throws IOException {
+		while (true) {
+			int c = read();
+			if (c < 0) {
+				return null;
+			}
+			if (c == '\uFEFF' && line == 1 && recordLine == 0) {
+				continue; // BOM
+			}
+			if (c == '\n') {
+				line++;
+				continue;
+			}
+			if (c == '\r') {
+				continue;
+			}
+			recordLine = line;
+			return readRecord(c);
+		}
+	}
+
+	// 最近一次 next() 回傳的資料從第幾行開始 (引號內有換行時一筆會跨多行)
+	long getRecordLine() {
+		return recordLine;
+	}
+
+	private List<String> readRecord(int c) throws IOException {
+		List<String> fields = new ArrayList<>(8);
+		StringBuilder field = new StringBuilder(32);
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c < 0) {
+					throw new IOException("第 " + recordLine + " 行: 引號沒有結尾");
+				}
+				if (c == '"') {
+					int following = read();
+					if (following == '"') {
+						append(field, '"');
+					} else {
+						quoted = false;
+						c = following;
+						continue;
+					}
+				} else {
+					if (c == '\n') {
+						line++;
+					}
+					append(field, (char) c);
+				}
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\n' || c < 0) {
+				if (c == '\n') {
+					line++;
+				}
+				fields.add(field.toString());
+				return fields;
+			} else if (c == '"' && field.isEmpty()) {
+				quoted = true;
+			} else if (c != '\r') {
+				append(field, (char) c);
+			}
+			c = read();
+		}
+	}
+
+	private void append(StringBuilder field, char c) throws IOException {
+		if (field.length() >= MAX_FIELD_LENGTH) {
+			throw new IOException("第 " + recordLine + " 行: 欄位超過 " + MAX_FIELD_LENGTH + " 個字 (可能少了結尾引號)");
+		}
+		field.append(c);
+	}
+
+	private int read() throws IOException {
+		if (position == limit) {
+			if (eof) {
+				return -1;
+			}
+			limit = reader.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				eof = true;
+				return -1;
+			}
+		}
+		return buffer[position++];
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.demo.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+
+// 批次寫檔的 RollingFileAppender
+// 搭配 immediateFlush=false, 每筆日誌只寫進記憶體緩衝區(bufferSize), 緩衝區滿了或每隔 flushInterval 毫秒才真正寫入檔案,
+// 把大量小的 write 合併成少數幾次大的 write。前面再接 AsyncAppender, 請求執行緒完全不用等檔案 I/O
+public class PeriodicFlushFileAppender extends RollingFileAppender<ILoggingEvent> {
+
+	private long flushInterval = 1000; // 毫秒
+	private ScheduledFuture<?> flushTask;
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	@Override
+	public void start() {
+		super.start();
+		if (isStarted() && !isImmediateFlush()) {
+			flushTask = getContext().getScheduledExecutorService().scheduleWithFixedDelay(this::flush, flushInterval,
+					flushInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (flushTask != null) {
+			flushTask.cancel(false);
+		}
+		super.stop(); // 關閉檔案前會把緩衝區剩下的內容寫出去
+	}
+
+	// 與寫入日誌、換檔(rollover) 用同一把 streamWriteLock: 換檔會關閉並替換 OutputStream,
+	// 不加鎖可能 flush 到正在關閉的舊檔, 或與 encoder 寫到一半的內容交錯
+	private void flush() {
+		streamWriteLock.lock();
+		try {
+			OutputStream out = getOutputStream();
+			if (out != null) {
+				out.flush();
+			}
+		} catch (IOException e) {
+			addWarn("定期寫入日誌檔失敗", e);
+		} finally {
+			streamWriteLock.unlock();
+		}
+	}
+}
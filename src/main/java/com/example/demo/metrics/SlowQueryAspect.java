@@ -0,0 +1,91 @@
+package com.example.demo.metrics;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 慢查詢記錄: BookRepositoryJdbcImpl 的方法超過門檻就寫 log, 並計數 book.repository.slow{method, level}
+// 超過 warn-threshold 記 WARN, 超過 error-threshold 記 ERROR; 參數只記摘要(集合只記筆數), 避免 log 爆量
+// 連線池本身的指標(active/idle/pending、取得連線耗時)由 Spring Boot 自動註冊為 hikaricp.*
+@Aspect
+@Component
+public class SlowQueryAspect {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlowQueryAspect.class);
+
+	private final MeterRegistry registry;
+	private final long warnNanos;
+	private final long errorNanos;
+	private final ConcurrentHashMap<String, Counter> slowCounters = new ConcurrentHashMap<>();
+
+	public SlowQueryAspect(MeterRegistry registry,
+			@Value("${book.jdbc.slow-query.warn-threshold:500ms}") Duration warnThreshold,
+			@Value("${book.jdbc.slow-query.error-threshold:2s}") Duration errorThreshold) {
+		this.registry = registry;
+		this.warnNanos = warnThreshold.toNanos();
+		this.errorNanos = errorThreshold.toNanos();
+	}
+
+	// 串流整張表 (streamAllBooks) 的時間包含寫給前端的時間, 本來就長, 不列入
+	@Around("execution(public * com.example.demo.repository.BookRepositoryJdbcImpl.*(..))"
+			+ " && !execution(* com.example.demo.repository.BookRepositoryJdbcImpl.streamAllBooks(..))")
+	public Object logSlowQuery(ProceedingJoinPoint pjp) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return pjp.proceed();
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			if (elapsed >= warnNanos) { // 大部分查詢走到這裡就結束, 不會多做任何事
+				report(pjp, elapsed);
+			}
+		}
+	}
+
+	private void report(ProceedingJoinPoint pjp, long elapsed) {
+		Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+		boolean error = elapsed >= errorNanos;
+		String level = error ? "error" : "warn";
+		slowCounters.computeIfAbsent(method.getName() + "|" + level, key -> Counter.builder("book.repository.slow")
+				.description("超過慢查詢門檻的次數")
+				.tag("method", method.getName())
+				.tag("level", level)
+				.register(registry)).increment();
+		long millis = elapsed / 1_000_000;
+		String args = summarize(pjp.getArgs());
+		if (error) {
+			logger.error("慢查詢 {} ms: {}({})", millis, method.getName(), args);
+		} else {
+			logger.warn("慢查詢 {} ms: {}({})", millis, method.getName(), args);
+		}
+	}
+
+	// 參數摘要: 集合只記筆數, callback 不記內容
+	private static String summarize(Object[] args) {
+		StringJoiner joiner = new StringJoiner(", ");
+		for (Object arg : args) {
+			if (arg instanceof Collection<?> collection) {
+				joiner.add("[" + collection.size() + " 筆]");
+			} else if (arg instanceof Consumer<?>) {
+				joiner.add("callback");
+			} else {
+				joiner.add(String.valueOf(arg));
+			}
+		}
+		return joiner.toString();
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 批次操作中每一筆的結果
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResult {
+	private int index; // 在請求陣列中的位置(從 0 開始)
+	private Integer id; // 書籍 id, 新增成功時為資料庫產生的 id
+	private boolean success; // 是否成功
+	private String message; // 訊息
+}
@@ -1,5 +1,7 @@
 package com.example.demo.model;
 
+import java.time.Instant;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,4 +16,16 @@ public class Book {
 	private Integer amount; // 數量
 	private Boolean pub = false; // 出刊/停刊,給初始值就可以不用
 	// 在JDBC這樣寫if (book.getPub() == null) {book.setPub(false);
+	private Integer version; // 版本, 每次修改 +1 (由 repository 維護, 用來產生 ETag)
+	private Instant updatedAt; // 最後修改時間 (由 repository 維護, 用來產生 Last-Modified)
+
+	// 沒有版本資訊的建構子(新增書籍、測試資料用)
+	public Book(Integer id, String name, Double price, Integer amount, Boolean pub) {
+		this(id, name, price, amount, pub, null, null);
+	}
+
+	// 複製一份, 給快取/InMemory 存放用, 避免外面改到裡面存的物件
+	public Book copy() {
+		return new Book(id, name, price, amount, pub, version, updatedAt);
+	}
 }
@@ -0,0 +1,25 @@
+package com.example.demo.model;
+
+import java.util.Collection;
+
+// 書籍清單的版本, 由資料庫算出 (筆數、最後修改時間、version 總和), 多台伺服器看到的是同一個值
+// 新增/刪除會改變筆數, 修改會讓 version 總和 +1 並更新最後修改時間, 任何一項不同就是不同版本
+// 用來產生 GET /book 的 ETag 與 Last-Modified
+public record CollectionVersion(long count, long lastModified, long versionSum) {
+
+	// 由已經讀出來的書算版本, 算法與資料庫的彙總查詢相同 (replica 落後時會與查詢到的版本不同)
+	public static CollectionVersion of(Collection<Book> books) {
+		long lastModified = 0, versionSum = 0;
+		for (Book book : books) {
+			if (book.getUpdatedAt() != null) {
+				lastModified = Math.max(lastModified, book.getUpdatedAt().toEpochMilli());
+			}
+			versionSum += book.getVersion() == null ? 0 : book.getVersion();
+		}
+		return new CollectionVersion(books.size(), lastModified, versionSum);
+	}
+
+	public String etag() {
+		return "\"books-" + count + "-" + lastModified + "-" + versionSum + "\"";
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.demo.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 自動調整的同時處理請求數上限 (gradient 演算法, 參考 Netflix concurrency-limits 的 Gradient2)
+// 依 repository 查詢耗時調整: 短期平均耗時比長期平均高很多 (資料庫開始排隊) 就降低上限, 正常時慢慢放寬
+// 超過上限的請求在進到 BookServiceImpl 之前就回 503, 讓資料庫有機會恢復, 而不是所有請求一起變慢
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+	private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+	private static final double SMOOTHING = 0.2; // 每次調整只往新上限移動 20%, 避免震盪
+	private static final double LONG_WINDOW_ALPHA = 0.05; // 長期平均的權重, 約等於最近 20 個統計區間
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final long windowNanos;
+	private final int minSamples;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile double limit;
+
+	// 目前統計區間的耗時樣本
+	private final LongAdder sampleNanos = new LongAdder();
+	private final LongAdder sampleCount = new LongAdder();
+	private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+	private double longRtt; // 長期平均耗時, 只有拿到 windowStart 的執行緒會更新
+
+	public AdaptiveConcurrencyLimiter(@Value("${book.concurrency-limit.initial:20}") int initialLimit,
+			@Value("${book.concurrency-limit.min:5}") int minLimit,
+			@Value("${book.concurrency-limit.max:200}") int maxLimit,
+			@Value("${book.concurrency-limit.tolerance:1.5}") double tolerance,
+			@Value("${book.concurrency-limit.window:1s}") Duration window,
+			@Value("${book.concurrency-limit.min-samples:10}") int minSamples, MeterRegistry registry) {
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.windowNanos = window.toNanos();
+		this.minSamples = minSamples;
+		Gauge.builder("book.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+				.description("目前的同時處理請求數上限").register(registry);
+		Gauge.builder("book.concurrency.in-flight", inFlight, AtomicInteger::get)
+				.description("目前正在處理的請求數").register(registry);
+	}
+
+	// 取得一個名額, 已達上限時回傳 false (呼叫端要回 503); 成功時一定要呼叫 release()
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= (int) limit) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	// 一次 repository 呼叫的耗時; 每個統計區間結束時由其中一個執行緒重新計算上限
+	public void onSample(long nanos) {
+		sampleNanos.add(nanos);
+		sampleCount.increment();
+		long start = windowStart.get();
+		long now = System.nanoTime();
+		if (now - start < windowNanos || sampleCount.sum() < minSamples || !windowStart.compareAndSet(start, now)) {
+			return;
+		}
+		long count = sampleCount.sumThenReset();
+		long total = sampleNanos.sumThenReset();
+		if (count > 0) {
+			update((double) total / count);
+		}
+	}
+
+	private void update(double shortRtt) {
+		if (longRtt == 0) {
+			longRtt = shortRtt;
+		}
+		longRtt = longRtt * (1 - LONG_WINDOW_ALPHA) + shortRtt * LONG_WINDOW_ALPHA;
+		if (longRtt > shortRtt * 2) {
+			longRtt *= 0.95; // 負載降下來後長期平均跟著往下修, 不然會一直以為很快
+		}
+		double current = limit;
+		if (inFlight.get() < current / 2) {
+			return; // 根本沒用到一半的名額, 耗時無法代表上限是否合適, 不調整
+		}
+		// 短期耗時在長期的 tolerance 倍以內視為正常 (gradient = 1), 越慢 gradient 越小, 最多一次砍一半
+		double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+		double queueSize = Math.sqrt(current); // 正常時每次多給 sqrt(上限) 個名額
+		double target = current * gradient + queueSize;
+		double next = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + target * SMOOTHING));
+		if ((int) next != (int) current) {
+			logger.debug("同時處理上限 {} -> {} (短期耗時 {} ms, 長期耗時 {} ms)", (int) current, (int) next,
+					String.format("%.1f", shortRtt / 1e6), String.format("%.1f", longRtt / 1e6));
+		}
+		limit = next;
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.demo.ratelimit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// 把 repository 每次查詢的耗時交給 AdaptiveConcurrencyLimiter 調整上限
+// 串流整張表與批次寫入的耗時跟筆數有關, 不代表資料庫忙不忙, 不列入
+@Aspect
+@Component
+@ConditionalOnProperty(name = "book.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RepositoryLatencyAspect {
+
+	@Autowired
+	private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+	@Around("execution(public * com.example.demo.repository.BookRepositoryJdbcImpl.*(..))"
+			+ " && !execution(* com.example.demo.repository.BookRepositoryJdbcImpl.streamAllBooks(..))"
+			+ " && !execution(* com.example.demo.repository.BookRepositoryJdbcImpl.*(java.util.List))")
+	public Object recordLatency(ProceedingJoinPoint pjp) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return pjp.proceed();
+		} finally {
+			concurrencyLimiter.onSample(System.nanoTime() - start);
+		}
+	}
+}
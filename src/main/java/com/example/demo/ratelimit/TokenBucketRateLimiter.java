@@ -0,0 +1,91 @@
+package com.example.demo.ratelimit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// 每個前端 (API key 或 IP) 在每條路由規則各有一個 token bucket
+// 用 GCRA (generic cell rate algorithm) 實作: 每個 bucket 只存一個「理論上下一個請求的到達時間」(TAT),
+// 用 CAS 更新, 不用鎖也不用背景執行緒補 token
+// 規則格式: 路徑樣式=每秒次數:突發量, 例如 /book/**=50:100; 由左到右第一個符合的規則生效, 都不符合就不限制
+@Component
+public class TokenBucketRateLimiter {
+
+	// 一條路由規則; emissionNanos = 平均每個請求的間隔, toleranceNanos = 可以預支多少時間 (突發量)
+	record Rule(String pattern, double ratePerSecond, int burst, long emissionNanos, long toleranceNanos) {
+	}
+
+	// 檢查結果, 被拒絕時 retryAfterNanos 為還要等多久
+	public record Decision(boolean allowed, String route, long retryAfterNanos) {
+	}
+
+	private static final Decision UNLIMITED = new Decision(true, null, 0);
+
+	private final AntPathMatcher matcher = new AntPathMatcher();
+	private final List<Rule> rules;
+	private final Cache<String, AtomicLong> buckets;
+
+	public TokenBucketRateLimiter(@Value("${book.rate-limit.routes:/book/**=50:100,/api/**=50:100}") List<String> routes,
+			@Value("${book.rate-limit.max-clients:100000}") long maxClients,
+			@Value("${book.rate-limit.idle-timeout:10m}") Duration idleTimeout) {
+		this.rules = parse(routes);
+		// 太久沒用的 bucket 丟掉; 被丟掉的前端下次再來會拿到滿的 bucket, 等同閒置夠久自然補滿
+		this.buckets = Caffeine.newBuilder().maximumSize(maxClients).expireAfterAccess(idleTimeout).build();
+	}
+
+	public Decision tryAcquire(String path, String client) {
+		for (int i = 0; i < rules.size(); i++) {
+			Rule rule = rules.get(i);
+			if (matcher.match(rule.pattern(), path)) {
+				AtomicLong tat = buckets.get(i + "|" + client, key -> new AtomicLong());
+				return acquire(rule, tat, System.nanoTime());
+			}
+		}
+		return UNLIMITED;
+	}
+
+	// GCRA: 新的 TAT = max(TAT, now) + 間隔; 新的 TAT 超前現在太多 (超過突發量) 就拒絕, TAT 不變
+	static Decision acquire(Rule rule, AtomicLong tat, long now) {
+		while (true) {
+			long current = tat.get();
+			long next = Math.max(current == 0 ? now : current, now) + rule.emissionNanos();
+			long ahead = next - now - rule.toleranceNanos();
+			if (ahead > 0) {
+				return new Decision(false, rule.pattern(), ahead);
+			}
+			if (tat.compareAndSet(current, next)) {
+				return new Decision(true, rule.pattern(), 0);
+			}
+		}
+	}
+
+	private static List<Rule> parse(List<String> routes) {
+		List<Rule> rules = new ArrayList<>(routes.size());
+		for (String route : routes) {
+			if (route.isBlank()) {
+				continue;
+			}
+			int eq = route.lastIndexOf('=');
+			int colon = route.lastIndexOf(':');
+			if (eq < 0 || colon < eq) {
+				throw new IllegalArgumentException("book.rate-limit.routes 格式錯誤 (路徑=每秒次數:突發量): " + route);
+			}
+			double rate = Double.parseDouble(route.substring(eq + 1, colon).trim());
+			int burst = Integer.parseInt(route.substring(colon + 1).trim());
+			if (rate <= 0 || burst < 1) {
+				throw new IllegalArgumentException("book.rate-limit.routes 每秒次數要大於 0, 突發量至少 1: " + route);
+			}
+			long emission = (long) (1_000_000_000L / rate);
+			rules.add(new Rule(route.substring(0, eq).trim(), rate, burst, emission, emission * burst));
+		}
+		return List.copyOf(rules);
+	}
+}
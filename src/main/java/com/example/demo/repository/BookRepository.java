@@ -1,18 +1,59 @@
 package com.example.demo.repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
 
 public interface BookRepository {
 	List<Book> findAllBooks();
 
+	// keyset 分頁: 依 id 排序, 取 id > lastId 的前 limit 筆 (lastId 為 null 代表第一頁)
+	List<Book> findBooksAfter(Integer lastId, int limit);
+
+	// 串流查詢: 每讀到一筆就交給 consumer, 不會把整張表放進記憶體
+	void streamAllBooks(Consumer<Book> consumer);
+
+	// 依書名關鍵字與出刊狀態過濾 + 排序 + 分頁(DataTables 伺服器端處理用)
+	// keyword 為 null 或空字串、pub 為 null 代表不依該條件過濾 (pub 為 null 的書視為停刊)
+	// sortColumn 只接受 id, name, price, amount, pub, 其他值一律依 id 排序
+	List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset, int limit);
+
+	// 符合條件的筆數, keyword 與 pub 都是 null 代表全部
+	long countBooks(String keyword, Boolean pub);
+
+	// 書籍清單目前的版本(筆數、最後修改時間、version 總和), 不用讀出整張表
+	CollectionVersion getCollectionVersion();
+
 	Optional<Book> getBookById(Integer id);
 
+	// 依 id 讀回多筆(寫入後取得資料庫中的最新內容, 含 version 與 updated_at), 查無的 id 略過, 不保證順序
+	List<Book> findBooksByIds(List<Integer> ids);
+
+	// updated_at >= since 的書籍(其他伺服器或直接改資料庫的異動), 依 updated_at 排序
+	List<Book> findBooksUpdatedSince(Instant since);
+
 	boolean addBook(Book book);
 
 	boolean updateBook(Integer id, Book book);
 
 	boolean deleteBook(Integer id);
+
+	// 部分修改(單一 update 指令): name/price 為 null 代表不修改該欄位
+	// expectedVersion 不為 null 時, 只有資料庫中的 version 相同才會修改(樂觀鎖)
+	// 成功回傳修改後的資料, 查無此書或版本不符回傳 Optional.empty()
+	Optional<Book> patchBook(Integer id, String name, Double price, Integer expectedVersion);
+
+	// 批次操作: 回傳每一筆的影響列數(與傳入順序相同), 失敗的為 Statement.EXECUTE_FAILED
+	// 回報成功的一定已經寫入, 回報失敗的一定沒有寫入
+	// 批次新增成功時會把資料庫產生的 id 設回 book
+	int[] addBooks(List<Book> books);
+
+	// 依每一本書的 id 修改
+	int[] updateBooks(List<Book> books);
+
+	int[] deleteBooks(List<Integer> ids);
 }
@@ -1,75 +1,281 @@
 package com.example.demo.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.OptionalInt;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
 
 @Repository
 public class BookRepositoryImpl implements BookRepository {
 	// InMemory 版
-	// CopyOnWriteArrayList 是為了讓它在多執行緒時比較安全（寫入時會複製一份新的 List，不會同時改到原本的）
-	private List<Book> books = new CopyOnWriteArrayList<>();
+	// 主索引: id -> Book, ConcurrentHashMap 查詢/修改都是 O(1), 寫入時只鎖該筆所在的桶, 不會像 CopyOnWriteArrayList 每次複製整個陣列
+	// 存進來與拿出去的都是複製品, 外面改 Book 物件不會改到這裡存的資料
+	// 同一本書的修改在 compute 裡 (鎖住該 id 所在的桶) 完成, 版本檢查與遞增、次要索引的更新不會交錯
+	// 存放的 Book 不會被修改 (每次修改都換成新的複製品), 查詢時可以直接拿來過濾/排序, 只有回傳的那幾筆才複製
+	private final ConcurrentHashMap<Integer, Book> books = new ConcurrentHashMap<>();
+
+	// id 產生器, 多執行緒同時新增也不會拿到重複的 id
+	private final AtomicInteger idGenerator = new AtomicInteger();
+
+	// 依 id 排序的索引, findAllBooks 與 keyset 分頁用
+	private final ConcurrentSkipListSet<Integer> sortedIds = new ConcurrentSkipListSet<>();
+
+	// 次要索引: 出刊/停刊 -> id 集合
+	private final ConcurrentHashMap<Boolean, Set<Integer>> pubIndex = new ConcurrentHashMap<>();
+
+	// 次要索引: 書名 -> id 集合, 依書名排序, 前綴查詢從 tailMap 開始取到不再符合為止
+	// 關鍵字查詢只比對書名 (同名的書只比一次), 不用讀每一本書
+	// 值用不可變的 Set, 每次修改都換一個新的, 多執行緒 compute 時才不會互相覆蓋
+	private final ConcurrentSkipListMap<String, Set<Integer>> nameIndex = new ConcurrentSkipListMap<>();
 
 	// 初始資料有 4 本書,初始化區塊
 	{
-		books.add(new Book(1, "機器貓小叮噹", 12.5, 20, false));
-		books.add(new Book(2, "老夫子", 10.5, 30, false));
-		books.add(new Book(3, "好小子", 8.5, 40, true));
-		books.add(new Book(4, "尼羅河的女兒", 14.5, 50, true));
+		addBook(new Book(null, "機器貓小叮噹", 12.5, 20, false));
+		addBook(new Book(null, "老夫子", 10.5, 30, false));
+		addBook(new Book(null, "好小子", 8.5, 40, true));
+		addBook(new Book(null, "尼羅河的女兒", 14.5, 50, true));
 	}
 
-	// 回傳整個書籍清單
+	// 回傳整個書籍清單(依 id 排序)
 	public List<Book> findAllBooks() {
-		return books;
+		return copiesOf(sortedIds).toList();
+	}
+
+	// keyset 分頁: 從排序索引中 id > lastId 的地方接著取
+	public List<Book> findBooksAfter(Integer lastId, int limit) {
+		NavigableSet<Integer> ids = lastId == null ? sortedIds : sortedIds.tailSet(lastId, false);
+		return copiesOf(ids).limit(limit).toList();
+	}
+
+	public void streamAllBooks(Consumer<Book> consumer) {
+		copiesOf(sortedIds).forEach(consumer);
+	}
+
+	public List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset,
+			int limit) {
+		Set<Integer> ids = matchingIds(keyword, pub);
+		if (ids == null && (sortColumn == null || "id".equals(sortColumn))) {
+			// 沒有過濾又依 id 排序: 直接從排序索引取這一頁
+			NavigableSet<Integer> sorted = ascending ? sortedIds : sortedIds.descendingSet();
+			return copiesOf(sorted.stream().skip(offset).limit(limit).toList()).toList();
+		}
+		Comparator<Book> comparator = switch (sortColumn == null ? "id" : sortColumn) {
+		case "name" -> Comparator.comparing(Book::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+		case "price" -> Comparator.comparing(Book::getPrice, Comparator.nullsFirst(Comparator.naturalOrder()));
+		case "amount" -> Comparator.comparing(Book::getAmount, Comparator.nullsFirst(Comparator.naturalOrder()));
+		case "pub" -> Comparator.comparing(Book::getPub, Comparator.nullsFirst(Comparator.naturalOrder()));
+		default -> Comparator.comparing(Book::getId);
+		};
+		if (!ascending) {
+			comparator = comparator.reversed();
+		}
+		// 先過濾、排序存放的資料, 只複製回傳的這一頁
+		return (ids == null ? books.keySet() : ids).stream().map(books::get).filter(Objects::nonNull)
+				.sorted(comparator.thenComparing(Book::getId)).skip(offset).limit(limit).map(Book::copy).toList();
+	}
+
+	public long countBooks(String keyword, Boolean pub) {
+		Set<Integer> ids = matchingIds(keyword, pub);
+		return ids == null ? books.size() : ids.size();
+	}
+
+	public CollectionVersion getCollectionVersion() {
+		return CollectionVersion.of(books.values());
+	}
+
+	// 從次要索引找出符合條件的 id, 沒有任何條件時回傳 null (代表全部)
+	// 書名包含關鍵字(與 JDBC 版的 like '%關鍵字%' 相同), 出刊條件直接取 pubIndex 的集合
+	private Set<Integer> matchingIds(String keyword, Boolean pub) {
+		Set<Integer> pubIds = pub == null ? null : pubIndex.getOrDefault(pub, Set.of());
+		if (keyword == null || keyword.isBlank()) {
+			return pubIds == null ? null : Set.copyOf(pubIds);
+		}
+		String trimmed = keyword.trim();
+		Set<Integer> ids = new HashSet<>();
+		for (Map.Entry<String, Set<Integer>> entry : nameIndex.entrySet()) {
+			if (entry.getKey().contains(trimmed)) {
+				for (Integer id : entry.getValue()) {
+					if (pubIds == null || pubIds.contains(id)) {
+						ids.add(id);
+					}
+				}
+			}
+		}
+		return ids;
 	}
 
-	// 利用 Java Stream 過濾 ID 相同的書籍。
 	// 用 Optional 包起來，代表「有可能找到」也「有可能沒找到」。
 	public Optional<Book> getBookById(Integer id) {
-		return books.stream().filter(book -> book.getId().equals(id)).findFirst();
+		if (id == null) {
+			return Optional.empty();
+		}
+		return Optional.ofNullable(books.get(id)).map(Book::copy);
+	}
+
+	// 依出刊/停刊查詢(次要索引), 依 id 排序
+	public List<Book> findBooksByPub(boolean pub) {
+		Set<Integer> ids = pubIndex.get(pub);
+		return ids == null ? List.of() : copiesOf(new ConcurrentSkipListSet<>(ids)).toList();
+	}
+
+	// 依書名前綴查詢(次要索引), 依書名排序, 例如 "機器貓" 可以找到 "機器貓小叮噹"
+	// prefix 為 null 或空字串代表全部
+	public List<Book> findBooksByNamePrefix(String prefix) {
+		String start = prefix == null ? "" : prefix;
+		return nameIndex.tailMap(start, true).entrySet().stream().takeWhile(entry -> entry.getKey().startsWith(start))
+				.flatMap(entry -> entry.getValue().stream().sorted()).map(books::get).filter(Objects::nonNull)
+				.map(Book::copy).toList();
+	}
+
+	public List<Book> findBooksByIds(List<Integer> ids) {
+		return copiesOf(ids).toList();
+	}
+
+	public List<Book> findBooksUpdatedSince(Instant since) {
+		return books.values().stream().filter(book -> !book.getUpdatedAt().isBefore(since))
+				.sorted(Comparator.comparing(Book::getUpdatedAt)).map(Book::copy).toList();
 	}
 
 	// 「宣告一個變數 book，它的資料型別是 Book。」
 	public boolean addBook(Book book) {
-		// 建立 newId
-		// 把每一本書的 id 抓出來（mapToInt(Book::getId)）
-		// 找出目前最大 id（.max()）
-		OptionalInt optMaxId = books.stream().mapToInt(Book::getId).max();
-		int newId = optMaxId.isEmpty() ? 1 : optMaxId.getAsInt() + 1;
-		// 將 newId 設定給 book
+		// 建立 newId 並設定給 book
+		int newId = idGenerator.incrementAndGet();
 		book.setId(newId);
-
-		return books.add(book);
+		Book stored = book.copy();
+		stored.setVersion(0);
+		stored.setUpdatedAt(Instant.now());
+		// compute 會鎖住這個 id, 建立索引的過程中別人不會同時修改/刪除這一筆
+		books.compute(newId, (id, old) -> {
+			sortedIds.add(id);
+			index(stored);
+			return stored;
+		});
+		return true;
 	}
 
 	// Book updateBook：你要用來取代原本內容的新書資料（例如新的名稱、價格、庫存等）
 	public boolean updateBook(Integer id, Book updateBook) {
-		// 找到要修改的 book
-		// Optional 設計的意義就是用來表示 method 的回傳值可能會是空的
-		Optional<Book> optBook = getBookById(id);
-		if (optBook.isEmpty()) {
+		if (id == null) {
 			return false;
 		}
-		// 找到該 book 在 books 的 index(怕有多執行續的問題)
-		int index = books.indexOf(optBook.get());
-		if (index == -1) {
-			return false;
+		Book stored = updateBook.copy();
+		stored.setId(id);
+		// computeIfPresent: 找不到就不做事, 找到就在鎖住該 id 的情況下遞增版本、更新索引並替換
+		return books.computeIfPresent(id, (key, old) -> {
+			stored.setVersion(old.getVersion() == null ? 1 : old.getVersion() + 1);
+			stored.setUpdatedAt(Instant.now());
+			unindex(old);
+			index(stored);
+			return stored;
+		}) != null;
+	}
+
+	public Optional<Book> patchBook(Integer id, String name, Double price, Integer expectedVersion) {
+		if (id == null) {
+			return Optional.empty();
 		}
-		// 替換
-		return books.set(index, updateBook) != null;
+		// 版本檢查與修改都在 computeIfPresent 裡(鎖住該 id), 與 JDBC 版的單一 update 指令效果相同
+		Book[] patched = { null };
+		books.computeIfPresent(id, (key, old) -> {
+			if (expectedVersion != null && !expectedVersion.equals(old.getVersion())) {
+				return old; // 版本不符, 不修改
+			}
+			Book stored = old.copy();
+			if (name != null) {
+				stored.setName(name);
+			}
+			if (price != null) {
+				stored.setPrice(price);
+			}
+			stored.setVersion(old.getVersion() == null ? 1 : old.getVersion() + 1);
+			stored.setUpdatedAt(Instant.now());
+			unindex(old);
+			index(stored);
+			patched[0] = stored;
+			return stored;
+		});
+		return Optional.ofNullable(patched[0]).map(Book::copy);
 	}
 
 	public boolean deleteBook(Integer id) {
-		Optional<Book> optBook = getBookById(id);
-		if (optBook.isPresent()) {
-			return books.remove(optBook.get());
+		if (id == null) {
+			return false;
 		}
-		return false;
+		boolean[] deleted = { false };
+		// compute 回傳 null 代表移除這一筆
+		books.compute(id, (key, old) -> {
+			if (old != null) {
+				sortedIds.remove(key);
+				unindex(old);
+				deleted[0] = true;
+			}
+			return null;
+		});
+		return deleted[0];
+	}
+
+	// InMemory 版沒有網路往返, 批次就是逐筆呼叫
+	public int[] addBooks(List<Book> books) {
+		return books.stream().mapToInt(book -> addBook(book) ? 1 : 0).toArray();
+	}
+
+	public int[] updateBooks(List<Book> books) {
+		return books.stream().mapToInt(book -> updateBook(book.getId(), book) ? 1 : 0).toArray();
+	}
+
+	public int[] deleteBooks(List<Integer> ids) {
+		return ids.stream().mapToInt(id -> deleteBook(id) ? 1 : 0).toArray();
+	}
+
+	// 依 id 順序取出複製品, 查詢途中被刪掉的 id 會略過
+	private Stream<Book> copiesOf(Collection<Integer> ids) {
+		return ids.stream().map(books::get).filter(Objects::nonNull).map(Book::copy);
+	}
+
+	// 以下兩個方法都在 books.compute 裡(鎖住該 id)呼叫, 所以同一本書的次要索引更新不會交錯
+	private void index(Book book) {
+		pubIndex.computeIfAbsent(isPub(book), key -> ConcurrentHashMap.newKeySet()).add(book.getId());
+		if (book.getName() != null) {
+			nameIndex.compute(book.getName(), (name, ids) -> ids == null ? Set.of(book.getId())
+					: Stream.concat(ids.stream(), Stream.of(book.getId())).collect(Collectors.toUnmodifiableSet()));
+		}
+	}
+
+	private void unindex(Book book) {
+		Set<Integer> pubIds = pubIndex.get(isPub(book));
+		if (pubIds != null) {
+			pubIds.remove(book.getId());
+		}
+		if (book.getName() != null) {
+			nameIndex.computeIfPresent(book.getName(), (name, ids) -> {
+				Set<Integer> remain = ids.stream().filter(id -> !id.equals(book.getId()))
+						.collect(Collectors.toUnmodifiableSet());
+				return remain.isEmpty() ? null : remain; // 回傳 null 代表移除這個書名
+			});
+		}
+	}
+
+	// pub 為 null 時視為停刊
+	private static boolean isPub(Book book) {
+		return Boolean.TRUE.equals(book.getPub());
 	}
 
-}
\ No newline at end of file
+}
@@ -1,15 +1,35 @@
 package com.example.demo.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.demo.datasource.ReplicaRead;
 import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
 
 @Repository
 
@@ -18,19 +38,110 @@ public class BookRepositoryJdbcImpl implements BookRepository {
 	@Autowired
 	private JdbcTemplate jdbcTemplate; // 自動綁定 spring 內建的 JdbcTemplate 物件,spring會自己new一個jdbctemplate
 
+	@Autowired
+	private TransactionTemplate transactionTemplate; // 部分修改與批次操作的每一段包在一個交易裡
+
+	// 串流查詢的 fetchSize, MySQL 要設成 Integer.MIN_VALUE 才會逐筆從網路讀取(其他資料庫給正數即可)
+	@Value("${book.jdbc.stream-fetch-size:-2147483648}")
+	private int streamFetchSize;
+
+	// 批次操作每幾筆送一次(搭配 JDBC URL 的 rewriteBatchedStatements=true, MySQL 會合併成一句多筆的 SQL)
+	@Value("${book.batch.chunk-size:500}")
+	private int batchChunkSize;
+
 	@Override
+	@ReplicaRead
 	public List<Book> findAllBooks() {
 		// String sql = "select * from book"; // 用 * 犯規
-		String sql = "select id, name, price, amount, pub from book"; // 如果有不同資料庫的話要用web.book
-		// BeanPropertyRowMapper(Book.class) 自動將每一筆紀錄注入到 Book 物件中
-		return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(Book.class));
+		String sql = "select " + BookRowMapper.COLUMNS + " from book"; // 如果有不同資料庫的話要用web.book
+		// BookRowMapper.INSTANCE 依欄位位置將每一筆紀錄放入 Book 物件中(不用反射, 且全程式共用同一個實例)
+		return jdbcTemplate.query(sql, BookRowMapper.INSTANCE);
 		// 使用 Spring JDBC 的 JdbcTemplate 來查詢資料庫，並且把查詢結果自動轉換成 Book 類別的物件清單（List<Book>）。
 		// <>是book的意思
 	}
 
 	@Override
+	@ReplicaRead
+	public List<Book> findBooksAfter(Integer lastId, int limit) {
+		// keyset 分頁: where id > 上一頁最後一筆 id, 直接走主鍵索引, 不會像 limit offset 越後面越慢
+		String sql = "select " + BookRowMapper.COLUMNS + " from book where id > ? order by id limit ?";
+		return jdbcTemplate.query(sql, BookRowMapper.INSTANCE, lastId == null ? 0 : lastId, limit);
+	}
+
+	@Override
+	@ReplicaRead
+	public void streamAllBooks(Consumer<Book> consumer) {
+		String sql = "select " + BookRowMapper.COLUMNS + " from book order by id";
+		int[] rowNum = { 0 };
+		jdbcTemplate.query(con -> {
+			// 只能往前讀 + 唯讀, 搭配 fetchSize 讓 driver 邊讀邊給, 不會一次把整張表載入記憶體
+			PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(streamFetchSize);
+			return ps;
+		}, (RowCallbackHandler) rs -> consumer.accept(BookRowMapper.INSTANCE.mapRow(rs, rowNum[0]++)));
+	}
+
+	// 可以排序的欄位(白名單), order by 不能用 ? 參數, 只能拼字串, 所以一定要先檢查
+	private static final Set<String> SORTABLE_COLUMNS = Set.of("id", "name", "price", "amount", "pub");
+
+	@Override
+	@ReplicaRead
+	public List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset,
+			int limit) {
+		String column = SORTABLE_COLUMNS.contains(sortColumn) ? sortColumn : "id";
+		List<Object> args = new ArrayList<>();
+		// 排序欄位相同時再依 id 排, 翻頁時順序才會固定
+		String sql = "select " + BookRowMapper.COLUMNS + " from book" + where(keyword, pub, args) + " order by "
+				+ column + (ascending ? " asc" : " desc") + ", id limit ? offset ?";
+		args.add(limit);
+		args.add(offset);
+		return jdbcTemplate.query(sql, BookRowMapper.INSTANCE, args.toArray());
+	}
+
+	@Override
+	@ReplicaRead
+	public long countBooks(String keyword, Boolean pub) {
+		List<Object> args = new ArrayList<>();
+		return jdbcTemplate.queryForObject("select count(*) from book" + where(keyword, pub, args), Long.class,
+				args.toArray());
+	}
+
+	// 組出 findBooks/countBooks 的過濾條件, 參數依序放進 args; 沒有條件時回傳空字串
+	private static String where(String keyword, Boolean pub, List<Object> args) {
+		List<String> conditions = new ArrayList<>();
+		if (keyword != null && !keyword.isBlank()) {
+			conditions.add("name like ?");
+			args.add(toLikePattern(keyword));
+		}
+		if (pub != null) {
+			conditions.add("coalesce(pub, false) = ?"); // pub 為 null 視為停刊, 與 InMemory 版相同
+			args.add(pub);
+		}
+		return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+	}
+
+	// 與 findAllBooks 讀同一個來源 (讀寫分離時是 replica), 三個值在同一個查詢裡算出
+	@Override
+	@ReplicaRead
+	public CollectionVersion getCollectionVersion() {
+		return jdbcTemplate.queryForObject("select count(*), max(updated_at), coalesce(sum(version), 0) from book",
+				(rs, rowNum) -> {
+					Timestamp lastModified = rs.getTimestamp(2); // 沒有資料時為 null
+					return new CollectionVersion(rs.getLong(1), lastModified == null ? 0 : lastModified.getTime(),
+							rs.getLong(3));
+				});
+	}
+
+	// 使用者輸入的 % 與 _ 要跳脫, 否則會被當成萬用字元
+	private static String toLikePattern(String keyword) {
+		String escaped = keyword.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+		return "%" + escaped + "%";
+	}
+
+	@Override
+	@ReplicaRead
 	public Optional<Book> getBookById(Integer id) {
-		String sql = "select id, name, price, amount, pub from book where id=?";
+		String sql = "select " + BookRowMapper.COLUMNS + " from book where id=?";
 		/**
 		 * 第一種方法:List<Book> books = jdbcTemplate.query(sql, new
 		 * BeanPropertyRowMapper<>(Book.class), id); return books.isEmpty() ?
@@ -38,7 +149,7 @@ public class BookRepositoryJdbcImpl implements BookRepository {
 		 */
 		try {
 			// 查單筆
-			Book book = jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(Book.class), id);
+			Book book = jdbcTemplate.queryForObject(sql, BookRowMapper.INSTANCE, id);
 			return Optional.of(book);
 		} catch (EmptyResultDataAccessException e) {
 			// 沒查到資料會拋出例外
@@ -47,14 +158,50 @@ public class BookRepositoryJdbcImpl implements BookRepository {
 
 	}
 
+	// 寫入後讀回用, 不標 @ReplicaRead: 一定走 primary, 不會讀到 replica 還沒同步的舊資料
+	@Override
+	public List<Book> findBooksByIds(List<Integer> ids) {
+		List<Book> books = new ArrayList<>(ids.size());
+		for (int from = 0; from < ids.size(); from += batchChunkSize) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + batchChunkSize, ids.size()));
+			String sql = "select " + BookRowMapper.COLUMNS + " from book where id in ("
+					+ String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+			books.addAll(jdbcTemplate.query(sql, BookRowMapper.INSTANCE, chunk.toArray()));
+		}
+		return books;
+	}
+
+	// 走 idx_book_updated_at_version 索引, 只讀最近有異動的幾筆
+	@Override
+	@ReplicaRead
+	public List<Book> findBooksUpdatedSince(Instant since) {
+		String sql = "select " + BookRowMapper.COLUMNS + " from book where updated_at >= ? order by updated_at";
+		return jdbcTemplate.query(sql, BookRowMapper.INSTANCE, Timestamp.from(since));
+	}
+
 	@Override
 	public boolean addBook(Book book) {
 		// 檢查 book.getPub() 是否是 null, 若是 null 則設定成 false
 //		if (book.getPub() == null) {
 //			book.setPub(false);
 //		}
-		String sql = "insert into book(name, price, amount, pub) values(?, ?, ?, ?)";
-		int rows = jdbcTemplate.update(sql, book.getName(), book.getPrice(), book.getAmount(), book.getPub());
+		String sql = "insert into book(name, price, amount, pub, version, updated_at) "
+				+ "values(?, ?, ?, ?, 0, current_timestamp(3))";
+		// id 由資料庫產生: 不理會前端帶來的 id, 新增後把產生的 id 設回 book (發佈事件、讀寫分離都靠這個 id)
+		book.setId(null);
+		KeyHolder keyHolder = new GeneratedKeyHolder();
+		int rows = jdbcTemplate.update(con -> {
+			PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+			ps.setString(1, book.getName());
+			ps.setObject(2, book.getPrice());
+			ps.setObject(3, book.getAmount());
+			ps.setObject(4, book.getPub());
+			return ps;
+		}, keyHolder);
+		List<Map<String, Object>> keys = keyHolder.getKeyList();
+		if (rows > 0 && !keys.isEmpty()) {
+			book.setId(((Number) keys.get(0).values().iterator().next()).intValue());
+		}
 		return rows > 0; // 如果小於0就會是false
 	}
 
@@ -64,7 +211,8 @@ public class BookRepositoryJdbcImpl implements BookRepository {
 //		if (book.getPub() == null) {
 //			book.setPub(false);
 //		}
-		String sql = "update book set name = ?, price = ?, amount = ?, pub = ? where id = ?";
+		String sql = "update book set name = ?, price = ?, amount = ?, pub = ?, version = version + 1, "
+				+ "updated_at = current_timestamp(3) where id = ?";
 		int rows = jdbcTemplate.update(sql, book.getName(), book.getPrice(), book.getAmount(), book.getPub(), id);
 		return rows > 0;
 	}
@@ -77,4 +225,100 @@ public class BookRepositoryJdbcImpl implements BookRepository {
 		// return jdbcTemplate.update("delete from book where id = ?", id) > 0;
 	}
 
+	@Override
+	public Optional<Book> patchBook(Integer id, String name, Double price, Integer expectedVersion) {
+		// 只改有帶值的欄位, 版本檢查與修改在同一個 update 指令完成, 不會有「先讀後寫」之間被別人改掉的問題
+		String sql = "update book set name = coalesce(?, name), price = coalesce(?, price), version = version + 1, "
+				+ "updated_at = current_timestamp(3) where id = ?";
+		// MySQL 沒有 update ... returning, 修改成功後用主鍵讀回最新資料(含新的 version)
+		// 兩個指令在同一個交易 (同一條 primary 連線) 裡, 讀回的一定是這次修改的結果, 不會混到別人接著做的修改
+		return transactionTemplate.execute(status -> {
+			int rows = expectedVersion == null ? jdbcTemplate.update(sql, name, price, id)
+					: jdbcTemplate.update(sql + " and version = ?", name, price, id, expectedVersion);
+			if (rows == 0) {
+				return Optional.<Book>empty();
+			}
+			return Optional.of(jdbcTemplate.queryForObject("select " + BookRowMapper.COLUMNS + " from book where id=?",
+					BookRowMapper.INSTANCE, id));
+		});
+	}
+
+	@Override
+	public int[] addBooks(List<Book> books) {
+		String sql = "insert into book(name, price, amount, pub, version, updated_at) "
+				+ "values(?, ?, ?, ?, 0, current_timestamp(3))";
+		return executeInChunks(books, chunk -> {
+			KeyHolder keyHolder = new GeneratedKeyHolder();
+			int[] rows = jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+					new BatchPreparedStatementSetter() {
+						@Override
+						public void setValues(PreparedStatement ps, int i) throws SQLException {
+							Book book = chunk.get(i);
+							ps.setString(1, book.getName());
+							ps.setObject(2, book.getPrice());
+							ps.setObject(3, book.getAmount());
+							ps.setObject(4, book.getPub());
+						}
+
+						@Override
+						public int getBatchSize() {
+							return chunk.size();
+						}
+					}, keyHolder);
+			// 產生的 id 順序與新增順序相同, 設回每一本書
+			List<Map<String, Object>> keys = keyHolder.getKeyList();
+			for (int i = 0; i < keys.size() && i < chunk.size(); i++) {
+				chunk.get(i).setId(((Number) keys.get(i).values().iterator().next()).intValue());
+			}
+			return rows;
+		});
+	}
+
+	@Override
+	public int[] updateBooks(List<Book> books) {
+		String sql = "update book set name = ?, price = ?, amount = ?, pub = ?, version = version + 1, "
+				+ "updated_at = current_timestamp(3) where id = ?";
+		return executeInChunks(books, chunk -> jdbcTemplate.batchUpdate(sql, chunk.stream()
+				.map(book -> new Object[] { book.getName(), book.getPrice(), book.getAmount(), book.getPub(), book.getId() })
+				.toList()));
+	}
+
+	@Override
+	public int[] deleteBooks(List<Integer> ids) {
+		String sql = "delete from book where id = ?";
+		return executeInChunks(ids, chunk -> jdbcTemplate.batchUpdate(sql, chunk.stream()
+				.map(id -> new Object[] { id })
+				.toList()));
+	}
+
+	// 每 batchChunkSize 筆送一次批次, 每一段在同一個交易裡: 整段成功才 commit, 回傳的結果與資料庫一致
+	// 某一段失敗時整段 rollback (沒有任何一筆寫入), 再逐筆重送找出真正失敗的那幾筆, 其他筆照常寫入
+	// (不用 BatchUpdateException.getUpdateCounts(): rewriteBatchedStatements 合併送出時各家 driver 回傳的內容不一致)
+	private <T> int[] executeInChunks(List<T> items, Function<List<T>, int[]> chunkExecutor) {
+		int[] results = new int[items.size()];
+		for (int from = 0; from < items.size(); from += batchChunkSize) {
+			int to = Math.min(from + batchChunkSize, items.size());
+			List<T> chunk = items.subList(from, to);
+			try {
+				int[] rows = transactionTemplate.execute(status -> chunkExecutor.apply(chunk));
+				System.arraycopy(rows, 0, results, from, Math.min(rows.length, to - from));
+			} catch (DataAccessException e) {
+				for (int i = from; i < to; i++) {
+					results[i] = executeOne(items.subList(i, i + 1), chunkExecutor);
+				}
+			}
+		}
+		return results;
+	}
+
+	// 單筆重送 (自動 commit), 失敗回傳 EXECUTE_FAILED
+	private static <T> int executeOne(List<T> item, Function<List<T>, int[]> chunkExecutor) {
+		try {
+			int[] rows = chunkExecutor.apply(item);
+			return rows.length == 0 ? Statement.EXECUTE_FAILED : rows[0];
+		} catch (DataAccessException e) {
+			return Statement.EXECUTE_FAILED;
+		}
+	}
+
 }
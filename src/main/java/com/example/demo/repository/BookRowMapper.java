@@ -0,0 +1,29 @@
+package com.example.demo.repository;
+
+import static com.example.demo.repository.PositionalRowMapper.getBoolean;
+import static com.example.demo.repository.PositionalRowMapper.getDouble;
+import static com.example.demo.repository.PositionalRowMapper.getInstant;
+import static com.example.demo.repository.PositionalRowMapper.getInteger;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.demo.model.Book;
+
+// Book 專用的 RowMapper, 全程式共用同一個實例(沒有狀態, 多執行緒共用也安全)
+public final class BookRowMapper {
+
+	// select 的欄位順序, 必須與下面 INSTANCE 的欄位順序一致
+	public static final String COLUMNS = "id, name, price, amount, pub, version, updated_at";
+
+	public static final RowMapper<Book> INSTANCE = new PositionalRowMapper<Book>(Book::new,
+			(rs, i, book) -> book.setId(getInteger(rs, i)),
+			(rs, i, book) -> book.setName(rs.getString(i)),
+			(rs, i, book) -> book.setPrice(getDouble(rs, i)),
+			(rs, i, book) -> book.setAmount(getInteger(rs, i)),
+			(rs, i, book) -> book.setPub(getBoolean(rs, i)),
+			(rs, i, book) -> book.setVersion(getInteger(rs, i)),
+			(rs, i, book) -> book.setUpdatedAt(getInstant(rs, i)));
+
+	private BookRowMapper() {
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.demo.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.RowMapper;
+
+// 依「欄位位置」對應的 RowMapper (通用版, 之後其他 entity 也可以用)
+// BeanPropertyRowMapper 每次建立都要用反射分析 class, 每一筆每一欄還要用欄位名稱比對 setter
+// 這裡改成事先寫好「第 i 欄 -> 哪個 setter」, 執行時只是依序呼叫, 沒有反射也沒有字串比對
+// 注意: SQL 的 select 欄位順序必須與 columns 順序一致
+public class PositionalRowMapper<T> implements RowMapper<T> {
+
+	// 讀取第 index 欄(從 1 開始)並設定到 target
+	@FunctionalInterface
+	public interface Column<T> {
+		void read(ResultSet rs, int index, T target) throws SQLException;
+	}
+
+	private final Supplier<T> factory; // 建立空物件, 例如 Book::new
+	private final Column<T>[] columns;
+
+	@SafeVarargs
+	public PositionalRowMapper(Supplier<T> factory, Column<T>... columns) {
+		this.factory = factory;
+		this.columns = columns;
+	}
+
+	@Override
+	public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+		T target = factory.get();
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].read(rs, i + 1, target);
+		}
+		return target;
+	}
+
+	// 以下是 null 安全的取值工具: getInt/getDouble 遇到 null 會回傳 0, 要再用 wasNull() 判斷
+	public static Integer getInteger(ResultSet rs, int index) throws SQLException {
+		int value = rs.getInt(index);
+		return rs.wasNull() ? null : value;
+	}
+
+	public static Double getDouble(ResultSet rs, int index) throws SQLException {
+		double value = rs.getDouble(index);
+		return rs.wasNull() ? null : value;
+	}
+
+	public static Boolean getBoolean(ResultSet rs, int index) throws SQLException {
+		boolean value = rs.getBoolean(index);
+		return rs.wasNull() ? null : value;
+	}
+
+	public static Instant getInstant(ResultSet rs, int index) throws SQLException {
+		Timestamp value = rs.getTimestamp(index);
+		return value == null ? null : value.toInstant();
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.demo.response;
+
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// keyset(游標)分頁的回應結構
+// 不用 offset 的原因: offset 越後面資料庫要跳過的筆數越多, keyset 直接從上一頁最後一筆的 id 接著查
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+	private List<T> items; // 本頁資料
+	private Integer nextCursor; // 下一頁要帶的 after 參數, 沒有下一頁時為 null
+	private boolean hasMore; // 是否還有下一頁
+
+	// rows 是用 size + 1 查出來的, 多出來的那一筆只用來判斷有沒有下一頁
+	public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, Integer> cursorOf) {
+		boolean hasMore = rows.size() > size;
+		List<T> items = hasMore ? rows.subList(0, size) : rows;
+		Integer nextCursor = hasMore ? cursorOf.apply(items.get(items.size() - 1)) : null;
+		return new CursorPage<T>(items, nextCursor, hasMore);
+	}
+}
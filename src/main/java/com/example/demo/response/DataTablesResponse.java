@@ -0,0 +1,18 @@
+package com.example.demo.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// jQuery DataTables 伺服器端處理(serverSide: true)規定的回應格式
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DataTablesResponse<T> {
+	private int draw; // 原封不動傳回前端送來的 draw, DataTables 用來丟棄過期的回應
+	private long recordsTotal; // 過濾前的總筆數
+	private long recordsFiltered; // 過濾後的筆數(分頁按鈕依這個計算)
+	private List<T> data; // 本頁資料
+}
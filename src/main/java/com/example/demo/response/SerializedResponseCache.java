@@ -0,0 +1,167 @@
+package com.example.demo.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.model.CollectionVersion;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// 已轉好的 JSON 回應快取 (GET /book 與 GET /book/{id})
+// 同一個版本的資料轉出來的 JSON 每次都一樣, 所以只用 Jackson 轉一次, 存成 byte[] (原始與 gzip 各一份),
+// 之後直接把 bytes 寫進回應, 不再轉 JSON 也不再壓縮
+// 清單以「讀出來的那些書」算出的 CollectionVersion 為版本 (不是另外查的版本, replica 落後時兩者可能不同),
+// 單筆以書籍的 version 為版本; 版本不符就當作沒有, 收到異動事件時也會清掉該筆
+// 另外最多保留 ttl, 萬一漏掉事件 (例如別台伺服器的異動) 也不會一直回傳同一份
+@Component
+public class SerializedResponseCache {
+
+	// 一份轉好的回應, gzip 為 null 代表太小不值得壓縮
+	public record Entry(byte[] json, byte[] gzip) {
+	}
+
+	// 回應與產生它的資料版本
+	private record Versioned<V>(V version, Entry entry) {
+	}
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private BookEventBus bookEventBus;
+
+	private static final String COLLECTION = "all";
+
+	private final int gzipMinSize;
+	private final Cache<Integer, Versioned<Long>> books;
+	private final Cache<String, Versioned<CollectionVersion>> collection; // 只有一筆
+
+	private final Counter hits;
+	private final Counter misses;
+
+	public SerializedResponseCache(@Value("${book.response-cache.maximum-size:10000}") long maximumSize,
+			@Value("${book.response-cache.gzip-min-size:1KB}") DataSize gzipMinSize,
+			@Value("${book.response-cache.ttl:5m}") Duration ttl, MeterRegistry registry) {
+		this.gzipMinSize = (int) gzipMinSize.toBytes();
+		this.books = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+		this.collection = Caffeine.newBuilder().maximumSize(1).expireAfterWrite(ttl).build();
+		this.hits = Counter.builder("book.response.cache").tag("result", "hit").register(registry);
+		this.misses = Counter.builder("book.response.cache").tag("result", "miss").register(registry);
+	}
+
+	@PostConstruct
+	public void subscribe() {
+		bookEventBus.addListener(event -> {
+			books.invalidate(event.getBookId());
+			collection.invalidateAll(); // 版本一定也變了, 提早釋放記憶體
+		});
+	}
+
+	// 書籍清單, 版本不符時回傳 null
+	public Entry getCollection(CollectionVersion version) {
+		return count(match(collection.getIfPresent(COLLECTION), version));
+	}
+
+	// version 要用 CollectionVersion.of(body 裡的書) 算, 才不會把舊資料存在新版本底下
+	public Entry putCollection(CollectionVersion version, Object body) {
+		Entry entry = serialize(body);
+		// 不要用舊版本蓋掉新版本 (清單版本沒有大小順序, 以最後修改時間判斷)
+		collection.asMap().merge(COLLECTION, new Versioned<>(version, entry),
+				(old, created) -> old.version().lastModified() > version.lastModified() ? old : created);
+		return entry;
+	}
+
+	// 單筆書籍, 版本不符時回傳 null
+	public Entry getBook(Integer id, long version) {
+		return count(match(books.getIfPresent(id), version));
+	}
+
+	public Entry putBook(Integer id, long version, Object body) {
+		Entry entry = serialize(body);
+		books.asMap().merge(id, new Versioned<>(version, entry),
+				(old, created) -> old.version() > created.version() ? old : created);
+		return entry;
+	}
+
+	// 依 Accept-Encoding 選擇原始或 gzip 版本, 以 byte[] 直接寫出 (不經過 Jackson)
+	// no-cache: 瀏覽器可以存, 但每次使用前都要帶 ETag 回來確認
+	public static ResponseEntity<byte[]> toResponse(Entry entry, String acceptEncoding) {
+		return toResponse(entry, acceptEncoding, CacheControl.noCache());
+	}
+
+	public static ResponseEntity<byte[]> toResponse(Entry entry, String acceptEncoding, CacheControl cacheControl) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(cacheControl)
+				.contentType(MediaType.APPLICATION_JSON).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (entry.gzip() != null && acceptsGzip(acceptEncoding)) {
+			return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzip());
+		}
+		return builder.body(entry.json());
+	}
+
+	// Accept-Encoding 有 gzip 且不是 gzip;q=0
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+				return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	private static <V> Entry match(Versioned<V> versioned, V version) {
+		return versioned != null && versioned.version().equals(version) ? versioned.entry() : null;
+	}
+
+	private Entry count(Entry entry) {
+		(entry != null ? hits : misses).increment();
+		return entry;
+	}
+
+	private Entry serialize(Object body) {
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(body);
+			return new Entry(json, json.length >= gzipMinSize ? gzip(json) : null);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// 只壓一次, 所以用最高壓縮等級
+	private static byte[] gzip(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		}) {
+			gzip.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // ByteArrayOutputStream 不會發生
+		}
+		return out.toByteArray();
+	}
+}
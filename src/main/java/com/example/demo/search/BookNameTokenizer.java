@@ -0,0 +1,77 @@
+package com.example.demo.search;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// 書名斷詞
+// - 中日韓文字: 沒有空白分詞, 用單字 + 相鄰兩字(bigram), 例如 "小叮噹" -> 小, 叮, 噹, 小叮, 叮噹
+// - 英文/數字: 連續的英數字當一個詞, 查詢時用前綴比對 (打 "mat" 就能找到 "math")
+// 索引與查詢都先做 NFKC 正規化(全形轉半形)並轉小寫
+final class BookNameTokenizer {
+
+	private BookNameTokenizer() {
+	}
+
+	static String normalize(String text) {
+		return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+	}
+
+	// 書名要建立索引的中日韓詞(單字與 bigram)
+	static Set<String> cjkIndexTerms(String normalized) {
+		Set<String> terms = new LinkedHashSet<>();
+		forEachRun(normalized, true, run -> {
+			for (int i = 0; i < run.length(); i++) {
+				terms.add(run.substring(i, i + 1));
+				if (i + 1 < run.length()) {
+					terms.add(run.substring(i, i + 2));
+				}
+			}
+		});
+		return terms;
+	}
+
+	// 查詢用的中日韓詞: 只取 bigram (全部都要出現), 只有一個字時才用單字
+	static Set<String> cjkQueryTerms(String normalized) {
+		Set<String> terms = new LinkedHashSet<>();
+		forEachRun(normalized, true, run -> {
+			if (run.length() == 1) {
+				terms.add(run);
+			}
+			for (int i = 0; i + 1 < run.length(); i++) {
+				terms.add(run.substring(i, i + 2));
+			}
+		});
+		return terms;
+	}
+
+	// 英數字詞(索引與查詢相同)
+	static Set<String> words(String normalized) {
+		Set<String> words = new LinkedHashSet<>();
+		forEachRun(normalized, false, words::add);
+		return words;
+	}
+
+	// 找出連續的中日韓字元(cjk = true)或連續的英數字(cjk = false)
+	private static void forEachRun(String text, boolean cjk, Consumer<String> consumer) {
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			char c = i < text.length() ? text.charAt(i) : ' ';
+			boolean inRun = cjk ? isCjk(c) : Character.isLetterOrDigit(c) && !isCjk(c);
+			if (inRun && start < 0) {
+				start = i;
+			} else if (!inRun && start >= 0) {
+				consumer.accept(text.substring(start, i));
+				start = -1;
+			}
+		}
+	}
+
+	private static boolean isCjk(char c) {
+		Character.UnicodeScript script = Character.UnicodeScript.of(c);
+		return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+				|| script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+	}
+}
@@ -0,0 +1,357 @@
+package com.example.demo.search;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.event.BookEvent;
+import com.example.demo.event.BookEventBus;
+import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.BookService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// 書名搜尋的記憶體反向索引 (term -> 書籍 id)
+// 啟動後在背景從資料庫串流建立, 之後由 BookEventBus 的新增/修改/刪除事件逐筆更新, 不用再回資料庫 LIKE '%...%'
+// 事件只有這台伺服器的異動, 所以另外每 refresh-interval 對帳一次: 讀回最近 updated_at 有變的書,
+// 再比對索引與資料庫的 CollectionVersion (筆數、最後修改時間、version 總和), 不一致 (例如別台刪了書) 就整個重新串流一次
+// 查詢: 中文 bigram 全部都要出現 (AND), 英數字用前綴比對; 依書名相同/開頭相符/連續出現與相符比例排序, 取前 k 筆
+@Component
+public class BookSearchIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	@Qualifier("bookRepositoryJdbcImpl")
+	private BookRepository bookRepository; // 對帳用 (最近異動的書、資料庫的版本)
+
+	@Autowired
+	private BookEventBus bookEventBus;
+
+	@Value("${book.search.refresh-interval:30s}")
+	private Duration refreshInterval;
+
+	// 建立與對帳都在這條執行緒上依序執行
+	private final ScheduledExecutorService executor = Executors
+			.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("book-search-index").daemon().factory());
+
+	// 讀多寫少: 查詢拿讀鎖可以同時進行, 更新索引時拿寫鎖
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Document> documents = new HashMap<>();
+	private final Map<String, Set<Integer>> cjkPostings = new HashMap<>();
+	private final TreeMap<String, Set<Integer>> wordPostings = new TreeMap<>(); // 排序過, 才能做前綴查詢
+
+	// 每本書最後套用的事件序號: 事件監聽者可能同時執行, 晚到的舊事件 (例如刪除之後才到的修改) 要略過
+	// 順序顛倒只會發生在同時發佈的幾筆之間, 留一分鐘就夠
+	private final Cache<Integer, Long> appliedSeqs = Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(1))
+			.maximumSize(100_000).build();
+
+	private Set<Integer> touchedDuringBuild; // 串流建立期間被事件異動過的 id, 串流讀到的舊資料要略過
+	private volatile boolean ready;
+	private Instant lastRefresh; // 上次建立/對帳開始的時間, 只在 executor 上使用
+
+	// 索引中的一本書
+	private record Document(Book book, String normalizedName, Set<String> cjkTerms, Set<String> words) {
+	}
+
+	// 查詢結果與分數
+	private record Hit(Document document, double score) {
+	}
+
+	private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score)
+			.thenComparingInt(hit -> -hit.document().book().getId()); // 同分時 id 小的排前面
+
+	@PostConstruct
+	public void subscribe() {
+		bookEventBus.addListener(this::onEvent); // 先訂閱再建立, 建立期間的異動才不會漏掉
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void build() {
+		executor.execute(this::refresh);
+		long interval = refreshInterval.toMillis();
+		executor.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	// 第一次 (或上次建立失敗) 整個串流建立; 之後只讀最近異動的書, 版本對不上才整個重新串流
+	void refresh() {
+		Instant started = Instant.now();
+		try {
+			if (!ready) {
+				long start = System.currentTimeMillis();
+				resync();
+				ready = true;
+				logger.info("書名搜尋索引建立完成: {} 本書, {} 個詞, 耗時 {} ms", size(), termCount(),
+						System.currentTimeMillis() - start);
+			} else {
+				// 往前多抓一個間隔: replica 延遲或還沒 commit 的交易, 在上次對帳時可能還看不到
+				List<Book> changed = bookRepository.findBooksUpdatedSince(lastRefresh.minus(refreshInterval));
+				withWriteLock(() -> changed.forEach(this::put));
+				CollectionVersion expected = bookRepository.getCollectionVersion();
+				CollectionVersion actual = version();
+				if (!expected.equals(actual)) {
+					logger.info("書名搜尋索引與資料庫不一致 (索引 {}, 資料庫 {}), 重新串流", actual, expected);
+					resync();
+				}
+			}
+			lastRefresh = started;
+		} catch (RuntimeException e) {
+			logger.error(ready ? "書名搜尋索引對帳失敗" : "書名搜尋索引建立失敗", e);
+		}
+	}
+
+	// 從資料庫串流全部的書: 加入/更新每一本, 最後移除資料庫裡已經沒有的 (串流期間被事件異動過的以事件為準)
+	private void resync() {
+		withWriteLock(() -> touchedDuringBuild = new HashSet<>());
+		try {
+			Set<Integer> seen = new HashSet<>();
+			bookService.streamAllBooks(book -> withWriteLock(() -> {
+				seen.add(book.getId());
+				if (!touchedDuringBuild.contains(book.getId())) {
+					put(book);
+				}
+			}));
+			withWriteLock(() -> {
+				List<Integer> gone = documents.keySet().stream()
+						.filter(id -> !seen.contains(id) && !touchedDuringBuild.contains(id)).toList();
+				gone.forEach(this::remove);
+			});
+		} finally {
+			withWriteLock(() -> touchedDuringBuild = null);
+		}
+	}
+
+	// 索引目前內容的版本, 算法與 BookRepository.getCollectionVersion() 相同
+	CollectionVersion version() {
+		lock.readLock().lock();
+		try {
+			return CollectionVersion.of(documents.values().stream().map(Document::book).toList());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int termCount() {
+		lock.readLock().lock();
+		try {
+			return cjkPostings.size() + wordPostings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void withWriteLock(Runnable action) {
+		lock.writeLock().lock();
+		try {
+			action.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	// 書籍異動事件 (在發佈事件的執行緒上執行, 不同請求的事件可能同時到、順序顛倒), 帶的是資料庫中實際存的資料
+	private void onEvent(BookEvent event) {
+		if (event.getBookId() == null) {
+			return;
+		}
+		withWriteLock(() -> {
+			Long applied = appliedSeqs.getIfPresent(event.getBookId());
+			if (applied != null && applied > event.getSeq()) {
+				return;
+			}
+			appliedSeqs.put(event.getBookId(), event.getSeq());
+			if (touchedDuringBuild != null) {
+				touchedDuringBuild.add(event.getBookId());
+			}
+			if (event.getType() == BookEvent.Type.DELETED) {
+				remove(event.getBookId());
+			} else if (event.getBook() != null) {
+				put(event.getBook());
+			}
+		});
+	}
+
+	// 搜尋書名, pub/minPrice/maxPrice 為 null 時不過濾, 回傳分數最高的 limit 筆
+	public List<Book> search(String query, Boolean pub, Double minPrice, Double maxPrice, int limit) {
+		String normalized = BookNameTokenizer.normalize(query).strip();
+		Set<String> cjkTerms = BookNameTokenizer.cjkQueryTerms(normalized);
+		Set<String> words = BookNameTokenizer.words(normalized);
+		if (limit <= 0 || (cjkTerms.isEmpty() && words.isEmpty())) {
+			return List.of();
+		}
+		lock.readLock().lock();
+		try {
+			// 每個查詢詞對應的 id 集合, 全部都要符合
+			List<Set<Integer>> required = new ArrayList<>(cjkTerms.size() + words.size());
+			for (String term : cjkTerms) {
+				Set<Integer> ids = cjkPostings.get(term);
+				if (ids == null) {
+					return List.of();
+				}
+				required.add(ids);
+			}
+			for (String word : words) {
+				Set<Integer> ids = prefixMatches(word);
+				if (ids.isEmpty()) {
+					return List.of();
+				}
+				required.add(ids);
+			}
+			required.sort(Comparator.comparingInt(Set::size)); // 從最小的集合開始交集
+			PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, RANKING);
+			for (Integer id : required.get(0)) {
+				if (!containsAll(required, id)) {
+					continue;
+				}
+				Document document = documents.get(id);
+				if (document == null || !matchesFilter(document.book(), pub, minPrice, maxPrice)) {
+					continue;
+				}
+				top.add(new Hit(document, score(document, normalized)));
+				if (top.size() > limit) {
+					top.poll(); // 只保留分數最高的 limit 筆
+				}
+			}
+			List<Book> results = new ArrayList<>(top.size());
+			while (!top.isEmpty()) {
+				results.add(top.poll().document().book().copy());
+			}
+			Collections.reverse(results);
+			return results;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// 英數字前綴: 所有以 prefix 開頭的詞的 id 聯集
+	private Set<Integer> prefixMatches(String prefix) {
+		Map<String, Set<Integer>> matches = wordPostings.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+		if (matches.size() == 1) {
+			return matches.values().iterator().next();
+		}
+		Set<Integer> union = new HashSet<>();
+		matches.values().forEach(union::addAll);
+		return union;
+	}
+
+	private static boolean containsAll(List<Set<Integer>> required, Integer id) {
+		for (int i = 1; i < required.size(); i++) {
+			if (!required.get(i).contains(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matchesFilter(Book book, Boolean pub, Double minPrice, Double maxPrice) {
+		if (pub != null && !pub.equals(book.getPub())) {
+			return false;
+		}
+		Double price = book.getPrice();
+		if (minPrice != null && (price == null || price < minPrice)) {
+			return false;
+		}
+		return maxPrice == null || (price != null && price <= maxPrice);
+	}
+
+	// 分數 = 查詢佔書名的比例 (越完整相符越前面) + 書名相同/開頭相符的加分
+	private static double score(Document document, String normalizedQuery) {
+		String name = document.normalizedName();
+		double score = Math.min(1.0, (double) normalizedQuery.length() / Math.max(1, name.length()));
+		if (name.equals(normalizedQuery)) {
+			score += 3;
+		} else if (name.startsWith(normalizedQuery)) {
+			score += 2;
+		} else if (name.contains(normalizedQuery)) {
+			score += 1; // 查詢字串連續出現在書名中 (bigram 都有但不一定相連)
+		}
+		return score;
+	}
+
+	// 以下在寫鎖內呼叫
+	private void put(Book book) {
+		if (book.getId() == null || book.getName() == null) {
+			return;
+		}
+		Document existing = documents.get(book.getId());
+		if (existing != null && isNewer(existing.book(), book)) {
+			return; // 索引裡已經是更新的版本 (例如事件比對帳查詢的結果先到)
+		}
+		remove(book.getId());
+		String normalized = BookNameTokenizer.normalize(book.getName());
+		Document document = new Document(book.copy(), normalized, BookNameTokenizer.cjkIndexTerms(normalized),
+				BookNameTokenizer.words(normalized));
+		documents.put(book.getId(), document);
+		document.cjkTerms().forEach(term -> cjkPostings.computeIfAbsent(term, t -> new HashSet<>()).add(book.getId()));
+		document.words().forEach(word -> wordPostings.computeIfAbsent(word, w -> new HashSet<>()).add(book.getId()));
+	}
+
+	private static boolean isNewer(Book current, Book incoming) {
+		return current.getVersion() != null && incoming.getVersion() != null
+				&& current.getVersion() > incoming.getVersion();
+	}
+
+	private void remove(Integer id) {
+		Document document = documents.remove(id);
+		if (document == null) {
+			return;
+		}
+		document.cjkTerms().forEach(term -> removePosting(cjkPostings, term, id));
+		document.words().forEach(word -> removePosting(wordPostings, word, id));
+	}
+
+	private static void removePosting(Map<String, Set<Integer>> postings, String term, Integer id) {
+		Set<Integer> ids = postings.get(term);
+		if (ids != null && ids.remove(id) && ids.isEmpty()) {
+			postings.remove(term);
+		}
+	}
+}
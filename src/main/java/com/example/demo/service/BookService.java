@@ -1,13 +1,31 @@
 package com.example.demo.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.example.demo.exception.BookException;
+import com.example.demo.model.BatchResult;
 import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
 
 public interface BookService {
 	List<Book> findAllBooks();
 
+	// keyset 分頁, lastId 為 null 代表第一頁
+	List<Book> findBooksAfter(Integer lastId, int limit);
+
+	// 串流查詢, 每讀到一筆就交給 consumer
+	void streamAllBooks(Consumer<Book> consumer);
+
+	// 依書名關鍵字與出刊狀態過濾 + 排序 + 分頁(DataTables 伺服器端處理用), 條件為 null 代表不過濾
+	List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset, int limit);
+
+	long countBooks(String keyword, Boolean pub);
+
+	// 書籍清單的版本, 由資料庫算出, 任何新增/修改/刪除 (不論是哪一台伺服器做的) 都會讓它改變
+	// 用來產生 GET /book 的 ETag 與 Last-Modified, 只查一筆彙總, 不用讀出整張表
+	CollectionVersion getCollectionVersion();
+
 	// 不用用optional了(因為沒找到會直接bookexception
 	Book getBookById(Integer id) throws BookException;
 
@@ -16,11 +34,20 @@ public interface BookService {
 
 	void updateBook(Integer id, Book book) throws BookException;
 
-	void updateBookName(Integer id, String name) throws BookException;
+	// 部分修改: 單一 update 指令完成, 回傳修改後的資料
+	// expectedVersion 不為 null 時會檢查版本, 不符丟出 BookConflictException
+	Book updateBookName(Integer id, String name, Integer expectedVersion) throws BookException;
 
-	void updateBookPrice(Integer id, Double price) throws BookException;
+	Book updateBookPrice(Integer id, Double price, Integer expectedVersion) throws BookException;
 
-	void updateBookNameAndPrice(Integer id, String name, Double price) throws BookException;
+	Book updateBookNameAndPrice(Integer id, String name, Double price, Integer expectedVersion) throws BookException;
 
 	void deleteBook(Integer id) throws BookException;
+
+	// 批次操作: 不因單筆失敗而中斷, 每一筆的成功/失敗記錄在回傳的 BatchResult 中
+	List<BatchResult> addBooks(List<Book> books);
+
+	List<BatchResult> updateBooks(List<Book> books);
+
+	List<BatchResult> deleteBooks(List<Integer> ids);
 }
\ No newline at end of file
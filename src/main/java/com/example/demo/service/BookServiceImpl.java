@@ -1,14 +1,25 @@
 package com.example.demo.service;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.event.BookEvent;
+import com.example.demo.event.BookEventBus;
+import com.example.demo.exception.BookConflictException;
 import com.example.demo.exception.BookException;
+import com.example.demo.exception.BookNotFoundException;
+import com.example.demo.model.BatchResult;
 import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
 import com.example.demo.repository.BookRepository;
 
 @Service
@@ -21,16 +32,45 @@ public class BookServiceImpl implements BookService {
 	@Qualifier("bookRepositoryJdbcImpl") // 指定實現類。有兩個實現類,要指定是要用哪個
 	private BookRepository bookRepository;
 
+	@Autowired
+	private BookEventBus bookEventBus; // 異動成功後發佈事件, 給 GET /book/events 的訂閱者
+
+	@Override
+	public CollectionVersion getCollectionVersion() {
+		return bookRepository.getCollectionVersion();
+	}
+
 	@Override
 	public List<Book> findAllBooks() {
 		return bookRepository.findAllBooks();
 	}
 
+	@Override
+	public List<Book> findBooksAfter(Integer lastId, int limit) {
+		return bookRepository.findBooksAfter(lastId, limit);
+	}
+
+	@Override
+	public void streamAllBooks(Consumer<Book> consumer) {
+		bookRepository.streamAllBooks(consumer);
+	}
+
+	@Override
+	public List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset,
+			int limit) {
+		return bookRepository.findBooks(keyword, pub, sortColumn, ascending, offset, limit);
+	}
+
+	@Override
+	public long countBooks(String keyword, Boolean pub) {
+		return bookRepository.countBooks(keyword, pub);
+	}
+
 	@Override
 	public Book getBookById(Integer id) throws BookException {
 		Optional<Book> optBook = bookRepository.getBookById(id);
 		if (optBook.isEmpty()) {
-			throw new BookException("id: " + id + ", 查無此書");
+			throw new BookNotFoundException(id);
 		}
 		return optBook.get();
 	}
@@ -40,6 +80,7 @@ public class BookServiceImpl implements BookService {
 		if (!bookRepository.addBook(book)) {
 			throw new BookException("新增失敗, " + book);
 		}
+		publishPersisted(BookEvent.Type.CREATED, List.of(book.getId()));
 
 	}
 
@@ -48,28 +89,39 @@ public class BookServiceImpl implements BookService {
 		if (!bookRepository.updateBook(id, book)) {
 			throw new BookException("修改失敗, id: " + id + ", " + book);
 		}
+		publishPersisted(BookEvent.Type.UPDATED, List.of(id));
 	}
 
 	@Override
-	public void updateBookName(Integer id, String name) throws BookException {
-		Book book = getBookById(id);
-		book.setName(name);
-		updateBook(book.getId(), book);
+	public Book updateBookName(Integer id, String name, Integer expectedVersion) throws BookException {
+		return patchBook(id, name, null, expectedVersion);
 	}
 
 	@Override
-	public void updateBookPrice(Integer id, Double price) throws BookException {
-		Book book = getBookById(id);// 1. 根據 id 拿到對應的 Book 物件
-		book.setPrice(price); // 2. 設定這本書的新價格
-		updateBook(book.getId(), book); // 3. 呼叫更新邏輯，把修改後的 book 更新回 Repository
+	public Book updateBookPrice(Integer id, Double price, Integer expectedVersion) throws BookException {
+		return patchBook(id, null, price, expectedVersion);
 	}
 
 	@Override
-	public void updateBookNameAndPrice(Integer id, String name, Double price) throws BookException {
-		Book book = getBookById(id);
-		book.setName(name);
-		book.setPrice(price);
-		updateBook(book.getId(), book); // 模擬資料庫
+	public Book updateBookNameAndPrice(Integer id, String name, Double price, Integer expectedVersion)
+			throws BookException {
+		return patchBook(id, name, price, expectedVersion);
+	}
+
+	// 部分修改不再「先查再改」, 直接送出帶版本條件的 update
+	private Book patchBook(Integer id, String name, Double price, Integer expectedVersion) throws BookException {
+		Optional<Book> optBook = bookRepository.patchBook(id, name, price, expectedVersion);
+		if (optBook.isPresent()) {
+			bookEventBus.publish(BookEvent.Type.UPDATED, id, optBook.get());
+			return optBook.get();
+		}
+		// 沒有修改到任何一筆: 不是查無此書, 就是版本不符(只有失敗時才多查一次)
+		Optional<Book> current = bookRepository.getBookById(id);
+		if (current.isEmpty()) {
+			throw new BookNotFoundException(id);
+		}
+		throw new BookConflictException(
+				"id: " + id + ", 版本不符(目前版本: " + current.get().getVersion() + ", 預期版本: " + expectedVersion + ")");
 	}
 
 	@Override
@@ -77,7 +129,81 @@ public class BookServiceImpl implements BookService {
 		if (!bookRepository.deleteBook(id)) {
 			throw new BookException("刪除失敗, id: " + id);
 		}
+		bookEventBus.publish(BookEvent.Type.DELETED, id, null);
+
+	}
+
+	@Override
+	public List<BatchResult> addBooks(List<Book> books) {
+		int[] rows = bookRepository.addBooks(books);
+		List<BatchResult> results = new ArrayList<>(rows.length);
+		List<Integer> created = new ArrayList<>(rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			Book book = books.get(i);
+			if (isSuccess(rows[i])) {
+				created.add(book.getId());
+				results.add(new BatchResult(i, book.getId(), true, "新增成功"));
+			} else {
+				results.add(new BatchResult(i, null, false, "新增失敗, " + book));
+			}
+		}
+		publishPersisted(BookEvent.Type.CREATED, created);
+		return results;
+	}
+
+	@Override
+	public List<BatchResult> updateBooks(List<Book> books) {
+		int[] rows = bookRepository.updateBooks(books);
+		List<BatchResult> results = new ArrayList<>(rows.length);
+		List<Integer> updated = new ArrayList<>(rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			Integer id = books.get(i).getId();
+			if (isSuccess(rows[i])) {
+				updated.add(id);
+				results.add(new BatchResult(i, id, true, "修改成功"));
+			} else {
+				results.add(new BatchResult(i, id, false, "修改失敗, id: " + id));
+			}
+		}
+		publishPersisted(BookEvent.Type.UPDATED, updated);
+		return results;
+	}
+
+	@Override
+	public List<BatchResult> deleteBooks(List<Integer> ids) {
+		int[] rows = bookRepository.deleteBooks(ids);
+		List<BatchResult> results = new ArrayList<>(rows.length);
+		for (int i = 0; i < rows.length; i++) {
+			Integer id = ids.get(i);
+			if (isSuccess(rows[i])) {
+				bookEventBus.publish(BookEvent.Type.DELETED, id, null);
+				results.add(new BatchResult(i, id, true, "刪除成功"));
+			} else {
+				results.add(new BatchResult(i, id, false, "刪除失敗, id: " + id));
+			}
+		}
+		return results;
+	}
+
+	// 事件帶資料庫中實際存的資料 (含新的 version 與 updated_at), 不是請求送來的內容
+	// 寫入後一次讀回 (走 primary); 讀回前已被刪掉的書不發佈, 之後的刪除事件會處理
+	private void publishPersisted(BookEvent.Type type, List<Integer> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		Map<Integer, Book> persisted = new HashMap<>();
+		bookRepository.findBooksByIds(ids).forEach(book -> persisted.put(book.getId(), book));
+		for (Integer id : ids) {
+			Book book = persisted.get(id);
+			if (book != null) {
+				bookEventBus.publish(type, id, book);
+			}
+		}
+	}
 
+	// rewriteBatchedStatements 合併送出時 driver 只回傳 SUCCESS_NO_INFO(-2), 也算成功
+	private static boolean isSuccess(int rows) {
+		return rows > 0 || rows == Statement.SUCCESS_NO_INFO;
 	}
 
 }
\ No newline at end of file
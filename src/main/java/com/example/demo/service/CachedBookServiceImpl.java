@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.exception.BookException;
+import com.example.demo.exception.BookNotFoundException;
+import com.example.demo.model.BatchResult;
+import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import jakarta.annotation.PostConstruct;
+
+// 在 BookServiceImpl 外面包一層快取 (Decorator 設計模式)
+// @Primary: Controller 注入 BookService 時會拿到這個有快取的版本
+// 讀取單筆先查快取, 沒有才查資料庫; 修改/刪除成功或失敗都會清掉該筆快取
+@Service
+@Primary
+public class CachedBookServiceImpl implements BookService {
+
+	@Autowired
+	@Qualifier("coalescingBookServiceImpl") // 合併相同查詢後再交給真正查資料庫的 BookServiceImpl
+	private BookService bookService;
+
+	@Autowired
+	private Cache<Integer, Book> bookCache;
+
+	@Autowired
+	private BookEventBus bookEventBus;
+
+	// 異動事件發佈時 (交給 SSE 訂閱者之前) 就清掉該筆, 收到事件的前端回頭查詢不會拿到快取的舊資料
+	// 下面修改方法的 finally 仍會再清一次, 涵蓋修改失敗、沒有發佈事件的情況
+	@PostConstruct
+	public void subscribe() {
+		bookEventBus.addListener(event -> bookCache.invalidate(event.getBookId()));
+	}
+
+	@Override
+	public List<Book> findAllBooks() {
+		return bookService.findAllBooks();
+	}
+
+	@Override
+	public List<Book> findBooksAfter(Integer lastId, int limit) {
+		return bookService.findBooksAfter(lastId, limit);
+	}
+
+	@Override
+	public void streamAllBooks(Consumer<Book> consumer) {
+		bookService.streamAllBooks(consumer);
+	}
+
+	@Override
+	public List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset,
+			int limit) {
+		return bookService.findBooks(keyword, pub, sortColumn, ascending, offset, limit);
+	}
+
+	@Override
+	public long countBooks(String keyword, Boolean pub) {
+		return bookService.countBooks(keyword, pub);
+	}
+
+	@Override
+	public CollectionVersion getCollectionVersion() {
+		return bookService.getCollectionVersion();
+	}
+
+	@Override
+	public Book getBookById(Integer id) throws BookException {
+		if (id == null) {
+			return bookService.getBookById(id);
+		}
+		// 同一個 id 同時有多個請求沒命中時, Caffeine 只會讓其中一個去查資料庫
+		Book book = bookCache.get(id, this::loadBook);
+		if (book == null) {
+			throw new BookNotFoundException(id);
+		}
+		return book;
+	}
+
+	// 查無此書回傳 null, Caffeine 不會快取 null
+	private Book loadBook(Integer id) {
+		try {
+			return bookService.getBookById(id);
+		} catch (BookException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void addBook(Book book) throws BookException {
+		// 新書的 id 還沒被快取過, 不需要清除
+		bookService.addBook(book);
+	}
+
+	@Override
+	public void updateBook(Integer id, Book book) throws BookException {
+		try {
+			bookService.updateBook(id, book);
+		} finally {
+			bookCache.invalidate(id);
+		}
+	}
+
+	// 部分修改: 交給下層送出帶版本條件的 update, 完成後(不論成功或衝突)清掉該筆快取
+	@Override
+	public Book updateBookName(Integer id, String name, Integer expectedVersion) throws BookException {
+		try {
+			return bookService.updateBookName(id, name, expectedVersion);
+		} finally {
+			bookCache.invalidate(id);
+		}
+	}
+
+	@Override
+	public Book updateBookPrice(Integer id, Double price, Integer expectedVersion) throws BookException {
+		try {
+			return bookService.updateBookPrice(id, price, expectedVersion);
+		} finally {
+			bookCache.invalidate(id);
+		}
+	}
+
+	@Override
+	public Book updateBookNameAndPrice(Integer id, String name, Double price, Integer expectedVersion)
+			throws BookException {
+		try {
+			return bookService.updateBookNameAndPrice(id, name, price, expectedVersion);
+		} finally {
+			bookCache.invalidate(id);
+		}
+	}
+
+	@Override
+	public void deleteBook(Integer id) throws BookException {
+		try {
+			bookService.deleteBook(id);
+		} finally {
+			bookCache.invalidate(id);
+		}
+	}
+
+	@Override
+	public List<BatchResult> addBooks(List<Book> books) {
+		return bookService.addBooks(books);
+	}
+
+	@Override
+	public List<BatchResult> updateBooks(List<Book> books) {
+		try {
+			return bookService.updateBooks(books);
+		} finally {
+			bookCache.invalidateAll(books.stream().map(Book::getId).filter(id -> id != null).toList());
+		}
+	}
+
+	@Override
+	public List<BatchResult> deleteBooks(List<Integer> ids) {
+		try {
+			return bookService.deleteBooks(ids);
+		} finally {
+			bookCache.invalidateAll(ids.stream().filter(id -> id != null).toList());
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+package com.example.demo.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.datasource.ReplicaRoutingContext;
+import com.example.demo.exception.BookException;
+import com.example.demo.exception.BookNotFoundException;
+import com.example.demo.model.BatchResult;
+import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 在 BookServiceImpl 外面合併同時進行的相同查詢 (Decorator 設計模式, 位於 CachedBookServiceImpl 與 BookServiceImpl 之間)
+// 例如部署後快取是空的, 幾百個請求同時 GET /book, 只有第一個會查資料庫, 其他的等它的結果
+// 哪些方法要合併由 book.single-flight.methods 設定; key 包含這台伺服器的寫入次數, 有異動之後進來的請求不會拿到異動前的結果
+// (其他伺服器的異動不會改變這個次數, 最多就是加入一個在異動前就開始的查詢, 與兩個請求同時到達的情況相同)
+// 一定要讀 primary 的請求 (剛寫過或帶 sticky cookie, 見 ReplicaRoutingContext) 不合併, 以免拿到別人從 replica 讀的舊資料
+// 等待者拿到的是複本 (書籍清單為不可修改的 List), 改了也不會影響查詢的人或其他等待者
+// 指標 book.singleflight.calls{method, role}: role=follower 的比例就是被合併掉的查詢比例
+@Service
+public class CoalescingBookServiceImpl implements BookService {
+
+	@Autowired
+	@Qualifier("bookServiceImpl") // 真正查資料庫的實作
+	private BookService bookService;
+
+	private final Set<String> methods;
+	private final Map<String, SingleFlight<Object, Object>> flights = new HashMap<>();
+
+	// 經過這裡的寫入次數, 寫入完成後才 +1; 不用清單版本是因為那要多查一次資料庫
+	private final AtomicLong writes = new AtomicLong();
+
+	public CoalescingBookServiceImpl(MeterRegistry registry,
+			@Value("${book.single-flight.methods:getBookById,findAllBooks,findBooksAfter,findBooks,countBooks,getCollectionVersion}")
+			List<String> methods) {
+		this.methods = new HashSet<>();
+		for (String method : methods) {
+			String name = method.trim();
+			if (name.isEmpty()) {
+				continue;
+			}
+			this.methods.add(name);
+			Counter leader = Counter.builder("book.singleflight.calls").description("可合併查詢的呼叫次數")
+					.tag("method", name).tag("role", "leader").register(registry);
+			Counter follower = Counter.builder("book.singleflight.calls").description("可合併查詢的呼叫次數")
+					.tag("method", name).tag("role", "follower").register(registry);
+			flights.put(name, new SingleFlight<>(isLeader -> (isLeader ? leader : follower).increment(),
+					CoalescingBookServiceImpl::share));
+		}
+	}
+
+	// 有設定合併的方法走 single-flight, 沒有就直接呼叫
+	@SuppressWarnings("unchecked")
+	private <T> T coalesce(String method, Supplier<T> loader, Object... args) {
+		SingleFlight<Object, Object> flight = flights.get(method);
+		if (flight == null || ReplicaRoutingContext.isPinnedToPrimary()) {
+			return loader.get();
+		}
+		Object[] key = Arrays.copyOf(args, args.length + 1);
+		key[args.length] = writes.get();
+		return (T) flight.execute(Arrays.asList(key), loader::get);
+	}
+
+	// 給等待者的複本; 其他結果 (筆數、CollectionVersion) 本來就不可變
+	private static Object share(Object result) {
+		if (result instanceof Book book) {
+			return book.copy();
+		}
+		if (result instanceof List<?> list) {
+			return list.stream().map(item -> item instanceof Book book ? book.copy() : item).toList();
+		}
+		return result;
+	}
+
+	@Override
+	public List<Book> findAllBooks() {
+		return coalesce("findAllBooks", bookService::findAllBooks);
+	}
+
+	@Override
+	public List<Book> findBooksAfter(Integer lastId, int limit) {
+		return coalesce("findBooksAfter", () -> bookService.findBooksAfter(lastId, limit), lastId, limit);
+	}
+
+	@Override
+	public void streamAllBooks(Consumer<Book> consumer) {
+		bookService.streamAllBooks(consumer);
+	}
+
+	@Override
+	public List<Book> findBooks(String keyword, Boolean pub, String sortColumn, boolean ascending, int offset,
+			int limit) {
+		return coalesce("findBooks", () -> bookService.findBooks(keyword, pub, sortColumn, ascending, offset, limit),
+				keyword, pub, sortColumn, ascending, offset, limit);
+	}
+
+	@Override
+	public long countBooks(String keyword, Boolean pub) {
+		Long count = coalesce("countBooks", () -> bookService.countBooks(keyword, pub), keyword, pub);
+		return count;
+	}
+
+	@Override
+	public CollectionVersion getCollectionVersion() {
+		return coalesce("getCollectionVersion", bookService::getCollectionVersion);
+	}
+
+	@Override
+	public Book getBookById(Integer id) throws BookException {
+		if (!methods.contains("getBookById")) {
+			return bookService.getBookById(id);
+		}
+		// 查無此書時大家都拿到 null, 各自丟出例外
+		Book book = coalesce("getBookById", () -> {
+			try {
+				return bookService.getBookById(id);
+			} catch (BookException e) {
+				return null;
+			}
+		}, id);
+		if (book == null) {
+			throw new BookNotFoundException(id);
+		}
+		return book;
+	}
+
+	@Override
+	public void addBook(Book book) throws BookException {
+		try {
+			bookService.addBook(book);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void updateBook(Integer id, Book book) throws BookException {
+		try {
+			bookService.updateBook(id, book);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public Book updateBookName(Integer id, String name, Integer expectedVersion) throws BookException {
+		try {
+			return bookService.updateBookName(id, name, expectedVersion);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public Book updateBookPrice(Integer id, Double price, Integer expectedVersion) throws BookException {
+		try {
+			return bookService.updateBookPrice(id, price, expectedVersion);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public Book updateBookNameAndPrice(Integer id, String name, Double price, Integer expectedVersion)
+			throws BookException {
+		try {
+			return bookService.updateBookNameAndPrice(id, name, price, expectedVersion);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void deleteBook(Integer id) throws BookException {
+		try {
+			bookService.deleteBook(id);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public List<BatchResult> addBooks(List<Book> books) {
+		try {
+			return bookService.addBooks(books);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public List<BatchResult> updateBooks(List<Book> books) {
+		try {
+			return bookService.updateBooks(books);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+
+	@Override
+	public List<BatchResult> deleteBooks(List<Integer> ids) {
+		try {
+			return bookService.deleteBooks(ids);
+		} finally {
+			writes.incrementAndGet();
+		}
+	}
+}
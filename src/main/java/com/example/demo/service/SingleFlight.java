@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// 合併同時進行的相同查詢 (single-flight): 同一個 key 已經有人在查時, 後來的請求等同一次查詢的結果, 不再另外查資料庫
+// 查詢結束就移除, 不會快取結果; 之後的請求會重新查詢
+// 查詢的人拿到原本的結果, 等待者拿到 share 產生的各自一份 (不會互相改到)
+class SingleFlight<K, V> {
+
+	// 這次呼叫是自己查 (leader) 還是等別人的結果 (follower)
+	interface Listener {
+		void onCall(boolean leader);
+	}
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final Listener listener;
+	private final UnaryOperator<V> share;
+
+	SingleFlight(Listener listener, UnaryOperator<V> share) {
+		this.listener = listener;
+		this.share = share;
+	}
+
+	V execute(K key, Supplier<V> loader) {
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+		if (existing != null) {
+			listener.onCall(false);
+			return share.apply(join(existing));
+		}
+		listener.onCall(true);
+		try {
+			V value = loader.get();
+			mine.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			mine.completeExceptionally(e); // 等待者也收到同一個例外
+			throw e;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	private static <V> V join(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.example.demo.stats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+// 把請求中的整數直接解析成 int[], 中間不建立 List<Integer> / String
+// 可接受的格式:
+// 1. 查詢參數: score=80&score=90, 或 score=80,90,100
+// 2. body: JSON 陣列 [80, 90, 100] 或 CSV (逗號/換行/分號/空白分隔)
+public final class IntArrayParser {
+
+	public static final int MAX_VALUES = 1_000_000; // 一次最多幾筆, 避免超大請求把記憶體吃光
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	private IntArrayParser() {
+	}
+
+	// 解析查詢參數, 每個值也可以是逗號分隔的多個數字
+	public static int[] parse(String[] values) {
+		IntArrayBuilder builder = new IntArrayBuilder(values.length);
+		Tokenizer tokenizer = new Tokenizer(builder);
+		for (String value : values) {
+			for (int i = 0; i < value.length(); i++) {
+				tokenizer.accept(value.charAt(i));
+			}
+			tokenizer.accept(',');
+		}
+		tokenizer.finish();
+		return builder.toArray();
+	}
+
+	// 解析 body (JSON 陣列或 CSV), 邊讀邊解析, 不會先把整個 body 讀成字串
+	// 開頭的 UTF-8 BOM (EF BB BF, Excel 匯出的 CSV 會有) 略過, 其他位置出現一律是格式錯誤
+	public static int[] parse(InputStream in) throws IOException {
+		IntArrayBuilder builder = new IntArrayBuilder(1024);
+		Tokenizer tokenizer = new Tokenizer(builder);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int n = in.readNBytes(buffer, 0, UTF8_BOM.length);
+		if (n == UTF8_BOM.length && Arrays.equals(buffer, 0, n, UTF8_BOM, 0, n)) {
+			n = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			tokenizer.accept((char) (buffer[i] & 0xff));
+		}
+		while ((n = in.read(buffer)) != -1) {
+			for (int i = 0; i < n; i++) {
+				tokenizer.accept((char) (buffer[i] & 0xff));
+			}
+		}
+		tokenizer.finish();
+		return builder.toArray();
+	}
+
+	// 逐字元的狀態機: 數字累加到 long, 遇到分隔字元就輸出一個 int
+	private static final class Tokenizer {
+
+		private final IntArrayBuilder builder;
+		private long value;
+		private int digits;
+		private boolean negative;
+		private boolean opened; // 是否遇過 '[', JSON 陣列只能有一層
+		private boolean closed; // 是否遇過對應的 ']', 之後只能有空白
+		private long position; // 目前讀到第幾個字元, 錯誤訊息用
+
+		Tokenizer(IntArrayBuilder builder) {
+			this.builder = builder;
+		}
+
+		void accept(char c) {
+			position++;
+			if (closed) {
+				if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+					throw error("JSON 陣列結束後不能再有資料");
+				}
+				return;
+			}
+			if (c >= '0' && c <= '9') {
+				value = value * 10 + (c - '0');
+				if (++digits > 10 || value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+					throw error("數字超出範圍");
+				}
+				return;
+			}
+			switch (c) {
+			case '-' -> {
+				if (negative || digits > 0) {
+					throw error("格式錯誤");
+				}
+				negative = true;
+			}
+			case ',', ';', ' ', '\t', '\r', '\n' -> flush();
+			case '[' -> {
+				if (opened || digits > 0 || negative || builder.size() > 0) {
+					throw error("只接受一層的 JSON 陣列");
+				}
+				opened = true;
+			}
+			case ']' -> {
+				if (!opened) {
+					throw error("沒有對應的 '['");
+				}
+				flush();
+				closed = true;
+			}
+			default -> throw error("不是整數");
+			}
+		}
+
+		void finish() {
+			if (opened && !closed) {
+				throw error("JSON 陣列沒有結束");
+			}
+			flush();
+		}
+
+		private void flush() {
+			if (digits == 0) {
+				if (negative) {
+					throw error("格式錯誤");
+				}
+				return; // 連續的分隔字元
+			}
+			builder.add((int) (negative ? -value : value));
+			value = 0;
+			digits = 0;
+			negative = false;
+		}
+
+		private NumberFormatException error(String reason) {
+			return new NumberFormatException(reason + ", 第 " + position + " 個字元附近");
+		}
+	}
+
+	// 可自動擴充的 int 陣列
+	private static final class IntArrayBuilder {
+
+		private int[] values;
+		private int size;
+
+		IntArrayBuilder(int initialCapacity) {
+			values = new int[Math.max(16, Math.min(initialCapacity, MAX_VALUES))];
+		}
+
+		void add(int value) {
+			if (size == values.length) {
+				if (size >= MAX_VALUES) {
+					throw new NumberFormatException("最多只能輸入 " + MAX_VALUES + " 筆");
+				}
+				values = Arrays.copyOf(values, Math.min(size * 2, MAX_VALUES));
+			}
+			values[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int[] toArray() {
+			return size == values.length ? values : Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.demo.stats;
+
+import java.util.Arrays;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+// 分數統計: 只掃描 int[] 一次, 同時算出最高/最低/總分/平均、及格/不及格分組、百分位數與分布
+// 全部都是 primitive 陣列, 不會產生 Integer 物件
+// 分數都在 0~100 時用計數陣列算百分位數(不用排序), 超出範圍才複製一份排序
+@Getter
+public final class ScoreStatistics {
+
+	public static final int MAX_SCORE = 100;
+	public static final int BUCKET_WIDTH = 10; // 分布的每一區間寬度, 最後一區為 90~100
+
+	private final int count;
+	private final int min;
+	private final int max;
+	private final long sum;
+	private final double average;
+	private final int[] passed; // 及格分數, 依輸入順序
+	private final int[] failed; // 不及格分數, 依輸入順序
+	private final int[] histogram; // [0]=0~9, [1]=10~19, ... [9]=90~100, 小於 0 算第一區, 大於 100 算最後一區
+
+	@Getter(AccessLevel.NONE)
+	private final int[] counts; // counts[s] = s 分的人數, 有分數超出 0~100 時為 null
+	@Getter(AccessLevel.NONE)
+	private final int[] sorted; // 有分數超出 0~100 時才會用到的排序副本
+
+	private ScoreStatistics(int count, int min, int max, long sum, int[] passed, int[] failed, int[] histogram,
+			int[] counts, int[] sorted) {
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.sum = sum;
+		this.average = count == 0 ? 0 : (double) sum / count;
+		this.passed = passed;
+		this.failed = failed;
+		this.histogram = histogram;
+		this.counts = counts;
+		this.sorted = sorted;
+	}
+
+	public static ScoreStatistics of(int[] scores, int passMark) {
+		int n = scores.length;
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		long sum = 0;
+		int[] counts = new int[MAX_SCORE + 1];
+		int[] histogram = new int[MAX_SCORE / BUCKET_WIDTH];
+		boolean outOfRange = false;
+		// 及格的從前面放, 不及格的從後面放, 一次掃描就分好組
+		int[] partition = new int[n];
+		int passCount = 0;
+		int failIndex = n;
+		for (int i = 0; i < n; i++) {
+			int s = scores[i];
+			if (s < min) {
+				min = s;
+			}
+			if (s > max) {
+				max = s;
+			}
+			sum += s;
+			if (s >= passMark) {
+				partition[passCount++] = s;
+			} else {
+				partition[--failIndex] = s;
+			}
+			if (s >= 0 && s <= MAX_SCORE) {
+				counts[s]++;
+				histogram[Math.min(s / BUCKET_WIDTH, histogram.length - 1)]++;
+			} else {
+				outOfRange = true;
+				histogram[s < 0 ? 0 : histogram.length - 1]++;
+			}
+		}
+		int[] passed = Arrays.copyOf(partition, passCount);
+		int[] failed = new int[n - passCount];
+		for (int i = 0; i < failed.length; i++) {
+			failed[i] = partition[n - 1 - i]; // 從後面放的, 反過來才是輸入順序
+		}
+		int[] sorted = null;
+		if (outOfRange) {
+			sorted = scores.clone();
+			Arrays.sort(sorted);
+			counts = null;
+		}
+		return new ScoreStatistics(n, n == 0 ? 0 : min, n == 0 ? 0 : max, sum, passed, failed, histogram, counts,
+				sorted);
+	}
+
+	// 只需要平均時(例如平均年齡)不必分組與計數
+	public static double average(int[] values) {
+		long sum = 0;
+		for (int v : values) {
+			sum += v;
+		}
+		return values.length == 0 ? 0 : (double) sum / values.length;
+	}
+
+	// 第 p 百分位數 (nearest-rank): 排序後第 ceil(p/100*n) 個分數
+	public int percentile(double p) {
+		if (count == 0) {
+			return 0;
+		}
+		int rank = Math.max(1, (int) Math.ceil(p / 100 * count));
+		if (counts == null) {
+			return sorted[rank - 1];
+		}
+		int seen = 0;
+		for (int s = 0; s < counts.length; s++) {
+			seen += counts[s];
+			if (seen >= rank) {
+				return s;
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,9 @@
+-- book 表新增版本欄位 (ETag / Last-Modified 用), 既有資料庫需手動執行一次
+-- version: 每次修改 +1; updated_at: 最後修改時間(毫秒精度)
+alter table book
+	add column version int not null default 0,
+	add column updated_at timestamp(3) not null default current_timestamp(3);
+
+-- GET /book 的清單版本: select count(*), max(updated_at), sum(version) from book
+-- 有這個索引時只要掃索引, 不用讀整張表
+create index idx_book_updated_at_version on book(updated_at, version);
@@ -0,0 +1,5 @@
+-- 本機讀寫分離測試的初始資料, primary 與 replica 各放一份 (H2 不會複寫, 之後的修改只會出現在 primary)
+insert into book(name, price, amount, pub) values('機器貓小叮噹', 12.5, 20, false);
+insert into book(name, price, amount, pub) values('老夫子', 10.5, 30, false);
+insert into book(name, price, amount, pub) values('好小子', 8.5, 40, true);
+insert into book(name, price, amount, pub) values('尼羅河的女兒', 14.5, 50, true);
@@ -0,0 +1,11 @@
+-- 本機讀寫分離測試 (replica-local profile) 用的 H2 資料表, 結構與 MySQL 的 book 表相同
+create table if not exists book (
+	id int auto_increment primary key,
+	name varchar(50) not null,
+	price double,
+	amount int,
+	pub boolean,
+	version int not null default 0,
+	updated_at timestamp(3) not null default current_timestamp(3)
+);
+create index if not exists idx_book_updated_at_version on book(updated_at, version);
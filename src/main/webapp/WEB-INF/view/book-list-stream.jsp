@@ -0,0 +1,30 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8"
+    pageEncoding="UTF-8" buffer="8kb" autoFlush="true"%>
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<!DOCTYPE html>
+<html>
+	<head>
+		<meta charset="UTF-8">
+		<title>Book List (Streaming)</title>
+	</head>
+	<body>
+		<%@ include file="include/menu.jsp" %>
+		<div>
+			匯出: <a href="/book/export?format=csv">CSV</a> &nbsp;|&nbsp; <a href="/book/export?format=xlsx">Excel</a>
+		</div>
+		<div>
+			<!-- 串流模式: 不用 DataTables, 伺服器邊從資料庫讀邊送出表格內容 (BookRowStream) -->
+			<table border="1" id="bookTable">
+				<thead>
+					<tr>
+						<th>ID</th><th>書名</th><th>價格</th><th>數量</th><th>出刊</th><th>操作</th>
+					</tr>
+				</thead>
+				<tbody>
+					<c:set var="count" value="${ rows.writeTo(pageContext.out) }" />
+				</tbody>
+			</table>
+			<div>共 ${ count } 筆</div>
+		</div>
+	</body>
+</html>
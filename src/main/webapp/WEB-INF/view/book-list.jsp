@@ -13,17 +13,6 @@
 		
 		<!-- DataTables JS -->
 		<script src="https://cdn.datatables.net/1.13.6/js/jquery.dataTables.min.js"></script>
-		
-		<!-- Buttons 插件 -->
-		<link rel="stylesheet" href="https://cdn.datatables.net/buttons/2.4.1/css/buttons.dataTables.min.css"/>
-		<script src="https://cdn.datatables.net/buttons/2.4.1/js/dataTables.buttons.min.js"></script>
-		<script src="https://cdn.datatables.net/buttons/2.4.1/js/buttons.html5.min.js"></script>
-		<script src="https://cdn.datatables.net/buttons/2.4.1/js/buttons.print.min.js"></script>
-		
-		<!-- PDF & Excel 匯出支援 -->
-		<script src="https://cdnjs.cloudflare.com/ajax/libs/jszip/3.10.1/jszip.min.js"></script>
-		<script src="https://cdnjs.cloudflare.com/ajax/libs/pdfmake/0.1.68/pdfmake.min.js"></script>
-		<script src="https://cdnjs.cloudflare.com/ajax/libs/pdfmake/0.1.68/vfs_fonts.js"></script>
 	</head>
 	<body>
 		<%@ include file="include/menu.jsp" %>
@@ -36,6 +25,16 @@
 				<button type="submit">送出</button>
 			</form>
 		</div>
+		<div>
+			匯出: <a href="/book/export?format=csv">CSV</a> &nbsp;|&nbsp; <a href="/book/export?format=xlsx">Excel</a>
+		</div>
+		<div>
+			出刊狀態: <select id="pubFilter">
+				<option value="">全部</option>
+				<option value="true">出刊</option>
+				<option value="false">停刊</option>
+			</select>
+		</div>
 		<div>
 			<table border="1" id="bookTable">
 				<thead>
@@ -44,27 +43,7 @@
 					</tr>
 				</thead>
 				<tbody>
-					<c:forEach var="book" items="${ books }">
-						<tr>
-							<td>${ book.id }</td>
-							<td>${ book.name }</td>
-							<td>${ book.price }</td>
-							<td>${ book.amount }</td>
-							<td>${ book.pub }</td>
-							<td>
-								<a href="/ssr/book/edit/${ book.id }">修改</a> 
-								&nbsp;|&nbsp; 
-								<a href="/ssr/book/delete/${ book.id }">刪除</a>
-								&nbsp;|&nbsp;
-								<form style="display:inline" method="post" action="/ssr/book/delete/${ book.id }">
-									<input type="hidden" name="_method" value="DELETE"/>
-									<button type="submit">刪除</button>
-								</form>
-								&nbsp;|&nbsp;
-								<a href="#" onclick="deleteBook(${ book.id })">刪除</a>
-							</td>
-						</tr>
-					</c:forEach>
+					<!-- 資料由 DataTables 透過 /ssr/book/data 分頁載入 -->
 				</tbody>
 			</table>
 		</div>
@@ -83,36 +62,41 @@
 		<!-- DataTables 初始化 -->
 		<script>
 			$(document).ready(function() {
-				$('#bookTable').DataTable({
-					// Bfrtpi [Buttons (匯出 Excel, PDF 等...), f(搜尋框), r(處理中的訊息), t(表格本體), i(顯示第n到m筆), p(分頁按鈕)]
-					dom: 'Bfrtpi', // 顯示按鈕區塊
-			        buttons: [
-			            {
-			                extend: 'excelHtml5',
-			                text: '匯出 Excel',
-			                exportOptions: {
-			                    columns: [0, 1, 2, 3] // 匯出 ID、書名、價格、數量
-			                }
-			            },
-			            {
-			                extend: 'pdfHtml5',
-			                text: '匯出 PDF',
-			                exportOptions: {
-			                    columns: [0, 1, 2, 3] // 匯出 ID、書名、價格、數量
-			                },
-			                orientation: 'landscape', // 橫向（可選）
-			                pageSize: 'A4'
-			            },
-			            {
-			                extend: 'print',
-			                text: '列印'
-			            }
-			        ],
+				const table = $('#bookTable').DataTable({
+					// 伺服器端處理: 分頁、排序、搜尋都交給 /ssr/book/data, 頁面只載入目前這一頁
+					processing: true,
+					serverSide: true,
+					ajax: '/ssr/book/data',
+					columns: [
+						{ data: 'id' },
+						{ data: 'name', render: $.fn.dataTable.render.text() }, // 書名當純文字輸出, 避免 XSS
+						{ data: 'price' },
+						{ data: 'amount' },
+						{ data: 'pub' },
+						{
+							data: 'id',
+							orderable: false,
+							render: function(id) {
+								return '<a href="/ssr/book/edit/' + id + '">修改</a>'
+									+ ' &nbsp;|&nbsp; <a href="/ssr/book/delete/' + id + '">刪除</a>'
+									+ ' &nbsp;|&nbsp; <form style="display:inline" method="post" action="/ssr/book/delete/' + id + '">'
+									+ '<input type="hidden" name="_method" value="DELETE"/><button type="submit">刪除</button></form>'
+									+ ' &nbsp;|&nbsp; <a href="#" onclick="deleteBook(' + id + ')">刪除</a>';
+							}
+						}
+					],
+					// frtpi [f(搜尋框), r(處理中的訊息), t(表格本體), i(顯示第n到m筆), p(分頁按鈕)]
+					// 匯出改由伺服器端 /book/export 串流產生, 不用把整張表載入瀏覽器
+					dom: 'frtpi',
 					language: {
 						url: '//cdn.datatables.net/plug-ins/1.13.6/i18n/zh-HANT.json'
 					},
 					
 				});
+				// 出刊狀態篩選: 以出刊欄位的搜尋值送到 /ssr/book/data (columns[4][search][value])
+				$('#pubFilter').on('change', function() {
+					table.column(4).search(this.value).draw();
+				});
 			});
 		</script>
 		
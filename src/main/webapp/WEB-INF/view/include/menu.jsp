@@ -5,4 +5,5 @@
 <%@ taglib prefix="fn" uri="jakarta.tags.functions" %>    
 <div>
 	<a href="/ssr/book">📚 書籍列表</a> 
+	<a href="/ssr/book/stream">📄 書籍列表(串流)</a>
 </div>
\ No newline at end of file
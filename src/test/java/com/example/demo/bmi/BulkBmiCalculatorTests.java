@@ -0,0 +1,126 @@
+package com.example.demo.bmi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+// 大量 BMI: CSV 標題/BOM/壞資料列、二進位格式、單列長度上限, 以及多段平行時結果與順序不變
+class BulkBmiCalculatorTests {
+
+	@Test
+	void csvOutputIsLineAlignedWithInput() throws IOException {
+		String csv = "\uFEFF身高,體重\n170,60\n\n180;abc\n-170,60\n 160.5\t50.25 \r\n175,70";
+
+		assertThat(processCsv(csv)).isEqualTo("bmi\n20.76\n\n\n\n19.51\n22.86\n");
+	}
+
+	@Test
+	void csvWithoutHeaderStartsWithFirstRow() throws IOException {
+		assertThat(processCsv("170,60\n")).isEqualTo("20.76\n");
+		assertThat(processCsv("")).isEmpty();
+	}
+
+	@Test
+	void lineLongerThanLimitIsRejectedBeforeAnyOutput() {
+		byte[] line = new byte[BulkBmiCalculator.MAX_LINE_BYTES + 1];
+		Arrays.fill(line, (byte) '1');
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertThatThrownBy(() -> BulkBmiCalculator.processCsv(new ByteArrayInputStream(line), out))
+				.isInstanceOf(BulkBmiFormatException.class).hasMessageContaining("bytes");
+		assertThat(out.size()).isZero();
+	}
+
+	@Test
+	void largeCsvIsSplitAcrossSegmentsInOrder() throws IOException {
+		Random random = new Random(7);
+		int rows = 200_000; // 超過一個區塊, 每個區塊又會切成多段
+		StringBuilder csv = new StringBuilder("height,weight\n");
+		StringBuilder expected = new StringBuilder("bmi\n");
+		byte[] cell = new byte[24];
+		for (int i = 0; i < rows; i++) {
+			double h = 140 + random.nextInt(600) / 10.0;
+			double w = 40 + random.nextInt(800) / 10.0;
+			csv.append(h).append(',').append(w).append('\n');
+			double m = h * 0.01;
+			int len = BulkBmiCalculator.writeFixed2(w / (m * m), cell, 0);
+			expected.append(new String(cell, 0, len, StandardCharsets.US_ASCII)).append('\n');
+		}
+
+		assertThat(processCsv(csv.toString())).isEqualTo(expected.toString());
+	}
+
+	@Test
+	void binaryPairsProduceOneDoubleEach() throws IOException {
+		int pairs = 100_000;
+		ByteArrayOutputStream in = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(in);
+		for (int i = 0; i < pairs; i++) {
+			data.writeDouble(150 + i % 50);
+			data.writeDouble(50 + i % 30);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertThat(BulkBmiCalculator.processBinary(new ByteArrayInputStream(in.toByteArray()), out)).isEqualTo(pairs);
+
+		DataInputStream result = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+		for (int i = 0; i < pairs; i++) {
+			double m = (150 + i % 50) * 0.01;
+			assertThat(result.readDouble()).isCloseTo((50 + i % 30) / (m * m), within(1e-9));
+		}
+		assertThat(result.available()).isZero();
+	}
+
+	@Test
+	void binaryLengthMustBeWholePairs() {
+		InputStream in = new ByteArrayInputStream(new byte[24]);
+
+		assertThatThrownBy(() -> BulkBmiCalculator.processBinary(in, OutputStream.nullOutputStream()))
+				.isInstanceOf(BulkBmiFormatException.class);
+	}
+
+	@Test
+	void parallelSegmentsRunOnDedicatedPool() {
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		String caller = Thread.currentThread().getName();
+
+		BulkBmiCalculator.runParallel(8, s -> threads.add(Thread.currentThread().getName()));
+
+		assertThat(threads).isNotEmpty().allMatch(name -> name.equals(caller) || name.startsWith("bulk-bmi-"));
+	}
+
+	@Test
+	void parsesAndFormatsNumbers() {
+		byte[] text = " -12.345 ".getBytes(StandardCharsets.US_ASCII);
+		assertThat(BulkBmiCalculator.parseDouble(text, 0, text.length)).isEqualTo(-12.345);
+		byte[] bad = "1.2.3".getBytes(StandardCharsets.US_ASCII);
+		assertThat(BulkBmiCalculator.parseDouble(bad, 0, bad.length)).isNaN();
+
+		byte[] buf = new byte[24];
+		assertThat(new String(buf, 0, BulkBmiCalculator.writeFixed2(0.005, buf, 0), StandardCharsets.US_ASCII))
+				.isEqualTo("0.01");
+		assertThat(new String(buf, 0, BulkBmiCalculator.writeFixed2(123.4, buf, 0), StandardCharsets.US_ASCII))
+				.isEqualTo("123.40");
+	}
+
+	private static String processCsv(String csv) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BulkBmiCalculator.processCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// 連線池保護: 超過上限的調降, 沒超過的不動; bean 與非 bean (replica) 的連線池都要套用
+class HikariGuardrailsTests {
+
+	private final HikariGuardrails guardrails = new HikariGuardrails(10, Duration.ofSeconds(3));
+
+	@Test
+	void lowersOversizedPool() {
+		HikariDataSource hikari = new HikariDataSource();
+		hikari.setMaximumPoolSize(20);
+		hikari.setMinimumIdle(20);
+		hikari.setConnectionTimeout(30_000);
+
+		guardrails.apply(hikari, "replica");
+
+		assertThat(hikari.getMaximumPoolSize()).isEqualTo(10);
+		assertThat(hikari.getMinimumIdle()).isEqualTo(10);
+		assertThat(hikari.getConnectionTimeout()).isEqualTo(3_000);
+	}
+
+	@Test
+	void unsetPoolSizeCountsAsHikariDefault() {
+		HikariDataSource unset = new HikariDataSource();
+		new HikariGuardrails(4, Duration.ofSeconds(3)).apply(unset, "replica");
+		HikariDataSource hikari = new HikariDataSource();
+
+		guardrails.apply(hikari, "primary");
+
+		assertThat(unset.getMaximumPoolSize()).isEqualTo(4); // 啟動前是 -1, 還是要調降
+		assertThat(hikari.getMaximumPoolSize()).isEqualTo(10);
+		assertThat(hikari.getConnectionTimeout()).isEqualTo(3_000);
+	}
+
+	@Test
+	void keepsSmallerPool() {
+		HikariDataSource hikari = new HikariDataSource();
+		hikari.setMaximumPoolSize(4);
+		hikari.setConnectionTimeout(1_000);
+
+		guardrails.postProcessBeforeInitialization(hikari, "primaryDataSource");
+
+		assertThat(hikari.getMaximumPoolSize()).isEqualTo(4);
+		assertThat(hikari.getConnectionTimeout()).isEqualTo(1_000);
+	}
+}
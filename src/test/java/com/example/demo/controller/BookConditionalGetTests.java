@@ -0,0 +1,69 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+// GET /book 的 ETag: 版本由資料庫算出, 其他伺服器 (直接改資料庫) 的異動也要讓舊的 ETag 失效
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookConditionalGetTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void unchangedCollectionReturns304() throws Exception {
+		String etag = getEtag();
+
+		mockMvc.perform(get("/book").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag));
+	}
+
+	@Test
+	void writeFromAnotherNodeInvalidatesEtag() throws Exception {
+		String etag = getEtag();
+		Integer id = jdbcTemplate.queryForObject("select min(id) from book", Integer.class);
+
+		// 模擬另一台伺服器的修改: 不經過這個應用程式, 直接改資料庫
+		jdbcTemplate.update("update book set name = ?, version = version + 1, updated_at = current_timestamp(3) "
+				+ "where id = ?", "其他伺服器改的", id);
+
+		MvcResult result = mockMvc.perform(get("/book").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk()).andReturn();
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+		assertThat(result.getResponse().getContentAsString()).contains("其他伺服器改的");
+	}
+
+	@Test
+	void deleteFromAnotherNodeInvalidatesEtag() throws Exception {
+		jdbcTemplate.update("insert into book(name, price, amount, pub) values('要被刪的書', 1.0, 1, false)");
+		String etag = getEtag();
+
+		jdbcTemplate.update("delete from book where name = '要被刪的書'");
+
+		mockMvc.perform(get("/book").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+	}
+
+	private String getEtag() throws Exception {
+		String etag = mockMvc.perform(get("/book")).andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+		assertThat(etag).startsWith("\"books-");
+		return etag;
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.event.BookEvent;
+import com.example.demo.event.BookEventBus;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryJdbcImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// POST /book 走 JDBC: 回傳資料庫產生的 id, CREATED 事件帶的是這本新書; 前端帶來的 id 不會影響既有的書
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookCreateTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private BookEventBus bookEventBus;
+
+	@Autowired
+	private BookRepositoryJdbcImpl repository;
+
+	@Test
+	void createdBookGetsGeneratedIdAndEvent() throws Exception {
+		List<BookEvent> events = new CopyOnWriteArrayList<>();
+		bookEventBus.addListener(event -> {
+			if (event.getType() == BookEvent.Type.CREATED) {
+				events.add(event);
+			}
+		});
+		String existingName = repository.getBookById(1).map(Book::getName).orElseThrow();
+
+		String body = mockMvc.perform(post("/book").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"id\":1,\"name\":\"新增-JDBC\",\"price\":3.5,\"amount\":2,\"pub\":true}"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+		JsonNode data = objectMapper.readTree(body).get("data");
+		int id = data.get("id").asInt();
+		assertThat(id).isNotEqualTo(1);
+		assertThat(repository.getBookById(id)).map(Book::getName).contains("新增-JDBC");
+		assertThat(repository.getBookById(1)).map(Book::getName).contains(existingName);
+		assertThat(events).singleElement().satisfies(event -> {
+			assertThat(event.getBookId()).isEqualTo(id);
+			assertThat(event.getBook().getName()).isEqualTo("新增-JDBC");
+		});
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryJdbcImpl;
+
+// PATCH 的樂觀鎖: If-Match / body version 不符回 409, 成功時回傳的資料與 ETag 就是這次修改的結果
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookOptimisticLockingTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookRepositoryJdbcImpl repository;
+
+	@Test
+	void patchWithCurrentEtagSucceedsAndStaleEtagConflicts() throws Exception {
+		Integer id = newBook("樂觀鎖");
+		String etag = mockMvc.perform(get("/book/" + id)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(patch("/book/" + id).header(HttpHeaders.IF_MATCH, etag)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"樂觀鎖-改\"}"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"book-" + id + "-1\""))
+				.andExpect(jsonPath("$.data.name").value("樂觀鎖-改"))
+				.andExpect(jsonPath("$.data.price").value(9.5))
+				.andExpect(jsonPath("$.data.version").value(1));
+
+		mockMvc.perform(patch("/book/" + id).header(HttpHeaders.IF_MATCH, etag)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"晚到的修改\"}"))
+				.andExpect(status().isConflict());
+	}
+
+	@Test
+	void staleBodyVersionConflictsAndMissingBookIs404() throws Exception {
+		Integer id = newBook("body 版本");
+
+		mockMvc.perform(patch("/book/price/" + id).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"price\":20.0,\"version\":3}")).andExpect(status().isConflict());
+		mockMvc.perform(patch("/book/price/" + id).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"price\":20.0,\"version\":0}")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.price").value(20.0));
+		mockMvc.perform(patch("/book/name/-1").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"不存在\"}")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void concurrentPatchesWithSameVersionHaveOneWinner() throws Exception {
+		Integer id = newBook("同時修改");
+
+		List<Optional<Book>> results = runConcurrently(8, n -> repository.patchBook(id, "winner-" + n, null, 0));
+
+		List<Book> winners = results.stream().flatMap(Optional::stream).toList();
+		assertThat(winners).hasSize(1);
+		assertThat(winners.get(0).getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void eachPatchReturnsItsOwnWrite() throws Exception {
+		Integer id = newBook("各自的結果");
+
+		List<Optional<Book>> results = runConcurrently(8, n -> repository.patchBook(id, null, (double) n, null));
+
+		// 沒有版本條件時每一次都成功, 讀回的是自己那一次修改後的資料 (而不是別人接著改的)
+		for (int n = 0; n < results.size(); n++) {
+			assertThat(results.get(n)).map(Book::getPrice).contains((double) n);
+		}
+		assertThat(results.stream().map(r -> r.get().getVersion()).distinct()).hasSize(8);
+	}
+
+	private interface Patch {
+		Optional<Book> apply(int n) throws Exception;
+	}
+
+	private static List<Optional<Book>> runConcurrently(int threads, Patch patch) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Optional<Book>>> futures = new ArrayList<>();
+			for (int n = 0; n < threads; n++) {
+				int i = n;
+				futures.add(executor.submit(() -> patch.apply(i)));
+			}
+			List<Optional<Book>> results = new ArrayList<>();
+			for (Future<Optional<Book>> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private Integer newBook(String name) {
+		Book book = new Book(null, name, 9.5, 1, false);
+		repository.addBooks(List.of(book));
+		return book.getId();
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// keyset 分頁 (/book/page) 與 NDJSON 串流 (/book/stream)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookPagingTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void pagesCoverEveryBookOnceInIdOrder() throws Exception {
+		List<Integer> ids = new ArrayList<>();
+		String after = null;
+		for (int page = 0; page < 1000; page++) {
+			JsonNode data = getJson("/book/page?size=2" + (after == null ? "" : "&after=" + after)).get("data");
+			assertThat(data.get("items").size()).isLessThanOrEqualTo(2);
+			data.get("items").forEach(item -> ids.add(item.get("id").asInt()));
+			if (!data.get("hasMore").asBoolean()) {
+				assertThat(data.get("nextCursor").isNull()).isTrue();
+				break;
+			}
+			after = data.get("nextCursor").asText();
+		}
+
+		assertThat(ids).isNotEmpty().isSorted().doesNotHaveDuplicates();
+		assertThat(ids).containsExactlyElementsOf(streamedIds());
+	}
+
+	@Test
+	void pageSizeIsCapped() throws Exception {
+		JsonNode data = getJson("/book/page?size=100000").get("data");
+
+		assertThat(data.get("items").size()).isLessThanOrEqualTo(500);
+	}
+
+	// /book/stream 每行一本書
+	private List<Integer> streamedIds() throws Exception {
+		MvcResult started = mockMvc.perform(get("/book/stream")).andExpect(request().asyncStarted()).andReturn();
+		String body = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsString();
+		List<Integer> ids = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			if (!line.isBlank()) {
+				ids.add(objectMapper.readTree(line).get("id").asInt());
+			}
+		}
+		return ids;
+	}
+
+	private JsonNode getJson(String url) throws Exception {
+		String body = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse()
+				.getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.demo.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+// POST /api/bmi/bulk: 正常串流回傳, 格式錯誤 (單列過長、二進位長度不對) 回 400
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkBmiControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void streamsCsvResult() throws Exception {
+		MvcResult started = perform(post("/api/bmi/bulk").contentType("text/csv").content("height,weight\n170,60\n"));
+
+		mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andExpect(content().string("bmi\n20.76\n"));
+	}
+
+	@Test
+	void overlongLineIsBadRequest() throws Exception {
+		byte[] line = new byte[2 << 20];
+		Arrays.fill(line, (byte) '1');
+
+		MvcResult started = perform(post("/api/bmi/bulk").contentType("text/csv").content(line));
+
+		mockMvc.perform(asyncDispatch(started)).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value(containsString("單列資料超過")));
+	}
+
+	@Test
+	void partialBinaryPairIsBadRequest() throws Exception {
+		MvcResult started = perform(
+				post("/api/bmi/bulk").contentType(MediaType.APPLICATION_OCTET_STREAM).content(new byte[24]));
+
+		mockMvc.perform(asyncDispatch(started)).andExpect(status().isBadRequest());
+	}
+
+	private MvcResult perform(MockHttpServletRequestBuilder builder) throws Exception {
+		return mockMvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+	}
+}
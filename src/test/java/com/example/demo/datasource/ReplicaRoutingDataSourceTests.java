@@ -0,0 +1,77 @@
+package com.example.demo.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 路由 DataSource: 寫入走 primary, 唯讀輪流走 replica; replica 連不上時移出並退回 primary, 請求不會失敗
+class ReplicaRoutingDataSourceTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private ReplicaRoutingDataSource dataSource;
+
+	@AfterEach
+	void tearDown() {
+		dataSource.close();
+	}
+
+	@Test
+	void readsRoundRobinOverReplicasAndWritesUsePrimary() throws SQLException {
+		dataSource = create(replica("rr-a"), replica("rr-b"));
+
+		assertThat(url(false)).contains("rr-primary");
+		assertThat(List.of(url(true), url(true), url(true), url(true))).containsExactly("jdbc:h2:mem:rr-a",
+				"jdbc:h2:mem:rr-b", "jdbc:h2:mem:rr-a", "jdbc:h2:mem:rr-b");
+	}
+
+	@Test
+	void unreachableReplicaIsMarkedDownAndReadsFallBackToPrimary() throws SQLException {
+		HikariDataSource broken = replica("missing;IFEXISTS=TRUE"); // 資料庫不存在, 連不上
+		dataSource = create(broken);
+
+		assertThat(url(true)).contains("rr-primary");
+		assertThat(registry.get("book.datasource.reads").tag("target", "primary").counter().count()).isEqualTo(1);
+		assertThat(registry.get("book.datasource.replica.up").gauge().value()).isZero();
+	}
+
+	private ReplicaRoutingDataSource create(HikariDataSource... replicas) {
+		return new ReplicaRoutingDataSource(
+				new DriverManagerDataSource("jdbc:h2:mem:rr-primary;DB_CLOSE_DELAY=-1", "sa", ""), List.of(replicas),
+				ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, Duration.ofHours(1), null, Duration.ofSeconds(5),
+				registry);
+	}
+
+	private static HikariDataSource replica(String name) {
+		HikariDataSource replica = new HikariDataSource();
+		replica.setPoolName("test-" + name);
+		replica.setJdbcUrl("jdbc:h2:mem:" + name + (name.contains(";") ? "" : ";DB_CLOSE_DELAY=-1"));
+		replica.setUsername("sa");
+		replica.setConnectionTimeout(250);
+		replica.setInitializationFailTimeout(-1);
+		return replica;
+	}
+
+	// 拿一條連線, 回傳它連到的資料庫
+	private String url(boolean replicaRead) throws SQLException {
+		Boolean previous = replicaRead ? ReplicaRoutingContext.enterReplicaRead() : null;
+		try (Connection connection = dataSource.getConnection()) {
+			String url = connection.getMetaData().getURL();
+			return url.contains(";") ? url.substring(0, url.indexOf(';')) : url;
+		} finally {
+			if (replicaRead) {
+				ReplicaRoutingContext.exitReplicaRead(previous);
+			}
+		}
+	}
+}
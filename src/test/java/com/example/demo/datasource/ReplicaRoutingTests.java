@@ -0,0 +1,141 @@
+package com.example.demo.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryJdbcImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+
+// 讀寫分離: 唯讀查詢走 replica; 剛寫過的書、寫過資料的請求、帶 sticky cookie 的前端改走 primary
+// primary 與 replica 是兩個獨立的 H2 資料庫 (不會複寫), 同一個 id 在兩邊放不同的書名, 讀到哪個名字就知道走了哪一邊
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"book.datasource.replica.enabled=true",
+		"book.datasource.replica.urls=" + ReplicaRoutingTests.REPLICA_URL,
+		"book.datasource.replica.init-scripts=classpath:db/h2/schema.sql" })
+@ActiveProfiles("test")
+class ReplicaRoutingTests {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	private static final AtomicInteger ids = new AtomicInteger(1000);
+
+	@Autowired
+	private BookRepositoryJdbcImpl repository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate; // 沒有 @ReplicaRead, 一律走 primary
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+	@AfterEach
+	void clearRequest() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void readOnlyQueriesUseReplica() {
+		int id = insertOnBoth();
+		double before = reads("replica");
+
+		assertThat(repository.getBookById(id)).map(Book::getName).contains("replica-" + id);
+		assertThat(reads("replica")).isEqualTo(before + 1);
+	}
+
+	@Test
+	void recentlyWrittenBookIsReadFromPrimary() {
+		int written = insertOnBoth();
+		int untouched = insertOnBoth();
+
+		repository.patchBook(written, "patched-" + written, null, null);
+
+		// 其他前端的請求 (沒有 sticky cookie) 查剛被寫過的書也走 primary, 其他書照常走 replica
+		startRequest(new MockHttpServletRequest());
+		assertThat(repository.getBookById(written)).map(Book::getName).contains("patched-" + written);
+		assertThat(repository.getBookById(untouched)).map(Book::getName).contains("replica-" + untouched);
+	}
+
+	@Test
+	void newlyAddedBookIsReadFromPrimary() {
+		Book book = new Book(null, "剛新增的書", 1.0, 1, false);
+		repository.addBook(book); // 只寫進 primary, replica 沒有這本書
+		assertThat(book.getId()).isNotNull();
+		ids.accumulateAndGet(book.getId(), Math::max); // 其他測試自己指定 id, 跳過資料庫剛產生的這一個
+
+		// 其他前端的請求 (沒有 sticky cookie) 馬上查這本書, 也要走 primary 才查得到
+		startRequest(new MockHttpServletRequest());
+		assertThat(repository.getBookById(book.getId())).map(Book::getName).contains("剛新增的書");
+	}
+
+	@Test
+	void requestThatWroteReadsPrimaryAndPinsClientWithCookie() {
+		int written = insertOnBoth();
+		int other = insertOnBoth();
+		MockHttpServletResponse response = startRequest(new MockHttpServletRequest());
+
+		repository.deleteBook(written);
+
+		assertThat(repository.getBookById(other)).map(Book::getName).contains("primary-" + other);
+		Cookie sticky = response.getCookie(ReplicaRoutingContext.STICKY_COOKIE);
+		assertThat(sticky).isNotNull();
+
+		// 同一個前端的下一個請求帶著 cookie, sticky-window 內也走 primary
+		MockHttpServletRequest next = new MockHttpServletRequest();
+		next.setCookies(sticky);
+		startRequest(next);
+		assertThat(repository.getBookById(other)).map(Book::getName).contains("primary-" + other);
+
+		// 沒帶 cookie 的其他前端照常走 replica
+		startRequest(new MockHttpServletRequest());
+		assertThat(repository.getBookById(other)).map(Book::getName).contains("replica-" + other);
+	}
+
+	@Test
+	void expiredCookieDoesNotPin() {
+		int id = insertOnBoth();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setCookies(
+				new Cookie(ReplicaRoutingContext.STICKY_COOKIE, Long.toString(System.currentTimeMillis() - 1000)));
+		startRequest(request);
+
+		assertThat(repository.getBookById(id)).map(Book::getName).contains("replica-" + id);
+	}
+
+	// 同一個 id 在 primary 與 replica 放不同的書名
+	private int insertOnBoth() {
+		int id = ids.incrementAndGet();
+		String sql = "insert into book(id, name, price, amount, pub) values(?, ?, 1.0, 1, false)";
+		jdbcTemplate.update(sql, id, "primary-" + id);
+		replica.update(sql, id, "replica-" + id);
+		return id;
+	}
+
+	private static MockHttpServletResponse startRequest(MockHttpServletRequest request) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+		return response;
+	}
+
+	private double reads(String target) {
+		return registry.get("book.datasource.reads").tag("target", target).counter().count();
+	}
+}
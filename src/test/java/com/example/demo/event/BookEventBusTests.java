@@ -0,0 +1,221 @@
+package com.example.demo.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.model.Book;
+
+// 事件匯流排: 監聽者先於 SSE 訂閱者收到事件、慢的監聽者不擋其他發佈、Last-Event-ID 補送與 reset、訂閱者上限、卡住的訂閱者不影響其他人
+class BookEventBusTests {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private TestBus bus;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		bus.shutdown();
+	}
+
+	@Test
+	void listenersRunBeforeSubscribersAreOffered() throws Exception {
+		bus = new TestBus(16, 4, Duration.ofSeconds(10));
+		RecordingEmitter emitter = bus.subscribeRecording(null, false);
+		List<Boolean> seenBySubscriber = new ArrayList<>();
+		bus.addListener(event -> seenBySubscriber.add(emitter.text().contains("id:" + event.getSeq())));
+
+		bus.publish(BookEvent.Type.UPDATED, 1, book(1));
+
+		assertThat(seenBySubscriber).containsExactly(false);
+		await(() -> emitter.text().contains("id:1"));
+		assertThat(emitter.text()).contains("event:UPDATED");
+	}
+
+	@Test
+	void slowListenerDoesNotBlockOtherPublishersAndOrderIsKept() throws Exception {
+		bus = new TestBus(16, 4, Duration.ofSeconds(10));
+		RecordingEmitter emitter = bus.subscribeRecording(null, false);
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch slow = new CountDownLatch(1);
+		bus.addListener(event -> {
+			if (event.getBookId() == 1) {
+				entered.countDown();
+				await(slow);
+			}
+		});
+		Thread first = Thread.ofPlatform().start(() -> bus.publish(BookEvent.Type.UPDATED, 1, book(1)));
+		await(entered);
+
+		bus.publish(BookEvent.Type.UPDATED, 2, book(2)); // 第一筆的監聽者還卡著, 這裡不用等
+
+		assertThat(emitter.text()).doesNotContain("id:2"); // 序號 2 要等序號 1 送出後才送
+		slow.countDown();
+		first.join();
+		await(() -> emitter.text().contains("id:2"));
+		assertThat(emitter.text().indexOf("id:1")).isLessThan(emitter.text().indexOf("id:2"));
+		assertThat(bus.getLastSeq()).isEqualTo(2);
+	}
+
+	@Test
+	void replaysEventsAfterLastEventId() throws Exception {
+		bus = new TestBus(16, 4, Duration.ofSeconds(10));
+		for (int i = 1; i <= 3; i++) {
+			bus.publish(BookEvent.Type.CREATED, i, book(i));
+		}
+
+		RecordingEmitter emitter = bus.subscribeRecording(1L, false);
+
+		await(() -> emitter.text().contains("id:3"));
+		assertThat(emitter.text()).contains("id:2").doesNotContain("id:1\n");
+	}
+
+	@Test
+	void sendsResetWhenEventsAreGoneFromBuffer() throws Exception {
+		bus = new TestBus(2, 4, Duration.ofSeconds(10));
+		for (int i = 1; i <= 5; i++) {
+			bus.publish(BookEvent.Type.DELETED, i, null);
+		}
+
+		RecordingEmitter emitter = bus.subscribeRecording(1L, false);
+
+		await(() -> emitter.text().contains("event:reset"));
+		assertThat(emitter.text()).contains("id:5");
+	}
+
+	@Test
+	void rejectsSubscribersOverLimit() {
+		bus = new TestBus(16, 4, Duration.ofSeconds(10), 1);
+
+		assertThat(bus.subscribe(null)).isPresent();
+		assertThat(bus.subscribe(null)).isEmpty();
+	}
+
+	@Test
+	void concurrentSubscribesDoNotExceedLimit() throws Exception {
+		bus = new TestBus(16, 4, Duration.ofSeconds(10), 5);
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return bus.subscribe(null).isPresent();
+				}));
+			}
+			start.countDown();
+			int accepted = 0;
+			for (Future<Boolean> result : results) {
+				accepted += result.get() ? 1 : 0;
+			}
+
+			assertThat(accepted).isEqualTo(5);
+			assertThat(bus.getSubscriberCount()).isEqualTo(5);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void stalledSubscribersDoNotStarveOthersAndAreDropped() throws Exception {
+		bus = new TestBus(16, 4, Duration.ofMillis(200));
+		for (int i = 0; i < 3; i++) {
+			bus.subscribeRecording(null, true); // 卡在第一次 send
+		}
+		RecordingEmitter healthy = bus.subscribeRecording(null, false);
+
+		bus.publish(BookEvent.Type.UPDATED, 7, book(7));
+
+		await(() -> healthy.text().contains("id:1"));
+		await(() -> bus.getSubscriberCount() == 1);
+	}
+
+	private static Book book(int id) {
+		return new Book(id, "book-" + id, 1.0, 1, false);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertThat(latch.await(5, TimeUnit.SECONDS)).as("等待逾時").isTrue();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("等待逾時").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	// 不寫網路的 emitter: 記錄送出的內容, stall 時在 send 裡一直等到測試結束 (模擬前端不讀)
+	private static class RecordingEmitter extends SseEmitter {
+
+		private final List<String> sent = new CopyOnWriteArrayList<>();
+		private final CountDownLatch stall;
+
+		RecordingEmitter(long timeout, CountDownLatch stall) {
+			super(timeout);
+			this.stall = stall;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (stall != null) {
+				try {
+					stall.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			sent.add(builder.build().stream().map(data -> String.valueOf(data.getData()))
+					.collect(Collectors.joining()));
+		}
+
+		String text() {
+			return String.join("", sent);
+		}
+	}
+
+	private class TestBus extends BookEventBus {
+
+		private boolean nextStalls;
+
+		TestBus(int bufferSize, int senderThreads, Duration sendTimeout) {
+			this(bufferSize, senderThreads, sendTimeout, 100);
+		}
+
+		TestBus(int bufferSize, int senderThreads, Duration sendTimeout, int maxSubscribers) {
+			super(bufferSize, 16, maxSubscribers, senderThreads, sendTimeout, Duration.ofMinutes(1),
+					Duration.ofMinutes(1));
+		}
+
+		@Override
+		SseEmitter createEmitter(long timeout) {
+			return new RecordingEmitter(timeout, nextStalls ? release : null);
+		}
+
+		RecordingEmitter subscribeRecording(Long resumeFrom, boolean stalls) {
+			nextStalls = stalls;
+			return (RecordingEmitter) subscribe(resumeFrom).orElseThrow();
+		}
+	}
+}
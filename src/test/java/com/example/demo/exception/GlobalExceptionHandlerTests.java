@@ -0,0 +1,104 @@
+package com.example.demo.exception;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 全局錯誤處理: 書籍錯誤依類型回 404/409/400, Spring MVC 的錯誤用自己的狀態碼,
+// 其他例外回 500 與固定訊息 (不洩漏例外內容); 計數器依例外類別與狀態碼分開
+@SpringJUnitConfig
+class GlobalExceptionHandlerTests {
+
+	@Configuration
+	@Import(GlobalExceptionHandler.class)
+	static class Config {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	// 依路徑丟出不同的例外
+	@RestController
+	static class ThrowingController {
+
+		@GetMapping("/throw/{kind}")
+		String raise(@PathVariable String kind) throws BookException {
+			switch (kind) {
+			case "not-found" -> throw new BookNotFoundException(7);
+			case "conflict" -> throw new BookConflictException("版本衝突");
+			case "book" -> throw new BookException("書名不可空白");
+			case "status-404" -> throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+			case "status-409" -> throw new ResponseStatusException(HttpStatus.CONFLICT);
+			default -> throw new IllegalStateException("select * from secret_table");
+			}
+		}
+	}
+
+	@Autowired
+	private GlobalExceptionHandler handler;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.standaloneSetup(new ThrowingController()).setControllerAdvice(handler).build();
+	}
+
+	@Test
+	void bookErrorsMapToStatusByType() throws Exception {
+		mockMvc.perform(get("/throw/not-found")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/throw/conflict")).andExpect(status().isConflict())
+				.andExpect(jsonPath("$.message").value("版本衝突"));
+		mockMvc.perform(get("/throw/book")).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("書名不可空白"));
+	}
+
+	@Test
+	void unexpectedExceptionsAre500WithoutDetails() throws Exception {
+		String body = mockMvc.perform(get("/throw/unexpected")).andExpect(status().isInternalServerError())
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(body).doesNotContain("secret_table").doesNotContain("IllegalStateException");
+		assertThat(registry.get("book.errors.handled").tag("exception", "IllegalStateException").tag("status", "500")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void springErrorsKeepTheirStatus() throws Exception {
+		mockMvc.perform(post("/throw/book")).andExpect(status().isMethodNotAllowed());
+	}
+
+	@Test
+	void countersAreKeptPerStatus() throws Exception {
+		mockMvc.perform(get("/throw/status-404")).andExpect(status().isNotFound());
+		mockMvc.perform(get("/throw/status-409")).andExpect(status().isConflict());
+
+		assertThat(registry.get("book.errors.handled").tag("exception", "ResponseStatusException").counters())
+				.extracting(counter -> counter.getId().getTag("status")).containsExactlyInAnyOrder("404", "409");
+	}
+}
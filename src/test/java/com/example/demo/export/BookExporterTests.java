@@ -0,0 +1,97 @@
+package com.example.demo.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.example.demo.model.Book;
+import com.example.demo.service.BookService;
+
+// 匯出: 全部讀完才寫檔案結尾; 資料庫讀到一半失敗時例外往外丟, 輸出的是打不開的檔案而不是少了資料的完整檔案
+class BookExporterTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void completeExportsAreReadable() throws IOException {
+		BookService bookService = bookService(false);
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		BookExporter.writeGzipCsv(bookService, gzip);
+		ByteArrayOutputStream xlsx = new ByteArrayOutputStream();
+		BookExporter.writeXlsx(bookService, xlsx);
+
+		assertThat(gunzip(gzip.toByteArray())).contains("1,book-1").contains("2,book-2");
+		try (ZipFile zip = new ZipFile(write(xlsx.toByteArray()).toFile())) {
+			assertThat(zip.getEntry("xl/worksheets/sheet1.xml")).isNotNull();
+		}
+	}
+
+	@Test
+	void xlsxIsLeftIncompleteWhenRowsFailMidway() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertThatThrownBy(() -> BookExporter.writeXlsx(bookService(true), out))
+				.isInstanceOf(DataAccessResourceFailureException.class);
+
+		assertThat(out.size()).isPositive(); // 標題列已經送出
+		Path file = write(out.toByteArray());
+		assertThatThrownBy(() -> new ZipFile(file.toFile()).close()).isInstanceOf(ZipException.class);
+	}
+
+	@Test
+	void gzipCsvHasNoTrailerWhenRowsFailMidway() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertThatThrownBy(() -> BookExporter.writeGzipCsv(bookService(true), out))
+				.isInstanceOf(DataAccessResourceFailureException.class);
+
+		assertThat(out.size()).isPositive();
+		assertThatThrownBy(() -> gunzip(out.toByteArray())).isInstanceOf(EOFException.class);
+	}
+
+	// 串流兩筆書籍, failing 時接著丟出資料庫例外 (模擬連線中斷)
+	@SuppressWarnings("unchecked")
+	private static BookService bookService(boolean failing) {
+		BookService bookService = mock(BookService.class);
+		doAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(0);
+			consumer.accept(new Book(1, "book-1", 1.0, 1, false));
+			consumer.accept(new Book(2, "book-2", 2.0, 2, true));
+			if (failing) {
+				throw new DataAccessResourceFailureException("連線中斷");
+			}
+			return null;
+		}).when(bookService).streamAllBooks(any(Consumer.class));
+		return bookService;
+	}
+
+	private Path write(byte[] bytes) throws IOException {
+		return Files.write(Files.createTempFile(tempDir, "export", ".xlsx"), bytes);
+	}
+
+	private static String gunzip(byte[] bytes) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
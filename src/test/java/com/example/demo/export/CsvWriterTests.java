@@ -0,0 +1,67 @@
+package com.example.demo.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+// CSV 寫出: BOM、引號跳脫、公式前綴 (CSV injection)、null 欄位與不關閉外部串流
+class CsvWriterTests {
+
+	@Test
+	void writesBomAndCrlfRows() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (CsvWriter csv = new CsvWriter(out)) {
+			csv.writeRow("ID", "書名").writeNumber(1).writeString("老夫子").endRow();
+		}
+
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("\uFEFFID,書名\r\n1,老夫子\r\n");
+	}
+
+	@Test
+	void quotesSeparatorsQuotesAndNewlines() throws IOException {
+		assertThat(row("a,b", "say \"hi\"", "line1\nline2")).isEqualTo("\"a,b\",\"say \"\"hi\"\"\",\"line1\nline2\"");
+	}
+
+	@Test
+	void prefixesFormulas() throws IOException {
+		assertThat(row("=SUM(A1)", "+1", "-2", "@x", "a=b")).isEqualTo("\"'=SUM(A1)\",\"'+1\",\"'-2\",\"'@x\",a=b");
+	}
+
+	@Test
+	void writesNullsAsEmptyFields() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (CsvWriter csv = new CsvWriter(out)) {
+			csv.writeNumber(null).writeString(null).writeBoolean(null).writeNumber(9.5).writeBoolean(true).endRow();
+		}
+
+		assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("\uFEFF,,,9.5,true\r\n");
+	}
+
+	@Test
+	void closeDoesNotCloseUnderlyingStream() throws IOException {
+		boolean[] closed = { false };
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		new CsvWriter(out).writeRow("a").close();
+
+		assertThat(closed[0]).isFalse();
+		assertThat(out.size()).isPositive();
+	}
+
+	private static String row(String... values) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (CsvWriter csv = new CsvWriter(out)) {
+			csv.writeRow(values);
+		}
+		String text = out.toString(StandardCharsets.UTF_8);
+		return text.substring(1, text.length() - 2); // 去掉 BOM 與結尾的 \r\n
+	}
+}
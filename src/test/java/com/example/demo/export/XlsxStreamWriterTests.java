@@ -0,0 +1,98 @@
+package com.example.demo.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+// xlsx 寫出: zip 內的檔案齊全、工作表是合法的 XML、文字跳脫、數字/布林/空白儲存格
+class XlsxStreamWriterTests {
+
+	@Test
+	void writesAllPartsOfWorkbook() throws Exception {
+		Map<String, String> entries = unzip(write(xlsx -> xlsx.writeRow("ID", "書名")));
+
+		assertThat(entries).containsOnlyKeys("[Content_Types].xml", "_rels/.rels", "xl/_rels/workbook.xml.rels",
+				"xl/workbook.xml", "xl/worksheets/sheet1.xml");
+		assertThat(entries.get("xl/workbook.xml")).contains("<sheet name=\"書籍 &amp; 雜誌\"");
+		for (String xml : entries.values()) {
+			parse(xml); // 每個檔案都是合法的 XML
+		}
+	}
+
+	@Test
+	void writesTypedCellsAndEscapesText() throws Exception {
+		byte[] bytes = write(xlsx -> {
+			xlsx.writeRow("ID", "書名");
+			xlsx.writeNumber(7).writeString("<Tom & \"Jerry\">\u0001").writeNumber(12.5).writeBoolean(true)
+					.writeString(null).endRow();
+		});
+
+		Document sheet = parse(unzip(bytes).get("xl/worksheets/sheet1.xml"));
+		NodeList rows = sheet.getElementsByTagName("row");
+		assertThat(rows.getLength()).isEqualTo(2);
+		NodeList cells = ((Element) rows.item(1)).getElementsByTagName("c");
+		assertThat(cells.getLength()).isEqualTo(5);
+		assertThat(cells.item(0).getTextContent()).isEqualTo("7");
+		assertThat(((Element) cells.item(1)).getAttribute("t")).isEqualTo("inlineStr");
+		assertThat(cells.item(1).getTextContent()).isEqualTo("<Tom & \"Jerry\">"); // 控制字元被移除
+		assertThat(cells.item(2).getTextContent()).isEqualTo("12.5");
+		assertThat(((Element) cells.item(3)).getAttribute("t")).isEqualTo("b");
+		assertThat(cells.item(3).getTextContent()).isEqualTo("1");
+		assertThat(cells.item(4).getTextContent()).isEmpty();
+	}
+
+	@Test
+	void finishEndsOpenRowAndFlushedDataIsReadable() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XlsxStreamWriter xlsx = new XlsxStreamWriter(out, "書籍");
+		xlsx.writeRow("ID").flush();
+		int flushed = out.size();
+		xlsx.writeNumber(1); // 沒有 endRow, finish 時補上
+		xlsx.finish();
+
+		assertThat(flushed).isPositive();
+		assertThat(parse(unzip(out.toByteArray()).get("xl/worksheets/sheet1.xml")).getElementsByTagName("row")
+				.getLength()).isEqualTo(2);
+	}
+
+	private interface Rows {
+		void write(XlsxStreamWriter xlsx) throws IOException;
+	}
+
+	private static byte[] write(Rows rows) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		XlsxStreamWriter xlsx = new XlsxStreamWriter(out, "書籍 & 雜誌");
+		rows.write(xlsx);
+		xlsx.finish();
+		return out.toByteArray();
+	}
+
+	private static Map<String, String> unzip(byte[] bytes) throws IOException {
+		Map<String, String> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+			for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+				entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		return entries;
+	}
+
+	private static Document parse(String xml) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+}
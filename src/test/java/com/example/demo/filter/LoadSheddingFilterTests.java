@@ -0,0 +1,125 @@
+package com.example.demo.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.ratelimit.AdaptiveConcurrencyLimiter;
+import com.example.demo.ratelimit.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+
+// 限流 filter: 只有設定過的 API key 各自計算額度, 非同步回應 (匯出/串流) 的名額保留到回應結束
+// 同時處理上限固定為 1 (min = max = 1), 第二個同時進來的請求就會被擋
+@SpringJUnitConfig
+@TestPropertySource(properties = { "book.rate-limit.routes=/limited/**=1:2", "book.rate-limit.api-keys=trusted",
+		"book.concurrency-limit.initial=1", "book.concurrency-limit.min=1", "book.concurrency-limit.max=1" })
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD) // 每個測試從空的 bucket 與名額開始
+class LoadSheddingFilterTests {
+
+	@Configuration
+	@Import({ LoadSheddingFilter.class, TokenBucketRateLimiter.class, AdaptiveConcurrencyLimiter.class })
+	static class Config {
+
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance();
+		}
+
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private LoadSheddingFilter filter;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void unknownApiKeysShareTheIpBucket() throws Exception {
+		assertThat(status("/limited/x", "random-1", (req, res) -> {})).isEqualTo(200);
+		assertThat(status("/limited/x", "random-2", (req, res) -> {})).isEqualTo(200);
+		assertThat(status("/limited/x", "random-3", (req, res) -> {})).isEqualTo(429); // 換 key 也換不到新的額度
+
+		assertThat(status("/limited/x", "trusted", (req, res) -> {})).isEqualTo(200); // 設定過的 key 各自計算
+	}
+
+	@Test
+	void asyncResponseHoldsPermitUntilComplete() throws Exception {
+		MockHttpServletRequest streaming = request("/book/export");
+		filter.doFilter(streaming, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+		assertThat(inFlight()).isEqualTo(1);
+		assertThat(status("/book/1", null, (req, res) -> {})).isEqualTo(503);
+
+		((MockAsyncContext) streaming.getAsyncContext()).complete();
+
+		assertThat(inFlight()).isZero();
+		assertThat(status("/book/1", null, (req, res) -> {})).isEqualTo(200);
+	}
+
+	@Test
+	void timeoutReleasesPermitOnce() throws Exception {
+		MockHttpServletRequest streaming = request("/book/stream");
+		filter.doFilter(streaming, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+		MockAsyncContext context = (MockAsyncContext) streaming.getAsyncContext();
+
+		for (AsyncListener listener : context.getListeners()) {
+			listener.onTimeout(new AsyncEvent(context));
+		}
+		context.complete(); // timeout 之後容器還會送 complete
+
+		assertThat(inFlight()).isZero();
+	}
+
+	@Test
+	void synchronousRequestReleasesPermitImmediately() throws Exception {
+		assertThat(status("/book/1", null, (req, res) -> {})).isEqualTo(200);
+		assertThat(inFlight()).isZero();
+	}
+
+	private int status(String path, String apiKey, FilterChain chain) throws Exception {
+		MockHttpServletRequest request = request(path);
+		if (apiKey != null) {
+			request.addHeader("X-API-Key", apiKey);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, chain);
+		return response.getStatus();
+	}
+
+	private static MockHttpServletRequest request(String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setAsyncSupported(true);
+		return request;
+	}
+
+	private double inFlight() {
+		return registry.get("book.concurrency.in-flight").gauge().value();
+	}
+}
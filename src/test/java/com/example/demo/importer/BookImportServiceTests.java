@@ -0,0 +1,126 @@
+package com.example.demo.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.importer.BookImportJob.LineError;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookRepositoryImpl;
+import com.example.demo.service.BookServiceImpl;
+
+// CSV 匯入管線: 依標題列對應欄位、驗證錯誤記在行號上 (保留行號最小的幾筆)、worker 數受連線池限制
+// 用記憶體版 BookRepository, 不需要資料庫
+@SpringJUnitConfig
+@TestPropertySource(properties = { "book.import.workers=2", "book.import.chunk-size=2",
+		"book.import.max-errors=3", "spring.datasource.hikari.maximum-pool-size=20" })
+class BookImportServiceTests {
+
+	@Configuration
+	@Import({ BookImportService.class, BookServiceImpl.class })
+	static class Config {
+
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance();
+		}
+
+		@Bean
+		BookRepository bookRepositoryJdbcImpl() {
+			return new BookRepositoryImpl();
+		}
+
+		@Bean
+		BookEventBus bookEventBus() {
+			return new BookEventBus(16, 16, 10, 1, Duration.ofSeconds(10), Duration.ofMinutes(1),
+					Duration.ofMinutes(1));
+		}
+	}
+
+	@Autowired
+	private BookImportService importService;
+
+	@Autowired
+	private BookRepository repository;
+
+	@Test
+	void importsExportedFileByHeaderNames() throws Exception {
+		// 與 GET /book/export 相同的格式: BOM、ID 欄、欄位順序不同也可以、匯出時加上的公式前綴會拿掉
+		BookImportJob job = run("""
+				\uFEFFID,出刊,書名,價格,數量\r
+				1,true,匯入-甲,10.5,3\r
+				2,false,"匯入-乙, 上冊",20,0\r
+				3,是,"'=匯入-丙",0,1\r
+				""");
+
+		assertThat(job.getState()).isEqualTo(BookImportJob.State.COMPLETED);
+		assertThat(job.getRowsRead()).isEqualTo(3);
+		assertThat(job.getImported()).isEqualTo(3);
+		assertThat(job.getFailed()).isZero();
+		assertThat(job.getProgress()).isEqualTo(100);
+		assertThat(repository.findBooks("匯入-", null, "id", true, 0, 10)).extracting(Book::getName, Book::getPub)
+				.containsExactly(tuple("匯入-甲", true), tuple("匯入-乙, 上冊", false), tuple("=匯入-丙", true));
+	}
+
+	@Test
+	void invalidRowsAreReportedByLineAndLowestLinesAreKept() throws Exception {
+		StringBuilder csv = new StringBuilder("name,price,amount,pub\n");
+		for (int i = 0; i < 10; i++) {
+			csv.append(i % 2 == 0 ? "錯誤列,abc,1,false\n" : "正確列" + i + ",1,1,false\n");
+		}
+
+		BookImportJob job = run(csv.toString());
+
+		assertThat(job.getState()).isEqualTo(BookImportJob.State.COMPLETED);
+		assertThat(job.getImported()).isEqualTo(5);
+		assertThat(job.getFailed()).isEqualTo(5);
+		assertThat(job.isErrorsTruncated()).isTrue();
+		assertThat(job.getErrors()).extracting(LineError::line).containsExactly(2L, 4L, 6L);
+		assertThat(job.getErrors().get(0).message()).contains("價格格式錯誤");
+	}
+
+	@Test
+	void brokenFileFailsJobButKeepsRowsReadBefore() throws Exception {
+		BookImportJob job = run("書名,價格,數量\n斷檔前,1,1\n\"沒有結尾,1,1\n");
+
+		assertThat(job.getState()).isEqualTo(BookImportJob.State.FAILED);
+		assertThat(job.getMessage()).contains("引號沒有結尾");
+		assertThat(job.getImported()).isEqualTo(1);
+	}
+
+	@Test
+	void workersAreBoundedByConnectionPool() {
+		assertThat(importService.getWorkers()).isEqualTo(2);
+		// 連線池 10 條, 2 個工作同時匯入: 每個工作最多 10 / 2 / 2 = 2 個 worker
+		assertThat(new BookImportService(8, 500, 2, 1000, Duration.ofHours(1), 10).getWorkers()).isEqualTo(2);
+		assertThat(new BookImportService(8, 500, 4, 1000, Duration.ofHours(1), 2).getWorkers()).isEqualTo(1);
+	}
+
+	private BookImportJob run(String csv) throws Exception {
+		BookImportJob job = importService
+				.start(new MockMultipartFile("file", "books.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)))
+				.orElseThrow();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (job.getState() == BookImportJob.State.RUNNING) {
+			assertThat(System.nanoTime()).as("等待匯入逾時").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+		return job;
+	}
+}
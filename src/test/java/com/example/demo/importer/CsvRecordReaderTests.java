@@ -0,0 +1,38 @@
+package com.example.demo.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+// CSV 逐筆讀取: BOM、引號內的逗號/換行/引號、空白行、每筆的起始行號、沒有結尾的引號
+class CsvRecordReaderTests {
+
+	@Test
+	void readsQuotedFieldsAcrossLines() throws IOException {
+		CsvRecordReader reader = new CsvRecordReader(
+				new StringReader("\uFEFFa,\"b,c\"\r\n\r\n\"say \"\"hi\"\"\",\"x\ny\"\nlast,"));
+
+		assertThat(reader.next()).containsExactly("a", "b,c");
+		assertThat(reader.getRecordLine()).isEqualTo(1);
+		assertThat(reader.next()).containsExactly("say \"hi\"", "x\ny");
+		assertThat(reader.getRecordLine()).isEqualTo(3);
+		assertThat(reader.next()).containsExactly("last", "");
+		assertThat(reader.getRecordLine()).isEqualTo(5);
+		assertThat(reader.next()).isNull();
+	}
+
+	@Test
+	void unterminatedQuoteFails() {
+		CsvRecordReader reader = new CsvRecordReader(new StringReader("ok\n\"never closed,1\n2\n"));
+
+		assertThatThrownBy(() -> {
+			while (reader.next() != null) {
+				// 讀到檔尾
+			}
+		}).isInstanceOf(IOException.class).hasMessageContaining("第 2 行");
+	}
+}
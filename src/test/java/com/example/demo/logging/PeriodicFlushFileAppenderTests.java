@@ -0,0 +1,113 @@
+package com.example.demo.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+
+// 批次寫檔: 緩衝區沒滿也會在 flushInterval 內寫入檔案, 與寫入日誌的執行緒同時 flush 不會讓內容交錯
+class PeriodicFlushFileAppenderTests {
+
+	@TempDir
+	Path dir;
+
+	private LoggerContext context;
+	private PeriodicFlushFileAppender appender;
+
+	@BeforeEach
+	void setUp() {
+		context = new LoggerContext();
+		context.setMDCAdapter(new LogbackMDCAdapter());
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern("%m%n");
+		encoder.setCharset(StandardCharsets.UTF_8);
+		encoder.start();
+
+		appender = new PeriodicFlushFileAppender();
+		appender.setContext(context);
+		appender.setFile(dir.resolve("app.log").toString());
+		appender.setImmediateFlush(false);
+		appender.setBufferSize(new FileSize(64 * 1024));
+		appender.setFlushInterval(50);
+		appender.setEncoder(encoder);
+		TimeBasedRollingPolicy<ILoggingEvent> policy = new TimeBasedRollingPolicy<>();
+		policy.setContext(context);
+		policy.setParent(appender);
+		policy.setFileNamePattern(dir.resolve("app.log.%d{yyyy-MM-dd}").toString());
+		policy.start();
+		appender.setRollingPolicy(policy);
+		appender.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		appender.stop();
+		context.stop();
+	}
+
+	@Test
+	void flushesBufferedLinesWithinInterval() throws Exception {
+		appender.doAppend(event("第一行"));
+
+		assertThat(Files.size(dir.resolve("app.log"))).isZero(); // 還在緩衝區
+		assertThat(waitForLines(1)).containsExactly("第一行");
+	}
+
+	@Test
+	void concurrentWritesAndFlushesKeepLinesIntact() throws Exception {
+		String line = "x".repeat(200);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int t = 0; t < 4; t++) {
+			executor.submit(() -> {
+				for (int i = 0; i < 2_000; i++) {
+					appender.doAppend(event(line));
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(waitForLines(8_000)).hasSize(8_000).allMatch(line::equals);
+	}
+
+	private List<String> waitForLines(int expected) throws Exception {
+		Path file = dir.resolve("app.log");
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		List<String> lines = Files.readAllLines(file);
+		while (lines.size() < expected && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+			lines = Files.readAllLines(file);
+		}
+		return lines;
+	}
+
+	private LoggingEvent event(String message) {
+		LoggingEvent event = new LoggingEvent();
+		event.setLoggerContext(context);
+		event.setLevel(Level.INFO);
+		event.setLoggerName("test");
+		event.setMessage(message);
+		event.setTimeStamp(System.currentTimeMillis());
+		return event;
+	}
+}
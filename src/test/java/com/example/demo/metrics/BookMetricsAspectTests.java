@@ -0,0 +1,82 @@
+package com.example.demo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.exception.BookNotFoundException;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookRepositoryImpl;
+import com.example.demo.service.BookService;
+import com.example.demo.service.BookServiceImpl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// repository 耗時與 BookException 次數: 同一個方法重複呼叫共用同一個 Timer/Counter
+@SpringJUnitConfig
+class BookMetricsAspectTests {
+
+	@Configuration
+	@EnableAspectJAutoProxy
+	@Import({ BookMetricsAspect.class, BookServiceImpl.class })
+	static class Config {
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		BookRepository bookRepositoryJdbcImpl() {
+			return new BookRepositoryImpl();
+		}
+
+		@Bean
+		BookEventBus bookEventBus() {
+			return mock(BookEventBus.class);
+		}
+	}
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void timesRepositoryCallsPerMethod() throws Exception {
+		bookService.getBookById(1);
+		long before = registry.get("book.repository").tag("method", "getBookById").timer().count();
+
+		bookService.getBookById(1);
+		bookService.getBookById(2);
+		bookService.findAllBooks();
+
+		assertThat(registry.get("book.repository").tag("method", "getBookById").timers()).hasSize(1);
+		assertThat(registry.get("book.repository").tag("method", "getBookById").timer().count()).isEqualTo(before + 2);
+		assertThat(registry.get("book.repository").tag("method", "findAllBooks").timer().count()).isPositive();
+	}
+
+	@Test
+	void countsBookExceptionsFromService() {
+		double before = registry.find("book.exceptions").tag("method", "getBookById").counters().stream()
+				.mapToDouble(Counter::count).sum();
+
+		assertThatThrownBy(() -> bookService.getBookById(-1)).isInstanceOf(BookNotFoundException.class);
+		assertThatThrownBy(() -> bookService.getBookById(-2)).isInstanceOf(BookNotFoundException.class);
+
+		assertThat(registry.get("book.exceptions").tag("method", "getBookById").counter().count())
+				.isEqualTo(before + 2);
+	}
+}
@@ -0,0 +1,174 @@
+package com.example.demo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepositoryJdbcImpl;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 慢查詢: 超過 warn/error 門檻才記錄與計數, 參數只記摘要, 串流整張表不列入
+@SpringJUnitConfig
+@TestPropertySource(properties = { "book.jdbc.slow-query.warn-threshold=20ms",
+		"book.jdbc.slow-query.error-threshold=200ms" })
+class SlowQueryAspectTests {
+
+	@Configuration
+	@EnableAspectJAutoProxy(proxyTargetClass = true)
+	@Import(SlowQueryAspect.class)
+	static class Config {
+
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance(); // 20ms 這類 Duration 寫法
+		}
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		SleepingRepository bookRepositoryJdbcImpl() {
+			return new SleepingRepository();
+		}
+
+		@Bean
+		JdbcTemplate jdbcTemplate() {
+			return mock(JdbcTemplate.class);
+		}
+
+		@Bean
+		TransactionTemplate transactionTemplate() {
+			return mock(TransactionTemplate.class);
+		}
+	}
+
+	// 不連資料庫, 用 sleep 模擬查詢時間
+	static class SleepingRepository extends BookRepositoryJdbcImpl {
+
+		@Override
+		public Optional<Book> getBookById(Integer id) {
+			sleep(id);
+			return Optional.empty();
+		}
+
+		@Override
+		public int[] addBooks(List<Book> books) {
+			sleep(300);
+			return new int[books.size()];
+		}
+
+		@Override
+		public void streamAllBooks(Consumer<Book> consumer) {
+			sleep(300);
+		}
+
+		private static void sleep(long millis) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Autowired
+	private BookRepositoryJdbcImpl repository;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryAspect.class);
+	private final ListAppender<ILoggingEvent> logs = new ListAppender<>();
+
+	@BeforeEach
+	void attachAppender() {
+		logs.start();
+		logger.addAppender(logs);
+	}
+
+	@AfterEach
+	void detachAppender() {
+		logger.detachAppender(logs);
+	}
+
+	@Test
+	void fastQueriesAreNotRecorded() {
+		double before = slowCount("getBookById", "warn");
+
+		repository.getBookById(0);
+
+		assertThat(logs.list).isEmpty();
+		assertThat(slowCount("getBookById", "warn")).isEqualTo(before);
+	}
+
+	@Test
+	void slowQueryLogsWarnWithArguments() {
+		double before = slowCount("getBookById", "warn");
+
+		repository.getBookById(50);
+
+		assertThat(slowCount("getBookById", "warn")).isEqualTo(before + 1);
+		assertThat(logs.list).singleElement().satisfies(event -> {
+			assertThat(event.getLevel()).isEqualTo(Level.WARN);
+			assertThat(event.getFormattedMessage()).contains("getBookById(50)");
+		});
+	}
+
+	@Test
+	void verySlowQueryLogsErrorWithCollectionSize() {
+		List<Book> books = List.of(new Book(), new Book(), new Book());
+
+		repository.addBooks(books);
+
+		assertThat(slowCount("addBooks", "error")).isEqualTo(1);
+		assertThat(logs.list).singleElement().satisfies(event -> {
+			assertThat(event.getLevel()).isEqualTo(Level.ERROR);
+			assertThat(event.getFormattedMessage()).contains("addBooks([3 筆])");
+		});
+	}
+
+	@Test
+	void streamingWholeTableIsExcluded() {
+		repository.streamAllBooks(book -> {
+		});
+
+		assertThat(logs.list).isEmpty();
+		assertThat(Search.in(registry).name("book.repository.slow").tag("method", "streamAllBooks").counter())
+				.isNull();
+	}
+
+	private double slowCount(String method, String level) {
+		var counter = Search.in(registry).name("book.repository.slow").tag("method", method).tag("level", level)
+				.counter();
+		return counter == null ? 0 : counter.count();
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.demo.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// gradient 同時處理數上限: 名額用完就拒絕、耗時穩定時慢慢放寬、資料庫變慢時降低但不低於下限
+// 統計區間設為 0 且每個樣本都結算, 每次 onSample 就調整一次
+class AdaptiveConcurrencyLimiterTests {
+
+	private static final long MILLIS = 1_000_000L;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void rejectsWhenLimitIsReachedUntilReleased() {
+		AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+		assertThat(registry.get("book.concurrency.in-flight").gauge().value()).isEqualTo(2);
+
+		limiter.release();
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void limitGrowsWhileLatencyIsSteady() {
+		AdaptiveConcurrencyLimiter limiter = limiter(10, 5, 100);
+		saturate(limiter);
+
+		for (int i = 0; i < 20; i++) {
+			limiter.onSample(10 * MILLIS);
+		}
+
+		assertThat(limiter.getLimit()).isGreaterThan(10).isLessThanOrEqualTo(100);
+		assertThat(registry.get("book.concurrency.limit").gauge().value()).isEqualTo(limiter.getLimit());
+	}
+
+	@Test
+	void limitShrinksWhenLatencyRisesButNotBelowMin() {
+		AdaptiveConcurrencyLimiter limiter = limiter(40, 35, 100);
+		saturate(limiter);
+		for (int i = 0; i < 5; i++) {
+			limiter.onSample(10 * MILLIS);
+		}
+		assertThat(limiter.getLimit()).isGreaterThan(40);
+
+		for (int i = 0; i < 8; i++) {
+			limiter.onSample(200 * MILLIS); // 資料庫開始排隊
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(35);
+	}
+
+	@Test
+	void lightLoadDoesNotChangeLimit() {
+		AdaptiveConcurrencyLimiter limiter = limiter(20, 5, 100);
+
+		for (int i = 0; i < 20; i++) {
+			limiter.onSample(500 * MILLIS); // 沒用到一半的名額, 耗時不代表上限是否合適
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(20);
+	}
+
+	private AdaptiveConcurrencyLimiter limiter(int initial, int min, int max) {
+		return new AdaptiveConcurrencyLimiter(initial, min, max, 1.5, Duration.ZERO, 1, registry);
+	}
+
+	// 佔滿目前的名額 (調整只在用到一半以上時才發生)
+	private static void saturate(AdaptiveConcurrencyLimiter limiter) {
+		while (limiter.tryAcquire()) {
+			// 取到上限為止
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.demo.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+// GCRA 頻率限制: 突發量內全部放行、超過時回傳要等多久、依速率補回、第一個符合的規則生效、每個前端各自計算
+class TokenBucketRateLimiterTests {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	// 每秒 10 次, 突發 3 次
+	private static final TokenBucketRateLimiter.Rule RULE = new TokenBucketRateLimiter.Rule("/book/**", 10, 3,
+			SECOND / 10, SECOND / 10 * 3);
+
+	@Test
+	void burstIsAllowedThenRejectedWithRetryAfter() {
+		AtomicLong tat = new AtomicLong();
+		long now = 5 * SECOND;
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(TokenBucketRateLimiter.acquire(RULE, tat, now).allowed()).isTrue();
+		}
+		TokenBucketRateLimiter.Decision rejected = TokenBucketRateLimiter.acquire(RULE, tat, now);
+
+		assertThat(rejected.allowed()).isFalse();
+		assertThat(rejected.route()).isEqualTo("/book/**");
+		assertThat(rejected.retryAfterNanos()).isEqualTo(SECOND / 10);
+		assertThat(tat.get()).isEqualTo(now + 3 * SECOND / 10); // 被拒絕不會推進 TAT
+	}
+
+	@Test
+	void tokensRefillAtConfiguredRate() {
+		AtomicLong tat = new AtomicLong();
+		long now = 5 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			TokenBucketRateLimiter.acquire(RULE, tat, now);
+		}
+
+		assertThat(TokenBucketRateLimiter.acquire(RULE, tat, now + SECOND / 10).allowed()).isTrue();
+		assertThat(TokenBucketRateLimiter.acquire(RULE, tat, now + SECOND / 10).allowed()).isFalse();
+		// 閒置夠久就補滿, 但不會超過突發量
+		long later = now + 10 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertThat(TokenBucketRateLimiter.acquire(RULE, tat, later).allowed()).isTrue();
+		}
+		assertThat(TokenBucketRateLimiter.acquire(RULE, tat, later).allowed()).isFalse();
+	}
+
+	@Test
+	void firstMatchingRuleAppliesPerClient() {
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(List.of("/book/export/**=1:1", "/book/**=1000:1000"),
+				100, Duration.ofMinutes(1));
+
+		assertThat(limiter.tryAcquire("/book/export/csv", "ip:a").allowed()).isTrue();
+		TokenBucketRateLimiter.Decision second = limiter.tryAcquire("/book/export/csv", "ip:a");
+		assertThat(second.allowed()).isFalse();
+		assertThat(second.route()).isEqualTo("/book/export/**");
+		assertThat(limiter.tryAcquire("/book/export/csv", "ip:b").allowed()).isTrue();
+		assertThat(limiter.tryAcquire("/book/1", "ip:a").allowed()).isTrue();
+		assertThat(limiter.tryAcquire("/other", "ip:a").route()).isNull(); // 沒有符合的規則, 不限制
+	}
+
+	@Test
+	void invalidRoutesAreRejected() {
+		assertThatThrownBy(() -> new TokenBucketRateLimiter(List.of("/book/**=10"), 100, Duration.ofMinutes(1)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TokenBucketRateLimiter(List.of("/book/**=0:5"), 100, Duration.ofMinutes(1)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
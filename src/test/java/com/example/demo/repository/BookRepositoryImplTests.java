@@ -0,0 +1,150 @@
+package com.example.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
+
+// InMemory 版 repository: id 不重複、依 id 排序、存取的都是複製品、版本檢查與 JDBC 版相同
+class BookRepositoryImplTests {
+
+	private final BookRepositoryImpl repository = new BookRepositoryImpl();
+
+	@Test
+	void concurrentAddsGetDistinctIdsInOrder() throws Exception {
+		int before = repository.findAllBooks().size();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 800; i++) {
+				int n = i;
+				futures.add(executor.submit(() -> repository.addBook(new Book(null, "book-" + n, 1.0, 1, false))));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		List<Integer> ids = repository.findAllBooks().stream().map(Book::getId).toList();
+		assertThat(ids).hasSize(before + 800).isSorted().doesNotHaveDuplicates();
+	}
+
+	@Test
+	void returnedBooksAreCopies() {
+		Book book = new Book(null, "原書名", 1.0, 1, false);
+		repository.addBook(book);
+
+		book.setName("外面改的");
+		repository.getBookById(book.getId()).get().setName("拿出去改的");
+
+		assertThat(repository.getBookById(book.getId())).map(Book::getName).contains("原書名");
+	}
+
+	@Test
+	void keysetPageStartsAfterCursor() {
+		List<Book> all = repository.findAllBooks();
+
+		List<Book> page = repository.findBooksAfter(all.get(0).getId(), 2);
+
+		assertThat(page).extracting(Book::getId).containsExactly(all.get(1).getId(), all.get(2).getId());
+	}
+
+	@Test
+	void patchChecksAndBumpsVersion() {
+		Book book = new Book(null, "舊書名", 1.0, 1, false);
+		repository.addBook(book);
+
+		assertThat(repository.patchBook(book.getId(), "新書名", null, 5)).isEmpty();
+		Book patched = repository.patchBook(book.getId(), "新書名", null, 0).orElseThrow();
+
+		assertThat(patched.getVersion()).isEqualTo(1);
+		assertThat(patched.getName()).isEqualTo("新書名");
+		assertThat(patched.getPrice()).isEqualTo(1.0);
+		assertThat(repository.patchBook(book.getId(), null, 2.0, null)).map(Book::getVersion).contains(2);
+	}
+
+	@Test
+	void updateAndDeleteReportMissingIds() {
+		Book book = new Book(null, "要刪的書", 1.0, 1, false);
+		repository.addBook(book);
+
+		assertThat(repository.updateBook(-1, book)).isFalse();
+		assertThat(repository.deleteBook(book.getId())).isTrue();
+		assertThat(repository.deleteBook(book.getId())).isFalse();
+		assertThat(repository.getBookById(book.getId())).isEmpty();
+		assertThat(repository.findAllBooks()).extracting(Book::getId).doesNotContain(book.getId());
+	}
+
+	@Test
+	void findBooksFiltersSortsAndPages() {
+		List<Book> byPrice = repository.findBooks(null, null, "price", false, 0, 2);
+		List<Book> keyword = repository.findBooks("小", null, "id", true, 0, 10);
+
+		assertThat(byPrice).extracting(Book::getPrice).containsExactly(14.5, 12.5);
+		assertThat(keyword).extracting(Book::getName).containsExactly("機器貓小叮噹", "好小子");
+		assertThat(repository.countBooks("小", null)).isEqualTo(2);
+	}
+
+	@Test
+	void pubAndKeywordFiltersUseIndexesThatFollowWrites() {
+		// 初始資料: 出刊的是「好小子」與「尼羅河的女兒」
+		assertThat(repository.findBooks(null, true, "id", true, 0, 10)).extracting(Book::getName)
+				.containsExactly("好小子", "尼羅河的女兒");
+		assertThat(repository.findBooks("小", false, "id", true, 0, 10)).extracting(Book::getName)
+				.containsExactly("機器貓小叮噹");
+		assertThat(repository.countBooks(null, false)).isEqualTo(2);
+
+		Book book = repository.findBooks("老夫子", null, "id", true, 0, 1).get(0);
+		book.setName("老夫子新版");
+		book.setPub(true);
+		repository.updateBook(book.getId(), book);
+		repository.patchBook(1, "小叮噹", null, null);
+		repository.deleteBook(3);
+
+		assertThat(repository.findBooks(null, true, "id", true, 0, 10)).extracting(Book::getName)
+				.containsExactly("老夫子新版", "尼羅河的女兒");
+		assertThat(repository.countBooks("老夫子", null)).isEqualTo(1);
+		assertThat(repository.countBooks("小", null)).isEqualTo(1);
+		assertThat(repository.findBooksByNamePrefix("老夫子")).extracting(Book::getName).containsExactly("老夫子新版");
+		assertThat(repository.findBooksByPub(false)).extracting(Book::getId).containsExactly(1);
+	}
+
+	@Test
+	void namePrefixLookupTreatsNullAsAllAndReturnsCopies() {
+		assertThat(repository.findBooksByNamePrefix(null)).hasSize(4);
+		assertThat(repository.findBooksByNamePrefix("機器")).extracting(Book::getName).containsExactly("機器貓小叮噹");
+
+		repository.findBooks(null, null, "name", true, 0, 10).forEach(book -> book.setName("改掉"));
+		repository.findBooksByNamePrefix("").forEach(book -> book.setName("改掉"));
+
+		assertThat(repository.countBooks("改掉", null)).isZero();
+		assertThat(repository.findBooks(null, null, "id", false, 1, 2)).extracting(Book::getId).containsExactly(3, 2);
+	}
+
+	@Test
+	void collectionVersionChangesOnEveryKindOfWrite() {
+		CollectionVersion initial = repository.getCollectionVersion();
+		Book book = new Book(null, "版本測試", 1.0, 1, false);
+
+		repository.addBook(book);
+		CollectionVersion added = repository.getCollectionVersion();
+		repository.patchBook(book.getId(), "版本測試-改", null, null);
+		CollectionVersion patched = repository.getCollectionVersion();
+		repository.deleteBook(book.getId());
+
+		assertThat(added.count()).isEqualTo(initial.count() + 1);
+		assertThat(patched.versionSum()).isEqualTo(added.versionSum() + 1);
+		assertThat(repository.getCollectionVersion()).isNotIn(added, patched);
+		assertThat(repository.getCollectionVersion()).isEqualTo(repository.getCollectionVersion());
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.demo.model.Book;
+
+// 批次新增/修改/刪除: 每一段在交易裡, 某一筆失敗時回報的結果要與資料庫實際內容一致
+@SpringBootTest(properties = "book.batch.chunk-size=3")
+@ActiveProfiles("test")
+class BookRepositoryJdbcBatchTests {
+
+	@Autowired
+	private BookRepositoryJdbcImpl repository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void addBooksReportsOnlyTheFailingRow() {
+		// name 不可為 null, 第 2 筆會失敗; 5 筆分成 3 + 2 兩段
+		List<Book> books = List.of(book("batch-add-1"), book(null), book("batch-add-3"), book("batch-add-4"),
+				book("batch-add-5"));
+
+		int[] rows = repository.addBooks(books);
+
+		assertThat(rows[1]).isEqualTo(Statement.EXECUTE_FAILED);
+		for (int i : new int[] { 0, 2, 3, 4 }) {
+			assertThat(isSuccess(rows[i])).as("row %d", i).isTrue();
+			assertThat(books.get(i).getId()).as("row %d id", i).isNotNull();
+			assertThat(repository.getBookById(books.get(i).getId())).map(Book::getName)
+					.contains(books.get(i).getName());
+		}
+		assertThat(countByPrefix("batch-add-")).isEqualTo(4);
+	}
+
+	@Test
+	void updateBooksKeepsSucceededRowsAndReportsFailedOnes() {
+		Book first = book("batch-update-1");
+		Book second = book("batch-update-2");
+		repository.addBooks(List.of(first, second));
+
+		Book rename = book("batch-update-1-renamed");
+		rename.setId(first.getId());
+		Book invalid = book(null);
+		invalid.setId(second.getId());
+		Book missing = book("batch-update-missing");
+		missing.setId(-1);
+
+		int[] rows = repository.updateBooks(List.of(rename, invalid, missing));
+
+		assertThat(isSuccess(rows[0])).isTrue();
+		assertThat(rows[1]).isEqualTo(Statement.EXECUTE_FAILED);
+		assertThat(rows[2]).isZero();
+		assertThat(repository.getBookById(first.getId())).map(Book::getName).contains("batch-update-1-renamed");
+		assertThat(repository.getBookById(first.getId())).map(Book::getVersion).contains(1);
+		assertThat(repository.getBookById(second.getId())).map(Book::getName).contains("batch-update-2");
+	}
+
+	@Test
+	void deleteBooksReportsMissingIds() {
+		Book book = book("batch-delete-1");
+		repository.addBooks(List.of(book));
+
+		int[] rows = repository.deleteBooks(List.of(book.getId(), -1));
+
+		assertThat(isSuccess(rows[0])).isTrue();
+		assertThat(rows[1]).isZero();
+		assertThat(repository.getBookById(book.getId())).isEmpty();
+	}
+
+	private int countByPrefix(String prefix) {
+		return jdbcTemplate.queryForObject("select count(*) from book where name like ?", Integer.class, prefix + "%");
+	}
+
+	private static boolean isSuccess(int rows) {
+		return rows > 0 || rows == Statement.SUCCESS_NO_INFO;
+	}
+
+	private static Book book(String name) {
+		return new Book(null, name, 9.5, 1, false);
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.example.demo.model.Book;
+
+// 依欄位位置對應: 欄位順序要與 BookRowMapper.COLUMNS 一致, 可為 null 的欄位要回傳 null 而不是 0/false
+class BookRowMapperTests {
+
+	private EmbeddedDatabase database;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+				.addScript("db/h2/schema.sql").build();
+		jdbcTemplate = new JdbcTemplate(database);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void mapsEveryColumnByPosition() {
+		jdbcTemplate.update("insert into book(name, price, amount, pub, version, updated_at) "
+				+ "values('老夫子', 10.5, 30, true, 3, timestamp '2024-01-02 03:04:05.678')");
+
+		Book book = jdbcTemplate.queryForObject("select " + BookRowMapper.COLUMNS + " from book",
+				BookRowMapper.INSTANCE);
+
+		assertThat(book.getId()).isPositive();
+		assertThat(book.getName()).isEqualTo("老夫子");
+		assertThat(book.getPrice()).isEqualTo(10.5);
+		assertThat(book.getAmount()).isEqualTo(30);
+		assertThat(book.getPub()).isTrue();
+		assertThat(book.getVersion()).isEqualTo(3);
+		assertThat(book.getUpdatedAt()).isNotNull().isBefore(Instant.now());
+	}
+
+	@Test
+	void nullColumnsStayNull() {
+		jdbcTemplate.update("insert into book(name, price, amount, pub) values('好小子', null, null, null)");
+
+		Book book = jdbcTemplate.queryForObject("select " + BookRowMapper.COLUMNS + " from book",
+				BookRowMapper.INSTANCE);
+
+		assertThat(book.getPrice()).isNull();
+		assertThat(book.getAmount()).isNull();
+		assertThat(book.getPub()).isNull();
+	}
+
+	@Test
+	void sharedInstanceMapsManyRows() {
+		for (int i = 0; i < 20; i++) {
+			jdbcTemplate.update("insert into book(name, price, amount, pub) values(?, ?, ?, ?)", "book-" + i, i * 1.5,
+					i, i % 2 == 0);
+		}
+
+		List<Book> books = jdbcTemplate.query("select " + BookRowMapper.COLUMNS + " from book order by id",
+				BookRowMapper.INSTANCE);
+
+		assertThat(books).hasSize(20);
+		assertThat(books.get(7).getName()).isEqualTo("book-7");
+		assertThat(books.get(7).getPrice()).isEqualTo(10.5);
+		assertThat(books.get(7).getPub()).isFalse();
+	}
+}
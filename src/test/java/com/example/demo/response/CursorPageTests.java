@@ -0,0 +1,38 @@
+package com.example.demo.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class CursorPageTests {
+
+	@Test
+	void extraRowMeansMoreAndCursorIsLastItem() {
+		CursorPage<Integer> page = CursorPage.of(List.of(1, 2, 3, 4), 3, Function.identity());
+
+		assertThat(page.getItems()).containsExactly(1, 2, 3);
+		assertThat(page.isHasMore()).isTrue();
+		assertThat(page.getNextCursor()).isEqualTo(3);
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		CursorPage<Integer> page = CursorPage.of(List.of(7, 8), 3, Function.identity());
+
+		assertThat(page.getItems()).containsExactly(7, 8);
+		assertThat(page.isHasMore()).isFalse();
+		assertThat(page.getNextCursor()).isNull();
+	}
+
+	@Test
+	void emptyPage() {
+		CursorPage<Integer> page = CursorPage.of(List.of(), 3, Function.identity());
+
+		assertThat(page.getItems()).isEmpty();
+		assertThat(page.isHasMore()).isFalse();
+		assertThat(page.getNextCursor()).isNull();
+	}
+}
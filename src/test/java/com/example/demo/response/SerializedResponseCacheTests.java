@@ -0,0 +1,132 @@
+package com.example.demo.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.event.BookEvent;
+import com.example.demo.event.BookEventBus;
+import com.example.demo.model.Book;
+import com.example.demo.model.CollectionVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 轉好的 JSON 回應快取: 以資料算出的版本比對、不會用舊清單蓋掉新清單、異動事件與 ttl 讓快取失效
+@SpringJUnitConfig
+@TestPropertySource(properties = { "book.response-cache.ttl=300ms", "book.response-cache.gzip-min-size=10B" })
+class SerializedResponseCacheTests {
+
+	@Configuration
+	@Import(SerializedResponseCache.class)
+	static class Config {
+
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance();
+		}
+
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper().registerModule(new JavaTimeModule());
+		}
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+
+		@Bean
+		BookEventBus bookEventBus() {
+			return new BookEventBus(16, 16, 10, 1, Duration.ofSeconds(10), Duration.ofMinutes(1),
+					Duration.ofMinutes(1));
+		}
+	}
+
+	@Autowired
+	private SerializedResponseCache cache;
+
+	@Autowired
+	private BookEventBus bookEventBus;
+
+	@Test
+	void versionIsDerivedFromRows() {
+		List<Book> books = List.of(book(1, 2, 1_000), book(2, 0, 3_000));
+
+		assertThat(CollectionVersion.of(books)).isEqualTo(new CollectionVersion(2, 3_000, 2));
+	}
+
+	@Test
+	void collectionIsServedOnlyForMatchingVersion() {
+		CollectionVersion older = new CollectionVersion(1, 1_000, 0);
+		CollectionVersion newer = new CollectionVersion(1, 2_000, 1);
+
+		cache.putCollection(newer, "newer");
+		cache.putCollection(older, "older"); // 較慢的請求讀到舊資料, 不會蓋掉新的
+
+		assertThat(cache.getCollection(older)).isNull();
+		assertThat(text(cache.getCollection(newer))).isEqualTo("\"newer\"");
+	}
+
+	@Test
+	void entriesExpireAfterTtl() throws Exception {
+		CollectionVersion version = new CollectionVersion(5, 5_000, 5);
+		cache.putCollection(version, "collection");
+		cache.putBook(5, 1, "book");
+
+		Thread.sleep(500);
+
+		assertThat(cache.getCollection(version)).isNull();
+		assertThat(cache.getBook(5, 1)).isNull();
+	}
+
+	@Test
+	void eventInvalidatesBookAndCollection() {
+		CollectionVersion version = new CollectionVersion(7, 7_000, 7);
+		cache.putCollection(version, "collection");
+		cache.putBook(7, 1, "book-7");
+		cache.putBook(8, 1, "book-8");
+
+		bookEventBus.publish(BookEvent.Type.UPDATED, 7, null);
+
+		assertThat(cache.getBook(7, 1)).isNull();
+		assertThat(cache.getBook(8, 1)).isNotNull();
+		assertThat(cache.getCollection(version)).isNull();
+	}
+
+	@Test
+	void largeBodiesAlsoHaveGzipVariant() {
+		SerializedResponseCache.Entry entry = cache.putBook(9, 1, "x".repeat(100));
+
+		assertThat(entry.gzip()).isNotNull();
+		assertThat(SerializedResponseCache.toResponse(entry, "br, gzip").getHeaders().getFirst("Content-Encoding"))
+				.isEqualTo("gzip");
+		assertThat(SerializedResponseCache.toResponse(entry, "gzip;q=0").getBody()).isEqualTo(entry.json());
+	}
+
+	private static Book book(int id, int version, long updatedAt) {
+		Book book = new Book(id, "book-" + id, 1.0, 1, false);
+		book.setVersion(version);
+		book.setUpdatedAt(Instant.ofEpochMilli(updatedAt));
+		return book;
+	}
+
+	private static String text(SerializedResponseCache.Entry entry) {
+		return new String(entry.json(), StandardCharsets.UTF_8);
+	}
+}
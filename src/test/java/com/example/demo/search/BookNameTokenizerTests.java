@@ -0,0 +1,33 @@
+package com.example.demo.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+// 書名斷詞: NFKC 正規化、中日韓單字與 bigram、英數字詞
+class BookNameTokenizerTests {
+
+	@Test
+	void normalizesFullWidthAndCase() {
+		assertThat(BookNameTokenizer.normalize("ＪＡＶＡ　１２３")).isEqualTo("java 123");
+	}
+
+	@Test
+	void indexTermsAreCharactersAndBigrams() {
+		assertThat(BookNameTokenizer.cjkIndexTerms("小叮噹")).containsExactly("小", "小叮", "叮", "叮噹", "噹");
+	}
+
+	@Test
+	void queryTermsAreBigramsOrSingleCharacter() {
+		assertThat(BookNameTokenizer.cjkQueryTerms("小叮噹")).containsExactly("小叮", "叮噹");
+		assertThat(BookNameTokenizer.cjkQueryTerms("書")).containsExactly("書");
+	}
+
+	@Test
+	void mixedTextIsSplitIntoCjkRunsAndWords() {
+		String normalized = BookNameTokenizer.normalize("Java程式設計 3rd");
+
+		assertThat(BookNameTokenizer.words(normalized)).containsExactly("java", "3rd");
+		assertThat(BookNameTokenizer.cjkQueryTerms(normalized)).containsExactly("程式", "式設", "設計");
+	}
+}
@@ -0,0 +1,143 @@
+package com.example.demo.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookRepositoryImpl;
+import com.example.demo.service.BookService;
+import com.example.demo.service.BookServiceImpl;
+
+// 書名搜尋索引: 排序 (相同 > 開頭相符 > 連續出現, 再依相符比例)、過濾與筆數上限、
+// 事件帶的是存進資料庫的資料 (有 version), 對帳時補上沒有經過這台伺服器的異動
+// 用記憶體版 BookRepository 當資料庫, 直接改 repository 就是「別台伺服器改的」(不會發事件)
+@SpringJUnitConfig
+@TestPropertySource(properties = "book.search.refresh-interval=1h")
+class BookSearchIndexTests {
+
+	@Configuration
+	@Import({ BookSearchIndex.class, BookServiceImpl.class })
+	static class Config {
+
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance();
+		}
+
+		@Bean
+		BookRepository bookRepositoryJdbcImpl() {
+			return new BookRepositoryImpl();
+		}
+
+		@Bean
+		BookEventBus bookEventBus() {
+			return new BookEventBus(16, 16, 10, 1, Duration.ofSeconds(10), Duration.ofMinutes(1),
+					Duration.ofMinutes(1));
+		}
+	}
+
+	@Autowired
+	private BookSearchIndex index;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository repository;
+
+	@BeforeEach
+	void build() {
+		if (!index.isReady()) {
+			index.refresh();
+		}
+	}
+
+	@Test
+	void buildIndexesExistingBooks() throws Exception {
+		assertThat(index.search("小叮噹", null, null, null, 10)).extracting(Book::getName).containsExactly("機器貓小叮噹");
+	}
+
+	@Test
+	void ranksExactThenPrefixThenContains() throws Exception {
+		add("高等微積分", 10.0, false);
+		add("微積分習題", 10.0, false);
+		add("微積分", 10.0, false);
+		add("微積分與人生哲學", 10.0, false);
+		add("微分積分", 10.0, false); // 沒有 "微積" 這個 bigram, 不符合
+
+		assertThat(index.search("微積分", null, null, null, 10)).extracting(Book::getName)
+				.containsExactly("微積分", "微積分習題", "微積分與人生哲學", "高等微積分");
+	}
+
+	@Test
+	void wordsMatchByPrefixAfterNormalization() throws Exception {
+		add("Effective Java 精要", 10.0, false);
+
+		assertThat(index.search("ＥＦＦ jav", null, null, null, 10)).extracting(Book::getName)
+				.containsExactly("Effective Java 精要");
+		assertThat(index.search("effective kotlin", null, null, null, 10)).isEmpty();
+	}
+
+	@Test
+	void filtersAndLimit() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			add("過濾測試" + i, 10.0 * (i + 1), i % 2 == 0);
+		}
+
+		assertThat(index.search("過濾測試", true, 20.0, null, 10)).extracting(Book::getName)
+				.containsExactlyInAnyOrder("過濾測試2", "過濾測試4");
+		assertThat(index.search("過濾測試", null, null, 30.0, 10)).hasSize(3);
+		assertThat(index.search("過濾測試", null, null, null, 2)).hasSize(2);
+		assertThat(index.search("過濾測試", null, null, null, 0)).isEmpty();
+	}
+
+	@Test
+	void indexedBooksCarryPersistedVersion() throws Exception {
+		Integer id = add("版本測試", 10.0, false);
+		bookService.updateBook(id, new Book(null, "版本測試-改", 11.0, 1, false)); // request body 沒有 version
+
+		Book indexed = index.search("版本測試", null, null, null, 10).get(0);
+		assertThat(indexed.getName()).isEqualTo("版本測試-改");
+		assertThat(indexed.getVersion()).isEqualTo(1);
+		assertThat(indexed.getUpdatedAt()).isNotNull();
+	}
+
+	@Test
+	void refreshPicksUpChangesFromOtherInstances() throws Exception {
+		Integer renamed = add("對帳改名", 10.0, false);
+		Integer deleted = add("對帳刪除", 10.0, false);
+		repository.patchBook(renamed, "對帳已改名", null, null);
+		repository.deleteBook(deleted);
+		Book created = new Book(null, "對帳新增", 10.0, 1, false);
+		repository.addBook(created);
+		assertThat(index.search("對帳", null, null, null, 10)).extracting(Book::getName)
+				.containsExactlyInAnyOrder("對帳改名", "對帳刪除");
+
+		index.refresh();
+
+		assertThat(index.search("對帳", null, null, null, 10)).extracting(Book::getName)
+				.containsExactlyInAnyOrder("對帳已改名", "對帳新增");
+		assertThat(index.version()).isEqualTo(repository.getCollectionVersion());
+	}
+
+	private Integer add(String name, double price, boolean pub) throws Exception {
+		Book book = new Book(null, name, price, 1, pub);
+		bookService.addBook(book);
+		return book.getId();
+	}
+}
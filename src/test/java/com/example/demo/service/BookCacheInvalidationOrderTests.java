@@ -0,0 +1,75 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.model.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BookRepositoryImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// 異動事件發佈時單筆快取已經清掉: 收到事件的人回頭查詢不會拿到舊資料
+@SpringJUnitConfig
+class BookCacheInvalidationOrderTests {
+
+	@Configuration
+	@Import(CachedBookServiceImpl.class)
+	static class Config {
+
+		@Bean
+		BookService coalescingBookServiceImpl() {
+			return new BookServiceImpl(); // 省略合併層, 直接接真正的實作
+		}
+
+		@Bean
+		BookRepository bookRepositoryJdbcImpl() {
+			return new BookRepositoryImpl();
+		}
+
+		@Bean
+		BookEventBus bookEventBus() {
+			return new BookEventBus(16, 16, 10, 1, Duration.ofSeconds(10), Duration.ofMinutes(1),
+					Duration.ofMinutes(1));
+		}
+
+		@Bean
+		Cache<Integer, Book> bookCache() {
+			return Caffeine.newBuilder().maximumSize(100).build();
+		}
+	}
+
+	@Autowired
+	private CachedBookServiceImpl cachedBookService;
+
+	@Autowired
+	private BookEventBus bookEventBus;
+
+	@Autowired
+	private Cache<Integer, Book> bookCache;
+
+	@Test
+	void cacheIsInvalidatedBeforeEventIsSeen() throws Exception {
+		List<Book> cachedAtEvent = new ArrayList<>();
+		bookEventBus.addListener(event -> cachedAtEvent.add(bookCache.getIfPresent(event.getBookId())));
+		cachedBookService.getBookById(1);
+		cachedBookService.getBookById(2);
+
+		cachedBookService.updateBookPrice(1, 99.0, null);
+		cachedBookService.deleteBook(2);
+
+		assertThat(cachedAtEvent).hasSize(2).containsOnlyNulls();
+		assertThat(cachedBookService.getBookById(1).getPrice()).isEqualTo(99.0);
+	}
+}
@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.example.demo.event.BookEventBus;
+import com.example.demo.exception.BookException;
+import com.example.demo.exception.BookNotFoundException;
+import com.example.demo.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// 單筆查詢快取: 命中時不查下層, 修改/刪除後清掉該筆, 查無此書不快取
+@SpringJUnitConfig
+class CachedBookServiceImplTests {
+
+	@Configuration
+	@Import(CachedBookServiceImpl.class)
+	static class Config {
+
+		@Bean
+		BookService coalescingBookServiceImpl() {
+			return mock(BookService.class);
+		}
+
+		@Bean
+		BookEventBus bookEventBus() {
+			return mock(BookEventBus.class);
+		}
+
+		@Bean
+		Cache<Integer, Book> bookCache() {
+			return Caffeine.newBuilder().maximumSize(100).build();
+		}
+	}
+
+	@Autowired
+	private CachedBookServiceImpl cachedBookService;
+
+	@Autowired
+	@Qualifier("coalescingBookServiceImpl")
+	private BookService coalescingBookServiceImpl; // 下層 (mock)
+
+	@Autowired
+	private Cache<Integer, Book> bookCache;
+
+	@BeforeEach
+	void setUp() {
+		reset(coalescingBookServiceImpl);
+		bookCache.invalidateAll();
+	}
+
+	@Test
+	void secondReadIsServedFromCache() throws BookException {
+		when(coalescingBookServiceImpl.getBookById(1)).thenReturn(book(1, 0));
+
+		assertThat(cachedBookService.getBookById(1).getName()).isEqualTo("book-1");
+		assertThat(cachedBookService.getBookById(1).getName()).isEqualTo("book-1");
+
+		verify(coalescingBookServiceImpl, times(1)).getBookById(1);
+	}
+
+	@Test
+	void missingBookIsNotCached() throws BookException {
+		when(coalescingBookServiceImpl.getBookById(9)).thenThrow(new BookNotFoundException(9));
+
+		assertThatThrownBy(() -> cachedBookService.getBookById(9)).isInstanceOf(BookNotFoundException.class);
+		assertThatThrownBy(() -> cachedBookService.getBookById(9)).isInstanceOf(BookNotFoundException.class);
+
+		verify(coalescingBookServiceImpl, times(2)).getBookById(9);
+		assertThat(bookCache.getIfPresent(9)).isNull();
+	}
+
+	@Test
+	void updateInvalidatesEvenWhenItFails() throws BookException {
+		bookCache.put(1, book(1, 0));
+		bookCache.put(2, book(2, 0));
+		doThrow(new BookException("修改失敗")).when(coalescingBookServiceImpl).updateBook(eq(2), any());
+
+		cachedBookService.updateBook(1, book(1, 0));
+		assertThatThrownBy(() -> cachedBookService.updateBook(2, book(2, 0))).isInstanceOf(BookException.class);
+
+		assertThat(bookCache.getIfPresent(1)).isNull();
+		assertThat(bookCache.getIfPresent(2)).isNull();
+	}
+
+	@Test
+	void patchAndDeleteInvalidate() throws BookException {
+		bookCache.put(1, book(1, 0));
+		bookCache.put(2, book(2, 0));
+		when(coalescingBookServiceImpl.updateBookPrice(eq(1), any(), any())).thenReturn(book(1, 1));
+
+		cachedBookService.updateBookPrice(1, 3.0, 0);
+		cachedBookService.deleteBook(2);
+
+		assertThat(bookCache.getIfPresent(1)).isNull();
+		assertThat(bookCache.getIfPresent(2)).isNull();
+	}
+
+	@Test
+	void batchWritesInvalidateEveryId() throws BookException {
+		bookCache.put(1, book(1, 0));
+		bookCache.put(2, book(2, 0));
+		bookCache.put(3, book(3, 0));
+
+		cachedBookService.updateBooks(List.of(book(1, 0), book(null, 0)));
+		cachedBookService.deleteBooks(List.of(2));
+
+		assertThat(bookCache.getIfPresent(1)).isNull();
+		assertThat(bookCache.getIfPresent(2)).isNull();
+		assertThat(bookCache.getIfPresent(3)).isNotNull();
+		verify(coalescingBookServiceImpl, times(0)).getBookById(anyInt());
+	}
+
+	private static Book book(Integer id, int version) {
+		Book book = new Book(id, "book-" + id, 10.0, 1, false);
+		book.setVersion(version);
+		return book;
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.example.demo.datasource.ReplicaRoutingContext;
+import com.example.demo.model.Book;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+
+// 查詢合併: 等待者拿到不可修改的複本、一定要讀 primary 的請求不合併
+// 下層的 findAllBooks 會卡住直到測試放行, 讓第二個呼叫一定在第一個還沒查完時進來
+@SpringJUnitConfig
+class CoalescingBookServiceImplTests {
+
+	@Configuration
+	@Import(CoalescingBookServiceImpl.class)
+	static class Config {
+
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance();
+		}
+
+		@Bean
+		BookService bookServiceImpl() {
+			return mock(BookService.class);
+		}
+
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+
+	@Autowired
+	private CoalescingBookServiceImpl coalescingBookService;
+
+	@Autowired
+	private BookService bookServiceImpl;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final List<Book> loaded = List.of(new Book(1, "合併", 1.0, 1, false));
+
+	@BeforeEach
+	void setUp() {
+		reset(bookServiceImpl);
+		when(bookServiceImpl.findAllBooks()).thenAnswer(invocation -> {
+			release.await(5, TimeUnit.SECONDS);
+			return loaded;
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void followersGetUnmodifiableCopies() throws Exception {
+		double followersBefore = calls("follower");
+		CompletableFuture<List<Book>> leader = findAllBooks(false);
+		waitUntil(() -> loads() == 1); // leader 正在查
+		CompletableFuture<List<Book>> follower = findAllBooks(false);
+		waitUntil(() -> calls("follower") == followersBefore + 1);
+		release.countDown();
+
+		List<Book> shared = follower.get(5, TimeUnit.SECONDS);
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(loaded);
+		assertThat(shared).isEqualTo(loaded);
+		assertThat(shared.get(0)).isNotSameAs(loaded.get(0));
+		assertThatThrownBy(() -> shared.add(new Book())).isInstanceOf(UnsupportedOperationException.class);
+		verify(bookServiceImpl, times(1)).findAllBooks();
+	}
+
+	@Test
+	void requestsPinnedToPrimaryAreNotCoalesced() throws Exception {
+		double followersBefore = calls("follower");
+		CompletableFuture<List<Book>> leader = findAllBooks(false);
+		waitUntil(() -> loads() == 1); // leader 正在查
+		CompletableFuture<List<Book>> pinned = findAllBooks(true);
+		waitUntil(() -> loads() == 2); // 自己查, 不等 leader
+		release.countDown();
+
+		assertThat(pinned.get(5, TimeUnit.SECONDS)).isSameAs(loaded);
+		leader.get(5, TimeUnit.SECONDS);
+		assertThat(calls("follower")).isEqualTo(followersBefore);
+	}
+
+	// 在另一條執行緒查詢; pinned 時模擬帶著 sticky cookie 的請求
+	private CompletableFuture<List<Book>> findAllBooks(boolean pinned) {
+		return CompletableFuture.supplyAsync(() -> {
+			if (pinned) {
+				MockHttpServletRequest request = new MockHttpServletRequest();
+				request.setCookies(new Cookie(ReplicaRoutingContext.STICKY_COOKIE,
+						Long.toString(System.currentTimeMillis() + 60_000)));
+				RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+			}
+			try {
+				return coalescingBookService.findAllBooks();
+			} finally {
+				RequestContextHolder.resetRequestAttributes();
+			}
+		}, executor);
+	}
+
+	// 下層 findAllBooks 被呼叫 (開始查詢) 的次數
+	private long loads() {
+		return mockingDetails(bookServiceImpl).getInvocations().stream()
+				.filter(invocation -> invocation.getMethod().getName().equals("findAllBooks")).count();
+	}
+
+	private double calls(String role) {
+		return registry.get("book.singleflight.calls").tag("method", "findAllBooks").tag("role", role).counter()
+				.count();
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("等待逾時").isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+}
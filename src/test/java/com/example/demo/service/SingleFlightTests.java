@@ -0,0 +1,111 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+// single-flight: 同時進行的相同 key 只查一次、等待者拿到 share 的結果與同一個例外、查完就移除不快取
+class SingleFlightTests {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final List<Boolean> calls = new CopyOnWriteArrayList<>();
+	private final SingleFlight<String, List<String>> flight = new SingleFlight<>(calls::add, ArrayList::new);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentCallsShareOneLoad() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		List<String> result = new ArrayList<>(List.of("a"));
+		Supplier<List<String>> loader = () -> {
+			loads.incrementAndGet();
+			await(release);
+			return result;
+		};
+
+		CompletableFuture<List<String>> leader = async(() -> flight.execute("k", loader));
+		waitUntil(() -> calls.size() == 1);
+		List<CompletableFuture<List<String>>> followers = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			followers.add(async(() -> flight.execute("k", loader)));
+		}
+		waitUntil(() -> calls.size() == 4);
+		release.countDown();
+
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(result);
+		for (CompletableFuture<List<String>> follower : followers) {
+			assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(result).isNotSameAs(result); // 各自一份
+		}
+		assertThat(loads).hasValue(1);
+		assertThat(calls).containsExactly(true, false, false, false);
+	}
+
+	@Test
+	void followersReceiveLeadersException() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<List<String>> failing = () -> {
+			await(release);
+			throw new IllegalStateException("資料庫錯誤");
+		};
+
+		CompletableFuture<List<String>> leader = async(() -> flight.execute("k", failing));
+		waitUntil(() -> calls.size() == 1);
+		CompletableFuture<List<String>> follower = async(() -> flight.execute("k", failing));
+		waitUntil(() -> calls.size() == 2);
+		release.countDown();
+
+		for (CompletableFuture<List<String>> future : List.of(leader, follower)) {
+			assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(IllegalStateException.class)
+					.hasRootCauseMessage("資料庫錯誤");
+		}
+	}
+
+	@Test
+	void resultsAreNotCachedAndKeysAreIndependent() {
+		AtomicInteger loads = new AtomicInteger();
+		Supplier<List<String>> loader = () -> List.of("v" + loads.incrementAndGet());
+
+		assertThat(flight.execute("k", loader)).containsExactly("v1");
+		assertThat(flight.execute("k", loader)).containsExactly("v2"); // 上一次已經結束, 重新查詢
+		assertThat(flight.execute("other", loader)).containsExactly("v3");
+		assertThat(calls).containsExactly(true, true, true);
+	}
+
+	private <T> CompletableFuture<T> async(Supplier<T> supplier) {
+		return CompletableFuture.supplyAsync(supplier, executor);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("等待逾時").isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.demo.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+// 整數解析: 查詢參數、JSON 陣列、CSV、BOM、邊界值與格式錯誤
+class IntArrayParserTests {
+
+	@Test
+	void parsesRepeatedAndCommaSeparatedParameters() {
+		assertThat(IntArrayParser.parse(new String[] { "80", "90,100", "-5" })).containsExactly(80, 90, 100, -5);
+		assertThat(IntArrayParser.parse(new String[0])).isEmpty();
+	}
+
+	@Test
+	void parsesJsonArrayAndCsvBodies() throws IOException {
+		assertThat(IntArrayParser.parse(body("[80, 90,\n 100]"))).containsExactly(80, 90, 100);
+		assertThat(IntArrayParser.parse(body("1;2\r\n3\t4,,5"))).containsExactly(1, 2, 3, 4, 5);
+		assertThat(IntArrayParser.parse(body(""))).isEmpty();
+		assertThat(IntArrayParser.parse(body("[]"))).isEmpty();
+	}
+
+	@Test
+	void skipsUtf8ByteOrderMark() throws IOException {
+		byte[] csv = "\uFEFF70,60".getBytes(StandardCharsets.UTF_8);
+
+		assertThat(IntArrayParser.parse(new ByteArrayInputStream(csv))).containsExactly(70, 60);
+	}
+
+	@Test
+	void rejectsByteOrderMarkPiecesAndBomOutsideStart() {
+		// 單獨的 EF / BB / BF (ISO-8859-1 讀成 ï » ¿) 不是 BOM
+		assertThatThrownBy(() -> IntArrayParser.parse(bytes(0xBB, '8', '0'))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(bytes(0xEF, 0xBB, '8'))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body("1,\uFEFF2"))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body(" \uFEFF1"))).isInstanceOf(NumberFormatException.class);
+	}
+
+	@Test
+	void requiresMatchingBracketsAndNothingAfterClosing() throws IOException {
+		assertThat(IntArrayParser.parse(body("\uFEFF[1, 2] \r\n"))).containsExactly(1, 2);
+
+		assertThatThrownBy(() -> IntArrayParser.parse(body("1]"))).isInstanceOf(NumberFormatException.class)
+				.hasMessageContaining("'['");
+		assertThatThrownBy(() -> IntArrayParser.parse(body("[1]2"))).isInstanceOf(NumberFormatException.class)
+				.hasMessageContaining("結束後");
+		assertThatThrownBy(() -> IntArrayParser.parse(body("[1],"))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body("[1]]"))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body("[1, 2"))).isInstanceOf(NumberFormatException.class)
+				.hasMessageContaining("沒有結束");
+	}
+
+	@Test
+	void acceptsIntRangeAndRejectsOverflow() {
+		assertThat(IntArrayParser.parse(new String[] { "2147483647", "-2147483648" }))
+				.containsExactly(Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+		assertThatThrownBy(() -> IntArrayParser.parse(new String[] { "2147483648" }))
+				.isInstanceOf(NumberFormatException.class).hasMessageContaining("超出範圍");
+		assertThatThrownBy(() -> IntArrayParser.parse(new String[] { "-2147483649" }))
+				.isInstanceOf(NumberFormatException.class).hasMessageContaining("超出範圍");
+		assertThatThrownBy(() -> IntArrayParser.parse(new String[] { "00000000001" }))
+				.isInstanceOf(NumberFormatException.class);
+	}
+
+	@Test
+	void rejectsMalformedInput() {
+		assertThatThrownBy(() -> IntArrayParser.parse(body("1,abc"))).isInstanceOf(NumberFormatException.class)
+				.hasMessageContaining("不是整數").hasMessageContaining("第 3 個字元");
+		assertThatThrownBy(() -> IntArrayParser.parse(body("1.5"))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body("1,-,2"))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body("5-3"))).isInstanceOf(NumberFormatException.class);
+		assertThatThrownBy(() -> IntArrayParser.parse(body("[[1]]"))).isInstanceOf(NumberFormatException.class)
+				.hasMessageContaining("一層");
+		assertThatThrownBy(() -> IntArrayParser.parse(body("1,[2]"))).isInstanceOf(NumberFormatException.class);
+	}
+
+	@Test
+	void rejectsMoreThanMaxValues() {
+		String[] tooMany = new String[IntArrayParser.MAX_VALUES + 1];
+		Arrays.fill(tooMany, "1");
+
+		assertThat(IntArrayParser.parse(Arrays.copyOf(tooMany, IntArrayParser.MAX_VALUES)))
+				.hasSize(IntArrayParser.MAX_VALUES);
+		assertThatThrownBy(() -> IntArrayParser.parse(tooMany)).isInstanceOf(NumberFormatException.class)
+				.hasMessageContaining("最多");
+	}
+
+	private static InputStream bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return new ByteArrayInputStream(bytes);
+	}
+
+	private static InputStream body(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
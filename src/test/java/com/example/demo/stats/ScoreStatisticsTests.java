@@ -0,0 +1,77 @@
+package com.example.demo.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// 分數統計: 一次掃描的結果要和直接排序/逐一計算的結果一致
+class ScoreStatisticsTests {
+
+	@Test
+	void summarizesScoresInOnePass() {
+		ScoreStatistics stats = ScoreStatistics.of(new int[] { 55, 90, 60, 100, 0, 59 }, 60);
+
+		assertThat(stats.getCount()).isEqualTo(6);
+		assertThat(stats.getMin()).isZero();
+		assertThat(stats.getMax()).isEqualTo(100);
+		assertThat(stats.getSum()).isEqualTo(364);
+		assertThat(stats.getAverage()).isCloseTo(364 / 6.0, within(1e-9));
+		assertThat(stats.getPassed()).containsExactly(90, 60, 100);
+		assertThat(stats.getFailed()).containsExactly(55, 0, 59);
+		// 0 在第一區, 55/59 在 50~59, 60 在 60~69, 90 與 100 都在最後一區
+		assertThat(stats.getHistogram()).containsExactly(1, 0, 0, 0, 0, 2, 1, 0, 0, 2);
+	}
+
+	@Test
+	void emptyInputIsAllZero() {
+		ScoreStatistics stats = ScoreStatistics.of(new int[0], 60);
+
+		assertThat(stats.getCount()).isZero();
+		assertThat(stats.getMin()).isZero();
+		assertThat(stats.getMax()).isZero();
+		assertThat(stats.getAverage()).isZero();
+		assertThat(stats.getPassed()).isEmpty();
+		assertThat(stats.getFailed()).isEmpty();
+		assertThat(stats.percentile(50)).isZero();
+		assertThat(ScoreStatistics.average(new int[0])).isZero();
+	}
+
+	@Test
+	void percentilesMatchNearestRankOnSortedCopy() {
+		Random random = new Random(42);
+		int[] inRange = random.ints(997, 0, ScoreStatistics.MAX_SCORE + 1).toArray();
+		int[] outOfRange = random.ints(997, -50, 200).toArray(); // 超出 0~100 時改用排序副本
+
+		for (int[] scores : new int[][] { inRange, outOfRange }) {
+			ScoreStatistics stats = ScoreStatistics.of(scores, 60);
+			int[] sorted = scores.clone();
+			Arrays.sort(sorted);
+			for (double p : new double[] { 0, 1, 25, 50, 75, 90, 99, 99.9, 100 }) {
+				int rank = Math.max(1, (int) Math.ceil(p / 100 * sorted.length));
+				assertThat(stats.percentile(p)).as("p%s", p).isEqualTo(sorted[rank - 1]);
+			}
+		}
+	}
+
+	@Test
+	void outOfRangeScoresGoToEdgeBuckets() {
+		ScoreStatistics stats = ScoreStatistics.of(new int[] { -10, 150, 100 }, 60);
+
+		assertThat(stats.getHistogram()[0]).isEqualTo(1);
+		assertThat(stats.getHistogram()[9]).isEqualTo(2);
+		assertThat(stats.getMin()).isEqualTo(-10);
+		assertThat(stats.getMax()).isEqualTo(150);
+	}
+
+	@Test
+	void sumDoesNotOverflowInt() {
+		int[] ages = { Integer.MAX_VALUE, Integer.MAX_VALUE };
+
+		assertThat(ScoreStatistics.of(ages, 60).getSum()).isEqualTo(2L * Integer.MAX_VALUE);
+		assertThat(ScoreStatistics.average(ages)).isEqualTo(Integer.MAX_VALUE);
+	}
+}
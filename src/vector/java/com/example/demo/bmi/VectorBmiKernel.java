@@ -0,0 +1,29 @@
+package com.example.demo.bmi;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// 用 JDK Vector API 一次算多筆 BMI (AVX2 一次 4 筆, AVX-512 一次 8 筆)
+// jdk.incubator.vector 是孵化模組, 放在 src/vector/java, 只有 -P vector 建置時才會編譯 (平常建置不會出現孵化模組警告)
+// 執行時還要加 --add-modules jdk.incubator.vector, BulkBmiCalculator 才會載入它, 否則直接走純量迴圈
+final class VectorBmiKernel implements BmiKernel {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	VectorBmiKernel() {
+	}
+
+	@Override
+	public void compute(double[] heights, double[] weights, double[] out, int from, int to) {
+		int i = from;
+		int upper = from + SPECIES.loopBound(to - from);
+		for (; i < upper; i += SPECIES.length()) {
+			DoubleVector m = DoubleVector.fromArray(SPECIES, heights, i).mul(0.01);
+			DoubleVector.fromArray(SPECIES, weights, i).div(m.mul(m)).intoArray(out, i);
+		}
+		for (; i < to; i++) { // 剩下不足一組的部分
+			double m = heights[i] * 0.01;
+			out[i] = weights[i] / (m * m);
+		}
+	}
+}